@@ -0,0 +1,51 @@
+package com.digital.benchmarks;
+
+import com.digital.RowBatch;
+import com.digital.SyntheticPersonGenerator;
+import com.opencsv.CSVWriter;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+/**
+ * Fixed, seeded input shared by the benchmarks, so every run measures the same rows.
+ */
+final class BenchmarkData {
+    static final long SEED = SyntheticPersonGenerator.DEFAULT_SEED;
+
+    private static SyntheticPersonGenerator generator;
+
+    private BenchmarkData() {
+    }
+
+    static synchronized SyntheticPersonGenerator generator() {
+        if (generator == null) {
+            generator = new SyntheticPersonGenerator(SEED); // Samples Faker once per fork
+        }
+        return generator;
+    }
+
+    static RowBatch rows(int count) {
+        RowBatch batch = new RowBatch(count);
+        generator().partition(SEED, 1, count + 1L).fill(batch);
+        return batch;
+    }
+
+    /**
+     * The rows as CSV lines, quoted the way {@link CSVWriter} writes the exported files.
+     */
+    static String[] csvLines(int count) throws IOException {
+        RowBatch batch = rows(count);
+        String[] lines = new String[count];
+        for (int row = 0; row < count; row++) {
+            StringWriter line = new StringWriter();
+            try (CSVWriter csvWriter = new CSVWriter(line, CSVWriter.DEFAULT_SEPARATOR, CSVWriter.DEFAULT_QUOTE_CHARACTER,
+                    CSVWriter.DEFAULT_ESCAPE_CHARACTER, "")) {
+                csvWriter.writeNext(new String[]{String.valueOf(batch.id(row)), batch.name(row), batch.email(row),
+                        batch.address(row), String.valueOf(batch.age(row))});
+            }
+            lines[row] = line.toString();
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,53 @@
+package com.digital.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the GC profiler attached, so every result also reports allocated
+ * bytes per operation ({@code gc.alloc.rate.norm}) next to the throughput.
+ *
+ * <p>Accepts the usual JMH options, for example a benchmark regex or {@code -p batchSize=1000}.
+ * Unless {@code -t} is given, every benchmark is run once per thread count in
+ * {@link #THREAD_COUNTS}, which for {@link JdbcInsertBenchmark} is the number of concurrent
+ * inserters. Benchmarks that run concurrent work inside each operation, such as
+ * {@link ExecutorModeBenchmark}, only make sense on one thread and are left out of the other
+ * runs. Results are also written to {@code jmh-result-t<threads>.json}.</p>
+ *
+ * <pre>{@code
+ * java -jar benchmarks/target/benchmarks.jar CsvParseBenchmark
+ * java -jar benchmarks/target/benchmarks.jar JdbcInsertBenchmark -p loader=multirow -t 4
+ * }</pre>
+ */
+public class BenchmarkRunner {
+    private static final int[] THREAD_COUNTS = {1, 4};
+    private static final String[] SINGLE_THREADED = {ExecutorModeBenchmark.class.getSimpleName()};
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        int[] threadCounts = commandLine.getThreads().hasValue()
+                ? new int[]{commandLine.getThreads().get()}
+                : THREAD_COUNTS;
+
+        for (int threads : threadCounts) {
+            ChainedOptionsBuilder options = new OptionsBuilder()
+                    .parent(commandLine)
+                    .threads(threads)
+                    .addProfiler(GCProfiler.class)
+                    .resultFormat(ResultFormatType.JSON)
+                    .result("jmh-result-t" + threads + ".json");
+            if (threads > 1 && !commandLine.getThreads().hasValue()) {
+                for (String benchmark : SINGLE_THREADED) {
+                    options.exclude(benchmark);
+                }
+            }
+            new Runner(options.build()).run();
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.digital.benchmarks;
+
+import com.digital.CsvRowParser;
+import com.digital.RowBatch;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parses a batch of CSV lines and binds them into a {@link RowBatch}, as the CSV import does
+ * for every line.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CsvParseBenchmark {
+    @Param({"1000", "10000"})
+    public int batchSize;
+
+    private String[] lines;
+    private RowBatch batch;
+    private final CsvRowParser parser = new CsvRowParser();
+
+    @Setup
+    public void setUp() throws IOException {
+        lines = BenchmarkData.csvLines(batchSize);
+        batch = new RowBatch(batchSize);
+    }
+
+    @Benchmark
+    public RowBatch rowParser() {
+        batch.clear();
+        for (String line : lines) {
+            parser.parse(line);
+            batch.add(parser.intField(0), parser.field(1), parser.field(2), parser.field(3), parser.intField(4));
+        }
+        return batch;
+    }
+
+    /**
+     * The per-row split the import used before {@link CsvRowParser}, kept as the baseline.
+     */
+    @Benchmark
+    public RowBatch legacyParseCsvRow() {
+        batch.clear();
+        for (String line : lines) {
+            String[] values = legacyParseCsvRow(line);
+            batch.add(Long.parseLong(values[0]), values[1], values[2], values[3], Integer.parseInt(values[4]));
+        }
+        return batch;
+    }
+
+    private static String[] legacyParseCsvRow(String row) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean inQuotes = false;
+
+        for (char c : row.toCharArray()) {
+            if (c == '"' && (field.length() == 0 || row.charAt(field.length() - 1) != '\\')) {
+                inQuotes = !inQuotes;
+            } else if (c == ',' && !inQuotes) {
+                fields.add(field.toString().trim());
+                field = new StringBuilder();
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString().trim());
+        return fields.toArray(new String[0]);
+    }
+}
@@ -0,0 +1,60 @@
+package com.digital.benchmarks;
+
+import com.digital.RowBatch;
+import com.opencsv.CSVWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Formats a batch with {@link CSVWriter#writeNext}, the way the CSV export writes its part
+ * files, into a discarding writer so only formatting and buffering are measured.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CsvWriteBenchmark {
+    private static final int WRITE_BUFFER_SIZE = 1 << 16; // Same as the export's part files
+
+    @Param({"1000", "10000"})
+    public int batchSize;
+
+    private RowBatch batch;
+    private CSVWriter csvWriter;
+
+    @Setup
+    public void setUp() {
+        batch = BenchmarkData.rows(batchSize);
+        csvWriter = new CSVWriter(new BufferedWriter(Writer.nullWriter(), WRITE_BUFFER_SIZE));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        csvWriter.close();
+    }
+
+    @Benchmark
+    public void writeNext() {
+        for (int row = 0; row < batch.size(); row++) {
+            csvWriter.writeNext(new String[]{String.valueOf(batch.id(row)), batch.name(row), batch.email(row),
+                    batch.address(row), String.valueOf(batch.age(row))});
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.digital.benchmarks;
+
+import com.digital.BulkLoaders;
+import com.digital.JdbcTableSink;
+import com.digital.Pipeline;
+import com.digital.RowBatch;
+import com.digital.Sink;
+import com.digital.SyntheticPersonGenerator;
+import com.digital.SyntheticSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs a whole {@link Pipeline}, synthetic rows into a sink, once per operation with fixed
+ * worker pools and once with {@linkplain Pipeline#virtualThreads(int) virtual threads}, at the
+ * same number of concurrent writers.
+ *
+ * <p>The {@code latency} sink only sleeps for {@code roundTripMicros} per batch, standing in
+ * for a JDBC round trip to a remote server; that is where the two modes differ, especially
+ * with many writers. The {@code h2} sink inserts into an in-process H2 database, which is CPU
+ * bound and shows the overhead of each mode instead. Run it with {@code -t 1}: every operation
+ * is already concurrent.</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExecutorModeBenchmark {
+    private static final String JDBC_URL = "jdbc:h2:mem:executors;MODE=MySQL;DB_CLOSE_DELAY=-1";
+    private static final String TABLE = "people3";
+    private static final int ROWS = 100_000;
+    private static final int BATCH_SIZE = 500;
+
+    @State(Scope.Benchmark)
+    public static class Run {
+        @Param({"fixed", "virtual"})
+        public String executor;
+
+        @Param({"10", "100"})
+        public int writers;
+
+        @Param({"latency", "h2"})
+        public String sink;
+
+        @Param({"2000"})
+        public int roundTripMicros;
+
+        private SyntheticPersonGenerator generator;
+        private Connection keepAlive;
+
+        @Setup(Level.Trial)
+        public void create() throws SQLException {
+            generator = new SyntheticPersonGenerator(SyntheticPersonGenerator.DEFAULT_SEED);
+            keepAlive = DriverManager.getConnection(JDBC_URL);
+            try (Statement statement = keepAlive.createStatement()) {
+                statement.execute("CREATE TABLE IF NOT EXISTS " + TABLE + " (id BIGINT AUTO_INCREMENT, "
+                        + "name VARCHAR(250), email VARCHAR(100), address VARCHAR(100), age INT)");
+            }
+        }
+
+        @Setup(Level.Iteration)
+        public void truncate() throws SQLException {
+            try (Statement statement = keepAlive.createStatement()) {
+                statement.execute("TRUNCATE TABLE " + TABLE);
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void drop() throws SQLException {
+            try (Statement statement = keepAlive.createStatement()) {
+                statement.execute("DROP TABLE " + TABLE);
+            }
+            keepAlive.close();
+        }
+
+        Sink newSink() {
+            if ("h2".equals(sink)) {
+                return new JdbcTableSink(() -> DriverManager.getConnection(JDBC_URL), TABLE, BulkLoaders.BATCH);
+            }
+            Duration roundTrip = Duration.ofNanos(roundTripMicros * 1000L);
+            return () -> new Sink.Writer() {
+                @Override
+                public void write(int split, RowBatch batch) throws InterruptedException {
+                    Thread.sleep(roundTrip); // Blocked on the server, like executeBatch plus commit
+                }
+
+                @Override
+                public void close() {
+                }
+            };
+        }
+    }
+
+    @Benchmark
+    public long runPipeline(Run run) throws Exception {
+        Pipeline pipeline = new Pipeline(
+                new SyntheticSource(run.generator, SyntheticPersonGenerator.DEFAULT_SEED, ROWS, ROWS / 4, BATCH_SIZE),
+                run.newSink())
+                .sourceParallelism(2)
+                .sinkParallelism(run.writers)
+                .queueCapacity(run.writers * 2)
+                .reportEvery(0);
+        if ("virtual".equals(run.executor)) {
+            pipeline.virtualThreads(run.writers);
+        }
+        return pipeline.run().rowsWritten();
+    }
+}
@@ -0,0 +1,106 @@
+package com.digital.benchmarks;
+
+import com.digital.BulkLoader;
+import com.digital.BulkLoaders;
+import com.digital.RowBatch;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Binds a batch with a {@link BulkLoader} and commits it, against an in-process H2 database in
+ * MySQL mode. Each benchmark thread is one writer with its own connection, so running with
+ * {@code -t N} measures N concurrent inserters.
+ *
+ * <p>H2 has no network round trip, so these numbers isolate the client-side cost of binding
+ * and batching; they are not a substitute for a run against MySQL.</p>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JdbcInsertBenchmark {
+    private static final String JDBC_URL = "jdbc:h2:mem:bench;MODE=MySQL;DB_CLOSE_DELAY=-1";
+    private static final String TABLE = "people3";
+
+    @State(Scope.Benchmark)
+    public static class Database {
+        private Connection keepAlive;
+
+        @Setup(Level.Trial)
+        public void create() throws SQLException {
+            keepAlive = DriverManager.getConnection(JDBC_URL);
+            try (Statement statement = keepAlive.createStatement()) {
+                statement.execute("CREATE TABLE IF NOT EXISTS " + TABLE + " (id BIGINT AUTO_INCREMENT, "
+                        + "name VARCHAR(250), email VARCHAR(100), address VARCHAR(100), age INT)");
+            }
+        }
+
+        @Setup(Level.Iteration)
+        public void truncate() throws SQLException {
+            // Keep the in-memory table from growing across iterations
+            try (Statement statement = keepAlive.createStatement()) {
+                statement.execute("TRUNCATE TABLE " + TABLE);
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void drop() throws SQLException {
+            try (Statement statement = keepAlive.createStatement()) {
+                statement.execute("DROP TABLE " + TABLE);
+            }
+            keepAlive.close();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Writer {
+        @Param({"100", "1000", "10000"})
+        public int batchSize;
+
+        @Param({BulkLoaders.BATCH, BulkLoaders.MULTI_ROW})
+        public String loader;
+
+        private Connection connection;
+        private BulkLoader bulkLoader;
+        private RowBatch batch;
+
+        @Setup(Level.Trial)
+        public void open(Database database) throws SQLException {
+            connection = DriverManager.getConnection(JDBC_URL);
+            connection.setAutoCommit(false);
+            bulkLoader = BulkLoaders.create(loader, connection, TABLE);
+            batch = BenchmarkData.rows(batchSize);
+        }
+
+        @TearDown(Level.Trial)
+        public void close() throws SQLException {
+            bulkLoader.close();
+            connection.close();
+        }
+    }
+
+    @Benchmark
+    public int loadAndCommit(Writer writer) throws SQLException {
+        int rows = writer.bulkLoader.load(writer.batch);
+        writer.connection.commit();
+        return rows;
+    }
+}
@@ -0,0 +1,61 @@
+package com.digital.benchmarks;
+
+import com.digital.RowBatch;
+import com.digital.SyntheticPersonGenerator;
+import com.github.javafaker.Faker;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds a batch of fake person rows: Faker per row, as the generator tools used to, against
+ * {@link SyntheticPersonGenerator}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RowGenerationBenchmark {
+    @Param({"1000", "10000"})
+    public int batchSize;
+
+    private RowBatch batch;
+    private Faker faker;
+    private SyntheticPersonGenerator.Partition partition;
+
+    @Setup
+    public void setUp() {
+        batch = new RowBatch(batchSize);
+        faker = new Faker();
+        partition = BenchmarkData.generator().partition(BenchmarkData.SEED, 0, Long.MAX_VALUE);
+    }
+
+    @Benchmark
+    public RowBatch fakerPerRow() {
+        batch.clear();
+        for (int row = 0; row < batchSize; row++) {
+            batch.add(row, faker.name().fullName(), faker.internet().emailAddress(), faker.address().fullAddress(),
+                    faker.number().numberBetween(18, 99));
+        }
+        return batch;
+    }
+
+    @Benchmark
+    public RowBatch syntheticGenerator() {
+        batch.clear();
+        partition.fill(batch);
+        return batch;
+    }
+}
@@ -1,16 +1,8 @@
 package com.digital;
 
-import com.github.javafaker.Faker;
-import com.zaxxer.hikari.HikariConfig;
-import com.zaxxer.hikari.HikariDataSource;
-
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.SQLException;
+import java.nio.file.Paths;
 import java.time.Duration;
 import java.time.LocalTime;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 public class Backup {
     // Total time taken: 707 seconds, thus 11.7 min
@@ -22,28 +14,57 @@ public class Backup {
     private static final int TOTAL_RECORDS = 10000000; // Total records to insert
     private static final int THREAD_COUNT = 20;         // Number of threads
     private static final int BATCH_SIZE = 50000;        // Increased batch size for inserts
+    private static final int GENERATOR_THREADS = 2;     // Threads building rows for the inserters
+    private static final int MAX_DEAD_LETTERS = 1000;   // Refused rows before the run fails
 
-    private static HikariDataSource dataSource;
+    private static ConnectionPool pool;
+    private static String loaderStrategy = BulkLoaders.BATCH;
+    private static SyntheticPersonGenerator generator;
+    private static long seed = SyntheticPersonGenerator.DEFAULT_SEED;
 
     public static void main(String[] args) {
-        setupDataSource(); // Initialize HikariCP connection pool
+        loaderStrategy = CliOptions.option(args, "loader", BulkLoaders.BATCH); // batch | multirow | loaddata
+        seed = Long.parseLong(CliOptions.option(args, "seed", String.valueOf(SyntheticPersonGenerator.DEFAULT_SEED)));
+        generator = new SyntheticPersonGenerator(seed); // Samples Faker once, rows are built from its dictionaries
+        // Initialize HikariCP connection pool, one connection per inserter
+        pool = new ConnectionPool("backup", BulkLoaders.withUrlParameters(DB_URL, loaderStrategy), DB_USER, DB_PASSWORD,
+                THREAD_COUNT);
+        String metricsFile = CliOptions.option(args, "metrics-file", null); // Prometheus text format
+        boolean resume = CliOptions.flag(args, "resume");
 
         // Record start time
         LocalTime startTime = LocalTime.now();
         System.out.println("Data insertion started at: " + startTime);
 
-        ExecutorService executorService = Executors.newFixedThreadPool(THREAD_COUNT);
-        int recordsPerThread = TOTAL_RECORDS / THREAD_COUNT;
-
-        for (int i = 0; i < THREAD_COUNT; i++) {
-            int start = i * recordsPerThread + 1;
-            int end = (i == THREAD_COUNT - 1) ? TOTAL_RECORDS : start + recordsPerThread - 1;
-            executorService.execute(new DataInserterTask(start, end));
-        }
-
-        executorService.shutdown();
-        while (!executorService.isTerminated()) {
-            // Wait for all threads to complete
+        // A refused row costs a few bisecting retries of its batch instead of the whole batch
+        try (DeadLetterFile deadLetters = new DeadLetterFile(
+                Paths.get(CliOptions.option(args, "dead-letters", "backup.rejected.csv")), resume, MAX_DEAD_LETTERS)) {
+            JdbcTableSink sink = new JdbcTableSink(pool, "people2", loaderStrategy).deadLetters(deadLetters);
+            if (CliOptions.flag(args, "autotune")) {
+                sink.autotune(new BatchAutotuner(BATCH_SIZE, THREAD_COUNT));
+            }
+            // A couple of generator threads are plenty to keep THREAD_COUNT inserters busy
+            Pipeline.Result result = new Pipeline(
+                    new SyntheticSource(generator, seed, TOTAL_RECORDS, TOTAL_RECORDS / THREAD_COUNT, BATCH_SIZE),
+                    sink)
+                    .sourceParallelism(GENERATOR_THREADS)
+                    .sinkParallelism(THREAD_COUNT)
+                    .queueCapacity(THREAD_COUNT)
+                    .name("backup")
+                    .reportEvery(CliOptions.intOption(args, "report-interval", 10))
+                    .prometheusFile(metricsFile == null ? null : Paths.get(metricsFile))
+                    .virtualThreads(CliOptions.flag(args, "virtual-threads") ? pool.size() : 0)
+                    .checkpoint(Paths.get(CliOptions.option(args, "checkpoint", "backup.checkpoint")),
+                            "backup people2 seed=" + seed + " total=" + TOTAL_RECORDS + " batch=" + BATCH_SIZE,
+                            resume)
+                    .run();
+            System.out.println("Inserted " + result.rowsWritten() + " records");
+            if (deadLetters.rows() > 0) {
+                System.out.println(deadLetters.rows() + " refused rows were written to " + deadLetters.file());
+            }
+        } catch (Exception e) {
+            System.err.println("Data insertion failed: " + e.getMessage());
+            e.printStackTrace();
         }
 
         // Record end time
@@ -55,73 +76,6 @@ public class Backup {
         System.out.println("Total time taken: " + duration.getSeconds() + " seconds");
 
         // Close the connection pool
-        if (dataSource != null) {
-            dataSource.close();
-        }
-    }
-
-    private static void setupDataSource() {
-        HikariConfig config = new HikariConfig();
-        config.setJdbcUrl(DB_URL);
-        config.setUsername(DB_USER);
-        config.setPassword(DB_PASSWORD);
-        config.setMaximumPoolSize(THREAD_COUNT * 2); // Adjust pool size for optimal performance
-        config.setMinimumIdle(THREAD_COUNT / 2);
-        config.setIdleTimeout(30000);
-        config.setMaxLifetime(1800000);
-        dataSource = new HikariDataSource(config);
-    }
-
-    static class DataInserterTask implements Runnable {
-        private final int start;
-        private final int end;
-
-        DataInserterTask(int start, int end) {
-            this.start = start;
-            this.end = end;
-        }
-
-        @Override
-        public void run() {
-            Faker faker = new Faker();
-            String sql = "INSERT INTO people2 (name, email, address, age) VALUES (?, ?, ?, ?)";
-
-            try (Connection connection = dataSource.getConnection()) {
-                connection.setAutoCommit(false); // Disable auto-commit for batch inserts
-                try (PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
-                    int batchCounter = 0;
-
-                    for (int i = start; i <= end; i++) {
-                        preparedStatement.setString(1, faker.name().fullName());
-                        preparedStatement.setString(2, faker.internet().emailAddress());
-                        preparedStatement.setString(3, faker.address().fullAddress());
-                        preparedStatement.setInt(4, faker.number().numberBetween(18, 99));
-                        preparedStatement.addBatch();
-
-                        batchCounter++;
-
-                        // Execute batch when batch size is reached
-                        if (batchCounter % BATCH_SIZE == 0) {
-                            preparedStatement.executeBatch();
-                            batchCounter = 0;
-                        }
-                    }
-
-                    // Execute remaining records in batch
-                    if (batchCounter > 0) {
-                        preparedStatement.executeBatch();
-                    }
-
-                    connection.commit(); // Commit all inserts at once
-                    System.out.println("Thread " + Thread.currentThread().getName() + " completed records: " + start + " to " + end);
-
-                } catch (SQLException e) {
-                    connection.rollback(); // Rollback on error
-                    System.err.println("Error in thread " + Thread.currentThread().getName() + ": " + e.getMessage());
-                }
-            } catch (SQLException e) {
-                System.err.println("Error getting connection for thread " + Thread.currentThread().getName() + ": " + e.getMessage());
-            }
-        }
+        pool.close();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,208 @@
+package com.digital;
+
+import java.util.concurrent.Semaphore;
+
+/**
+ * Online tuner for the insert path: adjusts the number of rows per commit and the number of
+ * sink writers allowed to run a transaction at the same time.
+ *
+ * <p>Writers report every commit with its row count and the time spent loading and
+ * committing. Every window the tuner compares the window's throughput with the best seen so
+ * far and hill-climbs one knob at a time with additive steps, reverting a step that made
+ * things worse. If the time per row jumps well above its recent average, which is what lock
+ * waits and redo-log flushes look like from the client, both knobs are cut multiplicatively
+ * (AIMD), and the new time per row becomes the average the next windows are judged by. When neither knob has helped for a few windows the settings are logged as
+ * converged, so they can be pinned as constants later.</p>
+ */
+public class BatchAutotuner {
+    private static final long WINDOW_NANOS = 2_000_000_000L; // Measurement window, 2 s
+    private static final double IMPROVEMENT = 1.05;           // A step must gain 5% to count as better
+    private static final double LATENCY_SPIKE = 2.0;          // Time per row this far above the average means back off
+    private static final double LATENCY_SMOOTHING = 0.3;      // Weight of the newest window in the average
+    private static final int STABLE_WINDOWS = 4;              // Windows without a gain before declaring convergence
+    private static final int MIN_BATCH_SIZE = 100;
+    private static final int MAX_BATCH_SIZE = 100_000;
+
+    private final int batchStep;
+    private final int maxWriters;
+    private final WriterPermits permits;
+    private volatile int batchSize;
+    private int writers;
+
+    // Everything below is guarded by this
+    private long windowStart = System.nanoTime();
+    private long windowRows;
+    private long windowCommits;
+    private long windowBusyNanos;
+    private double bestRate;
+    private double averageNanosPerRow;
+    private boolean tuningWriters; // Knob probed by the next step; false means batch size
+    private int direction = 1;
+    private int previousBatchSize;
+    private int previousWriters;
+    private int stableWindows;
+    private boolean converged;
+
+    /**
+     * Starts from the tool's configured settings; {@code maxWriters} is the sink parallelism
+     * and is never exceeded.
+     */
+    public BatchAutotuner(int initialBatchSize, int maxWriters) {
+        this.batchSize = clamp(initialBatchSize, MIN_BATCH_SIZE, MAX_BATCH_SIZE);
+        this.batchStep = Math.max(MIN_BATCH_SIZE, batchSize / 4);
+        this.maxWriters = Math.max(1, maxWriters);
+        this.writers = this.maxWriters;
+        this.permits = new WriterPermits(writers);
+    }
+
+    /**
+     * Rows a writer should commit at a time.
+     */
+    public int batchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Blocks until this writer may open a transaction.
+     */
+    public void beginTransaction() throws InterruptedException {
+        permits.acquire();
+    }
+
+    /**
+     * Reports a committed transaction and lets another writer in.
+     */
+    public void endTransaction(int rows, long busyNanos) {
+        permits.release();
+        record(rows, busyNanos);
+    }
+
+    /**
+     * Lets another writer in after a transaction that was not committed.
+     */
+    public void abortTransaction() {
+        permits.release();
+    }
+
+    /**
+     * Logs the settings in use, for pinning them in the tool's constants.
+     */
+    public synchronized void report() {
+        System.out.println("Autotune final settings: batchSize=" + batchSize + ", writers=" + writers
+                + (converged ? " (converged)" : " (not converged)")
+                + String.format(", best %.0f rows/s", bestRate));
+    }
+
+    private synchronized void record(int rows, long busyNanos) {
+        windowRows += rows;
+        windowCommits++;
+        windowBusyNanos += busyNanos;
+
+        long now = System.nanoTime();
+        long elapsed = now - windowStart;
+        // Wait for at least one commit per writer so a window is not decided by a single transaction
+        if (elapsed < WINDOW_NANOS || windowCommits < writers) {
+            return;
+        }
+        evaluate(windowRows * 1e9 / elapsed, (double) windowBusyNanos / windowRows);
+        windowStart = now;
+        windowRows = 0;
+        windowCommits = 0;
+        windowBusyNanos = 0;
+    }
+
+    /**
+     * Decides the next settings from one window's throughput and commit time per row.
+     */
+    void evaluate(double rate, double nanosPerRow) {
+        if (averageNanosPerRow > 0 && nanosPerRow > LATENCY_SPIKE * averageNanosPerRow) {
+            // Multiplicative decrease: halve the transactions and shed a quarter of the writers
+            setBatchSize(Math.max(MIN_BATCH_SIZE, batchSize / 2));
+            setWriters(Math.max(1, writers - Math.max(1, writers / 4)));
+            System.out.printf("Autotune: commit time per row up %.1fx, backing off to batchSize=%d, writers=%d%n",
+                    nanosPerRow / averageNanosPerRow, batchSize, writers);
+            bestRate = rate; // Measure the next steps against the throughput under pressure
+            // And the next windows against the slower commits: if the time per row has shifted for good,
+            // say once the table outgrew the buffer pool, the next windows must not count as spikes too
+            averageNanosPerRow = nanosPerRow;
+            // A later revert must come back here, not to the settings that caused the spike
+            previousBatchSize = batchSize;
+            previousWriters = writers;
+            stableWindows = 0;
+            converged = false;
+            return;
+        }
+        averageNanosPerRow = averageNanosPerRow == 0 ? nanosPerRow
+                : averageNanosPerRow + LATENCY_SMOOTHING * (nanosPerRow - averageNanosPerRow);
+
+        if (rate >= bestRate * IMPROVEMENT) {
+            bestRate = rate;
+            stableWindows = 0;
+        } else {
+            if (rate * IMPROVEMENT < bestRate && bestRate > 0) {
+                // The last step hurt: undo it and try the knob the other way next time
+                setBatchSize(previousBatchSize);
+                setWriters(previousWriters);
+                direction = -direction;
+            }
+            tuningWriters = !tuningWriters;
+            stableWindows++;
+        }
+
+        if (stableWindows >= STABLE_WINDOWS) {
+            if (!converged) {
+                converged = true;
+                System.out.printf("Autotune converged: batchSize=%d, writers=%d (%.0f rows/s, %.2f ms per 1000 rows)%n",
+                        batchSize, writers, bestRate, averageNanosPerRow * 1000 / 1e6);
+            }
+            return; // Hold the settings; only a latency spike moves them again
+        }
+        step();
+    }
+
+    private void step() {
+        previousBatchSize = batchSize;
+        previousWriters = writers;
+        for (int attempt = 0; attempt < 2; attempt++) {
+            if (tuningWriters) {
+                setWriters(clamp(writers + direction, 1, maxWriters));
+            } else {
+                setBatchSize(clamp(batchSize + direction * batchStep, MIN_BATCH_SIZE, MAX_BATCH_SIZE));
+            }
+            if (batchSize != previousBatchSize || writers != previousWriters) {
+                return;
+            }
+            direction = -direction; // Hit a bound, go the other way
+        }
+    }
+
+    private void setBatchSize(int size) {
+        batchSize = size;
+    }
+
+    private void setWriters(int count) {
+        permits.resize(writers, count);
+        writers = count;
+    }
+
+    private static int clamp(int value, int min, int max) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    /**
+     * A semaphore whose number of permits can shrink while permits are held.
+     */
+    private static final class WriterPermits extends Semaphore {
+        WriterPermits(int permits) {
+            super(permits);
+        }
+
+        void resize(int from, int to) {
+            if (to > from) {
+                release(to - from);
+            } else if (to < from) {
+                reducePermits(from - to);
+            }
+        }
+    }
+}
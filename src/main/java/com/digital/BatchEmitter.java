@@ -0,0 +1,12 @@
+package com.digital;
+
+/**
+ * Receives the batches a {@link Source.Split} produces.
+ */
+public interface BatchEmitter {
+
+    /**
+     * Hands {@code batch} to the next stage, blocking while that stage's queue is full.
+     */
+    void emit(RowBatch batch) throws Exception;
+}
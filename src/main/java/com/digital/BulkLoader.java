@@ -0,0 +1,27 @@
+package com.digital;
+
+import java.sql.SQLException;
+
+/**
+ * Strategy for inserting a {@link RowBatch} into a person table
+ * ({@code name, email, address, age}; the id is left to AUTO_INCREMENT unless the loader is
+ * created to insert ids).
+ *
+ * <p>A loader is bound to one connection and keeps its prepared statements open between
+ * calls, so each worker creates its own through {@link BulkLoaders#create}. Loaders never
+ * commit; transaction boundaries stay with the caller.</p>
+ */
+public interface BulkLoader extends AutoCloseable {
+
+    /**
+     * Inserts rows {@code [from, to)} of {@code batch} and returns the number of rows sent.
+     */
+    int load(RowBatch batch, int from, int to) throws SQLException;
+
+    default int load(RowBatch batch) throws SQLException {
+        return load(batch, 0, batch.size());
+    }
+
+    @Override
+    void close() throws SQLException;
+}
@@ -0,0 +1,73 @@
+package com.digital;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+
+/**
+ * Creates {@link BulkLoader}s by strategy name, so every tool can pick one at runtime with
+ * {@code --loader=batch|multirow|loaddata}. {@code upsert} is picked by delta imports.
+ */
+public final class BulkLoaders {
+    public static final String BATCH = "batch";
+    public static final String MULTI_ROW = "multirow";
+    public static final String LOAD_DATA = "loaddata";
+    public static final String UPSERT = "upsert";
+
+    private BulkLoaders() {
+    }
+
+    public static BulkLoader create(String strategy, Connection connection, String table) throws SQLException {
+        return create(strategy, connection, table, false);
+    }
+
+    /**
+     * @param withIds insert each row's own id rather than leave it to AUTO_INCREMENT; rows
+     *                without one (id 0) still get a generated id. Upserts always bind the id.
+     */
+    public static BulkLoader create(String strategy, Connection connection, String table, boolean withIds)
+            throws SQLException {
+        return switch (strategy) {
+            case BATCH -> new JdbcBatchLoader(connection, table, withIds);
+            case MULTI_ROW -> new MultiRowInsertLoader(connection, table, withIds);
+            case LOAD_DATA -> new LoadDataLoader(connection, table, withIds);
+            case UPSERT -> new UpsertLoader(connection, table);
+            default -> throw new IllegalArgumentException(
+                    "Unknown loader '" + strategy + "', expected " + BATCH + ", " + MULTI_ROW + ", " + LOAD_DATA
+                            + " or " + UPSERT);
+        };
+    }
+
+    /**
+     * Connector/J properties the strategy needs: batch rewriting for all of them, and local
+     * infile only when the LOAD DATA loader is actually selected.
+     */
+    public static String urlParameters(String strategy) {
+        return LOAD_DATA.equals(strategy)
+                ? "rewriteBatchedStatements=true&allowLoadLocalInfile=true"
+                : "rewriteBatchedStatements=true";
+    }
+
+    public static String withUrlParameters(String jdbcUrl, String strategy) {
+        return jdbcUrl + (jdbcUrl.contains("?") ? "&" : "?") + urlParameters(strategy);
+    }
+
+    /**
+     * Column list of an insert, with or without the id.
+     */
+    static String columns(boolean withIds) {
+        return withIds ? "id, name, email, address, age" : "name, email, address, age";
+    }
+
+    /**
+     * Binds {@code id}, or NULL for a row without one (id 0) so AUTO_INCREMENT assigns it.
+     */
+    static void bindId(PreparedStatement statement, int parameter, long id) throws SQLException {
+        if (id > 0) {
+            statement.setLong(parameter, id);
+        } else {
+            statement.setNull(parameter, Types.BIGINT);
+        }
+    }
+}
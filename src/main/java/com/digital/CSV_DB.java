@@ -1,15 +1,9 @@
 package com.digital;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
-import java.sql.Connection;
-import java.sql.DriverManager;
-import java.sql.PreparedStatement;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 
 /**
  * The {@code CSV_DB} class reads data from a CSV file and inserts it into
@@ -19,10 +13,32 @@ import java.util.concurrent.atomic.AtomicInteger;
  * <strong>Key Features:</strong>
  * </p>
  * <ul>
- *     <li>Reads data from "people2.csv"</li>
- *     <li>Uses multithreading to divide workload</li>
- *     <li>Batch processing for efficient insertion</li>
- *     <li>Progress monitoring</li>
+ *     <li>Reads data from "people2.csv" in a single streaming pass ({@code --mode=stream}, default)</li>
+ *     <li>Or maps the file and parses record-aligned regions in parallel ({@code --mode=mapped})</li>
+ *     <li>Feeds fixed-size batches to inserter threads through a bounded {@link Pipeline} queue</li>
+ *     <li>Batch processing for efficient insertion, with a pluggable {@link BulkLoader} ({@code --loader=...})</li>
+ *     <li>Optional online tuning of commit size and active inserters ({@code --autotune})</li>
+ *     <li>Optionally one virtual thread per batch instead of a fixed pool, at most THREAD_COUNT
+ *     inserting at once ({@code --virtual-threads})</li>
+ *     <li>Progress, rows/s, batch latencies and ETA every {@code --report-interval} seconds, also
+ *     over JMX and as a Prometheus text file ({@code --metrics-file=...})</li>
+ *     <li>Progress is journaled after every commit; {@code --resume} continues an interrupted
+ *     import after its last committed batch ({@code --checkpoint=...}, default "csv-import.checkpoint")</li>
+ *     <li>Reads gzip files ({@code --input=advanced.csv.gz}), inflating the members of a
+ *     {@link CsvFileSink} export in parallel</li>
+ *     <li>Or the binary {@link RowFile} format ({@code --input=advanced.rows}), which skips CSV parsing</li>
+ *     <li>Delta mode ({@code --delta}): only rows that are new or changed since the last delta import,
+ *     judged by a {@link RowHashIndex} kept next to the CSV, are upserted by id; rows without a
+ *     valid id are rejected</li>
+ *     <li>Full imports append rows with new AUTO_INCREMENT ids, unless {@code --keep-ids} inserts
+ *     the CSV ids, so that later delta imports upsert the same rows. A resumed import with
+ *     {@code --keep-ids} upserts, so the batches a crash replays update their rows instead of
+ *     being refused as duplicates</li>
+ *     <li>Rows the database refuses are isolated by bisecting their batch and written with their line
+ *     number and error to a {@link DeadLetterFile} ({@code --dead-letters=...}, default
+ *     "csv-import.rejected.csv"); the rest of the batch still commits</li>
+ *     <li>Optionally drops rows whose email (or other column) came up earlier in the file before
+ *     binding them ({@code --dedup=email}), keeping the keys off-heap in a {@link DedupTransform}</li>
  * </ul>
  */
 public class CSV_DB {
@@ -33,143 +49,136 @@ public class CSV_DB {
     private static final String DB_USER = "user";
     private static final String DB_PASSWORD = "user";
 
-    private static final String CSV_FILE = "advanced.csv";
+    private static final String CSV_FILE = "advanced.csv"; // Default input; --input also takes .csv.gz and .rows files
     private static final int THREAD_COUNT = 10; // Number of threads
     private static final int BATCH_SIZE = 1000; // Batch size for insertion
+    private static final int QUEUE_CAPACITY = THREAD_COUNT * 4; // Batches buffered between reader and inserters
+    private static final int MAX_DEAD_LETTERS = 1000; // Refused rows before the input counts as broken, not dirty
+    private static final int DEDUP_KEYS = 10_000_000; // Default distinct keys to size the --dedup table for (128 MB)
 
     public static void main(String[] args) {
         long startTime = System.currentTimeMillis();
-
-        try (BufferedReader reader = new BufferedReader(new FileReader(CSV_FILE))) {
-            // Skip header line
-            String header = reader.readLine();
-            if (header == null || header.isEmpty()) {
-                System.out.println("The CSV file is empty or missing the header row.");
-                return;
+        boolean delta = CliOptions.flag(args, "delta");
+        String mode = CliOptions.option(args, "mode", CsvFileSource.STREAM); // stream | mapped
+        String loader = CliOptions.option(args, "loader", BulkLoaders.BATCH); // batch | multirow | loaddata
+        boolean keepIds = CliOptions.flag(args, "keep-ids") && !delta; // Delta imports always go by id
+        boolean resume = CliOptions.flag(args, "resume") && !delta;
+        if (keepIds && resume) {
+            // Batches committed just before the journal was written come again; with ids they'd be duplicates
+            loader = BulkLoaders.UPSERT;
+        }
+        if (delta) {
+            // Rows are applied in file order, so a changed row appended after its old version wins
+            mode = CsvFileSource.STREAM;
+            loader = BulkLoaders.UPSERT;
+        }
+        String jdbcUrl = BulkLoaders.withUrlParameters(DB_URL, loader);
+        String metricsFile = CliOptions.option(args, "metrics-file", null); // Prometheus text format
+
+        // One pooled connection per inserter; a delta import has a single upserter
+        try (ConnectionPool pool = new ConnectionPool("csv-import", jdbcUrl, DB_USER, DB_PASSWORD, delta ? 1 : THREAD_COUNT);
+             DeadLetterFile deadLetters = new DeadLetterFile(
+                     Paths.get(CliOptions.option(args, "dead-letters", "csv-import.rejected.csv")), resume,
+                     CliOptions.intOption(args, "max-dead-letters", MAX_DEAD_LETTERS))) {
+            JdbcTableSink sink = new JdbcTableSink(pool, "people3", loader).deadLetters(deadLetters);
+            if (keepIds) {
+                sink.withIds(); // So the ids a later delta import upserts by line up
             }
-
-            // Count total rows in the CSV file (excluding the header)
-            long totalRecords = reader.lines().count();
-            System.out.println("Total Records: " + totalRecords);
-
-            AtomicInteger totalRecordsInserted = new AtomicInteger(0);
-            ExecutorService executorService = Executors.newFixedThreadPool(THREAD_COUNT);
-
-            // Re-open reader to process data (reset to beginning)
-            reader.close();
-            BufferedReader dataReader = new BufferedReader(new FileReader(CSV_FILE));
-            dataReader.readLine(); // Skip header again
-
-            // Split data into chunks and process with threads
-            String[] rows = dataReader.lines().toArray(String[]::new);
-            int recordsPerThread = (int) Math.ceil((double) rows.length / THREAD_COUNT);
-
-            for (int i = 0; i < THREAD_COUNT; i++) {
-                int start = i * recordsPerThread;
-                int end = Math.min(start + recordsPerThread, rows.length);
-                String[] chunk = new String[end - start];
-                System.arraycopy(rows, start, chunk, 0, end - start);
-
-                executorService.submit(new DataInserter(chunk, totalRecordsInserted));
+            if (CliOptions.flag(args, "autotune")) {
+                sink.autotune(new BatchAutotuner(BATCH_SIZE, THREAD_COUNT));
+            }
+            Path csvFile = Paths.get(CliOptions.option(args, "input", CSV_FILE));
+            long fileSize = Files.size(csvFile);
+            RowHashIndex index = null;
+            long generation = 0;
+            long startOffset = 0;
+            if (delta) {
+                index = RowHashIndex.load(RowHashIndex.pathFor(csvFile));
+                generation = DeltaWatermark.load(DeltaWatermark.pathFor(csvFile)).generation();
+                startOffset = index.tailStart(csvFile, generation);
+                System.out.println(startOffset > 0
+                        ? "Delta import of the " + (fileSize - startOffset) + " bytes appended since the last import"
+                        : "Delta import comparing every row against " + index.size() + " known hashes");
+            }
+            Source source = FileFormats.source(csvFile, mode, BATCH_SIZE, THREAD_COUNT, startOffset);
+            if (delta && source instanceof CsvFileSource csvSource) {
+                csvSource.requireIds(); // Upserts match rows by id
+            }
+            Pipeline pipeline = new Pipeline(source, sink)
+                    .sourceParallelism(CsvFileSource.MAPPED.equals(mode) ? THREAD_COUNT : 1)
+                    .sinkParallelism(THREAD_COUNT)
+                    .queueCapacity(QUEUE_CAPACITY)
+                    .name("csv-import")
+                    .reportEvery(CliOptions.intOption(args, "report-interval", 10))
+                    .prometheusFile(metricsFile == null ? null : Paths.get(metricsFile))
+                    .virtualThreads(CliOptions.flag(args, "virtual-threads") ? pool.size() : 0);
+
+            ChangedRowFilter filter = null;
+            DedupTransform dedup = null;
+            String dedupColumn = CliOptions.option(args, "dedup", null);
+            if (dedupColumn != null && delta) {
+                // A changed row legitimately repeats its old version's key further down the file
+                System.err.println("--dedup is ignored in delta mode");
+            } else if (dedupColumn != null) {
+                dedup = new DedupTransform(dedupColumn, CliOptions.intOption(args, "dedup-keys", DEDUP_KEYS));
+                String duplicatesFile = CliOptions.option(args, "duplicates-file", null);
+                if (duplicatesFile != null) {
+                    dedup.duplicatesFile(Paths.get(duplicatesFile));
+                }
+                pipeline.transform(dedup, THREAD_COUNT);
+                System.out.println("Dropping rows with a repeated " + dedupColumn + ", "
+                        + dedup.tableBytes() / (1024 * 1024) + " MB off-heap key table");
+            }
+            if (delta) {
+                filter = new ChangedRowFilter(index);
+                // One filter and one upserter keep the file order; the delta is small, and upserts are idempotent,
+                // so a failed delta import is simply run again instead of resumed
+                pipeline.transform(filter, 1).sinkParallelism(1);
+            } else {
+                pipeline.checkpoint(Paths.get(CliOptions.option(args, "checkpoint", "csv-import.checkpoint")),
+                        checkpointJob(csvFile, mode, keepIds), resume);
+            }
+            Pipeline.Result result;
+            try {
+                result = pipeline.run();
+            } finally {
+                if (dedup != null) {
+                    dedup.close();
+                }
+            }
+            if (dedup != null) {
+                System.out.println("Dropped " + dedup.duplicates() + " rows with a repeated " + dedup.column() + "; "
+                        + dedup.distinctKeys() + " distinct keys");
+            }
+            if (filter != null) {
+                // Refused rows stay out of the index, and it only covers the file up to where this import
+                // started, so the next delta import reads them again and retries them
+                long[] refused = deadLetters.ids();
+                RowHashIndex updated = filter.updatedIndex(csvFile, generation,
+                        refused.length == 0 ? fileSize : startOffset, refused);
+                updated.save(RowHashIndex.pathFor(csvFile));
+                System.out.println("Skipped " + filter.unchangedRows() + " unchanged rows; " + updated.size()
+                        + " row hashes saved to " + RowHashIndex.pathFor(csvFile));
             }
 
-            executorService.shutdown();
-            while (!executorService.isTerminated()) {
-                // Wait for all threads to complete
+            if (deadLetters.rows() > 0) {
+                System.out.println(deadLetters.rows() + " rows refused by the database were written to "
+                        + deadLetters.file());
             }
 
             long endTime = System.currentTimeMillis();
             long elapsedTime = (endTime - startTime) / 1000; // Time in seconds
-            System.out.println("Data insertion completed. Total Records Inserted: " + totalRecordsInserted.get());
+            System.out.println("Data insertion completed. Total Records Inserted: " + result.rowsWritten());
             System.out.println("Time taken: " + elapsedTime / 60 + " minutes and " + elapsedTime % 60 + " seconds.");
 
         } catch (Exception e) {
             e.printStackTrace();
         }
-}
-
-static class DataInserter implements Runnable {
-        private final String[] rows;
-        private final AtomicInteger totalRecordsInserted;
-
-        DataInserter(String[] rows, AtomicInteger totalRecordsInserted) {
-            this.rows = rows;
-            this.totalRecordsInserted = totalRecordsInserted;
-        }
-
-        @Override
-        public void run() {
-            // Updated SQL statement (id is auto-incremented in MySQL)
-            String insertSQL = "INSERT INTO people3 (name, email, address, age) VALUES (?, ?, ?, ?)";
-
-            try (Connection connection = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
-                 PreparedStatement preparedStatement = connection.prepareStatement(insertSQL)) {
-
-                connection.setAutoCommit(false); // Disable auto-commit for batch processing
-
-                int batchCount = 0;
-                for (String row : rows) {
-                    String[] values = parseCsvRow(row);
-
-                    // Set the values for name, email, address, and age
-                    preparedStatement.setString(1, values[1]); // name
-                    preparedStatement.setString(2, values[2]); // email
-                    preparedStatement.setString(3, values[3]); // address
-
-                    // Ensure age is parsed as an integer
-                    try {
-                        preparedStatement.setInt(4, Integer.parseInt(values[4])); // age
-                    } catch (NumberFormatException e) {
-                        System.err.println("Invalid age value: " + values[3]);
-                        continue; // Skip this record if the age is invalid
-                    }
-//                    System.out.println(preparedStatement);
-                    preparedStatement.addBatch();
-                    batchCount++;
-
-                    if (batchCount % BATCH_SIZE == 0) {
-                        preparedStatement.executeBatch();
-                        connection.commit();
-                        batchCount = 0;
-                    }
-
-                    // Increment total inserted count
-                    totalRecordsInserted.incrementAndGet();
-                }
-
-                preparedStatement.executeBatch(); // Execute remaining records
-                connection.commit(); // Commit the final batch
-
-                System.out.println("Thread " + Thread.currentThread().getName() + " completed processing its chunk.");
-
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
-        }
-
-        private String[] parseCsvRow(String row) {
-            List<String> fields = new ArrayList<>();
-            StringBuilder field = new StringBuilder();
-            boolean inQuotes = false;
-
-            for (char c : row.toCharArray()) {
-                if (c == '"' && (field.length() == 0 || row.charAt(field.length() - 1) != '\\')) {
-                    // Toggle the inQuotes flag when encountering an unescaped double quote
-                    inQuotes = !inQuotes;
-                } else if (c == ',' && !inQuotes) {
-                    // If we're not inside quotes, treat comma as field separator
-                    fields.add(field.toString().trim());
-                    field = new StringBuilder();  // Reset the field for next value
-                } else {
-                    // Otherwise, append the character to the current field
-                    field.append(c);
-                }
-            }
-
-            // Add the last field
-            fields.add(field.toString().trim());
+    }
 
-            return fields.toArray(new String[0]);
-        }
+    // A checkpoint only applies to the same file, split the same way
+    private static String checkpointJob(Path csvFile, String mode, boolean keepIds) throws IOException {
+        return "csv-import " + csvFile.toAbsolutePath() + " size=" + Files.size(csvFile) + " mode=" + mode
+                + " batch=" + BATCH_SIZE + " threads=" + THREAD_COUNT + (keepIds ? " keep-ids" : "");
     }
-}
\ No newline at end of file
+}
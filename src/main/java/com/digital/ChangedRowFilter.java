@@ -0,0 +1,86 @@
+package com.digital;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Drops rows whose content matches the {@link RowHashIndex} of the previous delta import, so
+ * only new and changed rows reach the sink, and collects the hash of every row it sees for
+ * the next index.
+ *
+ * <p>Collected hashes are kept in arrival order, so run it with a parallelism of one when an
+ * id may appear more than once (a delta export appends a changed row after its old version)
+ * and the last occurrence must win.</p>
+ */
+public class ChangedRowFilter implements Transform {
+    private final RowHashIndex index;
+    private final LongAdder unchangedRows = new LongAdder();
+    private long[] seenIds = new long[1 << 16];
+    private long[] seenHashes = new long[1 << 16];
+    private int seenCount;
+
+    public ChangedRowFilter(RowHashIndex index) {
+        this.index = index;
+    }
+
+    @Override
+    public RowBatch apply(RowBatch batch) {
+        long[] hashes = new long[batch.size()];
+        RowBatch changed = new RowBatch(batch.size());
+        for (int row = 0; row < batch.size(); row++) {
+            hashes[row] = RowHashIndex.hash(batch, row);
+            if (index.unchanged(batch.id(row), hashes[row])) {
+                unchangedRows.increment();
+            } else {
+                changed.add(batch, row);
+            }
+        }
+        record(batch, hashes);
+        return changed;
+    }
+
+    public long unchangedRows() {
+        return unchangedRows.sum();
+    }
+
+    /**
+     * The previous index with every row seen in this run merged in, covering {@code csvFile} in
+     * its {@code generation} up to {@code coveredBytes}. Only call it after the sink has
+     * committed every row.
+     *
+     * @param refusedIds rows the sink did not commit, such as its dead letters; they keep
+     *                   their previous hash, if any, so the next import sends them again
+     */
+    public synchronized RowHashIndex updatedIndex(Path csvFile, long generation, long coveredBytes, long[] refusedIds)
+            throws IOException {
+        if (refusedIds.length == 0) {
+            return index.merge(seenIds, seenHashes, seenCount, csvFile, generation, coveredBytes);
+        }
+        long[] refused = refusedIds.clone();
+        Arrays.sort(refused);
+        long[] committedIds = new long[seenCount];
+        long[] committedHashes = new long[seenCount];
+        int committed = 0;
+        for (int i = 0; i < seenCount; i++) {
+            if (Arrays.binarySearch(refused, seenIds[i]) < 0) {
+                committedIds[committed] = seenIds[i];
+                committedHashes[committed++] = seenHashes[i];
+            }
+        }
+        return index.merge(committedIds, committedHashes, committed, csvFile, generation, coveredBytes);
+    }
+
+    private synchronized void record(RowBatch batch, long[] hashes) {
+        if (seenCount + batch.size() > seenIds.length) {
+            int capacity = Math.max(seenIds.length * 2, seenCount + batch.size());
+            seenIds = Arrays.copyOf(seenIds, capacity);
+            seenHashes = Arrays.copyOf(seenHashes, capacity);
+        }
+        for (int row = 0; row < batch.size(); row++) {
+            seenIds[seenCount] = batch.id(row);
+            seenHashes[seenCount++] = hashes[row];
+        }
+    }
+}
@@ -0,0 +1,304 @@
+package com.digital;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * A small local file recording how far each split of a {@link Pipeline} run has been
+ * committed, so an interrupted run can be resumed instead of restarted.
+ *
+ * <p>For every split the journal keeps the source's resume position after the last committed
+ * batch (a byte offset, a record count, a row index or an id, depending on the source) and,
+ * for file sinks, the length of the split's part file at that point. Batches of a split may
+ * be committed out of order by different sink workers, so positions only advance over the
+ * contiguous prefix of committed batches; batches committed ahead of that prefix are recorded
+ * by position and {@linkplain #skip skipped} when the resumed source reads them again. A split
+ * is finished once the source has read all of it and every one of its batches has been
+ * committed.</p>
+ *
+ * <p>The file is rewritten after commits through a temporary file, an fsync and an atomic
+ * move, so it is either the old or the new version after a crash. Concurrent commits are
+ * grouped into one write. A crash between a sink's commit and the journal write replays the
+ * batches committed in that instant, so the resume point is exact up to that window.</p>
+ */
+public class CheckpointJournal {
+    /**
+     * Resume position of a split that has not committed anything yet.
+     */
+    public static final long START = -1;
+
+    private static final String HEADER = "# ThreadedCSVSync checkpoint journal; delete to start over";
+
+    private final Path file;
+    private final String job;
+    private SplitState[] splits = new SplitState[0];
+    private boolean dirty;
+    private boolean writing;
+    private boolean resumed;
+
+    /**
+     * @param job describes the run (input, table, split settings); a journal written for a
+     *            different job is never resumed
+     */
+    public CheckpointJournal(Path file, String job) {
+        this.file = file;
+        this.job = job.replace('\n', ' ');
+    }
+
+    public Path file() {
+        return file;
+    }
+
+    /**
+     * Whether {@link #open} loaded a previous run's journal.
+     */
+    public synchronized boolean resumed() {
+        return resumed;
+    }
+
+    /**
+     * Starts a run over {@code splitCount} splits. With {@code resume} the previous journal is
+     * loaded if there is one; otherwise any old journal is discarded.
+     *
+     * @return whether a previous run is being resumed
+     * @throws IllegalStateException if the journal belongs to a different job or split plan
+     */
+    public synchronized boolean open(int splitCount, boolean resume) throws IOException {
+        splits = new SplitState[splitCount];
+        for (int i = 0; i < splitCount; i++) {
+            splits[i] = new SplitState();
+        }
+        if (!resume || !Files.exists(file)) {
+            if (resume) {
+                System.out.println("No checkpoint at " + file + ", starting from the beginning");
+            }
+            store(render());
+            return false;
+        }
+
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        String journalJob = null;
+        int journalSplits = -1;
+        for (String line : lines) {
+            if (line.startsWith("job=")) {
+                journalJob = line.substring("job=".length());
+            } else if (line.startsWith("splits=")) {
+                journalSplits = Integer.parseInt(line.substring("splits=".length()));
+            } else if (line.startsWith("split.")) {
+                // split.<index>=<source position>,<sink position>,<finished>[,<ahead>;<ahead>...]
+                int equals = line.indexOf('=');
+                int index = Integer.parseInt(line.substring("split.".length(), equals));
+                String[] values = line.substring(equals + 1).split(",");
+                if (index >= splitCount) {
+                    throw new IllegalStateException("Checkpoint " + file + " has split " + index + " but the run has " + splitCount);
+                }
+                SplitState split = splits[index];
+                split.position = Long.parseLong(values[0]);
+                split.sinkPosition = Long.parseLong(values[1]);
+                split.finished = "1".equals(values[2]);
+                if (values.length > 3 && !values[3].isEmpty()) {
+                    for (String ahead : values[3].split(";")) {
+                        split.ahead.add(Long.parseLong(ahead));
+                    }
+                }
+            }
+        }
+        if (!job.equals(journalJob) || journalSplits != splitCount) {
+            throw new IllegalStateException("Checkpoint " + file + " was written for \"" + journalJob + "\" with "
+                    + journalSplits + " splits, not \"" + job + "\" with " + splitCount + "; delete it to start over");
+        }
+
+        int finished = 0;
+        int started = 0;
+        for (SplitState split : splits) {
+            if (split.finished) {
+                finished++;
+            } else if (split.position != START) {
+                started++;
+            }
+        }
+        System.out.println("Resuming from " + file + ": " + finished + " of " + splitCount + " splits finished, "
+                + started + " partly done");
+        resumed = true;
+        return true;
+    }
+
+    public synchronized boolean isFinished(int split) {
+        return splits[split].finished;
+    }
+
+    /**
+     * Source position to resume {@code split} from, or {@link #START}.
+     */
+    public synchronized long position(int split) {
+        return splits[split].position;
+    }
+
+    /**
+     * Sink position (for example a part file length) recorded with {@link #position(int)}.
+     */
+    public synchronized long sinkPosition(int split) {
+        return splits[split].sinkPosition;
+    }
+
+    /**
+     * Whether the previous run already committed {@code batch}, a batch it committed ahead of
+     * its split's contiguous prefix. The caller records it with {@link #committed} instead of
+     * writing it again. Only unordered sinks commit ahead, so the sink position is always 0.
+     */
+    public synchronized boolean skip(int split, RowBatch batch) {
+        return splits[split].ahead.remove(batch.position());
+    }
+
+    /**
+     * Records that the sink has durably committed {@code batch}; {@code sinkPosition} is the
+     * sink's own position after it, or 0 if the sink has none.
+     */
+    public void committed(int split, RowBatch batch, long sinkPosition) throws IOException {
+        synchronized (this) {
+            SplitState state = splits[split];
+            state.pending.put(batch.sequence(), new long[]{batch.position(), sinkPosition});
+            // Advance over the batches that are now contiguous
+            while (!state.pending.isEmpty() && state.pending.firstKey() == state.committedBatches) {
+                long[] positions = state.pending.remove(state.pending.firstKey());
+                state.position = positions[0];
+                state.sinkPosition = positions[1];
+                state.committedBatches++;
+            }
+            dirty = true;
+            checkFinished(state);
+        }
+        persist();
+    }
+
+    /**
+     * Records that the source has emitted all {@code batchCount} batches of {@code split}.
+     */
+    public void sourceFinished(int split, int batchCount) throws IOException {
+        synchronized (this) {
+            SplitState state = splits[split];
+            state.batchCount = batchCount;
+            checkFinished(state);
+        }
+        persist();
+    }
+
+    /**
+     * Writes any commits not yet on disk, for example when a worker was interrupted while
+     * writing the journal. Called once all workers have stopped.
+     */
+    public void flush() throws IOException {
+        synchronized (this) {
+            writing = false;
+        }
+        persist();
+    }
+
+    /**
+     * Removes the journal after a run that completed.
+     */
+    public synchronized void delete() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    private void checkFinished(SplitState state) {
+        if (state.batchCount >= 0 && state.committedBatches == state.batchCount && !state.finished) {
+            state.finished = true;
+            dirty = true;
+        }
+    }
+
+    /**
+     * Writes the journal if it changed. Commits that arrive while a write is in progress are
+     * picked up by that writer's next round instead of waiting for a write each.
+     */
+    private void persist() throws IOException {
+        synchronized (this) {
+            if (writing || !dirty) {
+                return;
+            }
+            writing = true;
+        }
+        try {
+            while (true) {
+                String text;
+                synchronized (this) {
+                    if (!dirty) {
+                        writing = false;
+                        return;
+                    }
+                    text = render();
+                }
+                store(text); // Outside the lock, so commits keep being recorded meanwhile
+            }
+        } catch (IOException | RuntimeException e) {
+            synchronized (this) {
+                writing = false;
+                dirty = true; // What was rendered never reached the disk
+            }
+            throw e;
+        }
+    }
+
+    private String render() {
+        StringBuilder text = new StringBuilder();
+        text.append(HEADER).append('\n');
+        text.append("job=").append(job).append('\n');
+        text.append("splits=").append(splits.length).append('\n');
+        for (int i = 0; i < splits.length; i++) {
+            SplitState split = splits[i];
+            if (split.position != START || split.finished) {
+                text.append("split.").append(i).append('=').append(split.position).append(',')
+                        .append(split.sinkPosition).append(',').append(split.finished ? 1 : 0);
+                if (!split.finished && (!split.pending.isEmpty() || !split.ahead.isEmpty())) {
+                    // Committed past the prefix, in this run or a previous one still to be skipped
+                    char separator = ',';
+                    for (long[] positions : split.pending.values()) {
+                        text.append(separator).append(positions[0]);
+                        separator = ';';
+                    }
+                    for (long position : split.ahead) {
+                        text.append(separator).append(position);
+                        separator = ';';
+                    }
+                }
+                text.append('\n');
+            }
+        }
+        dirty = false;
+        return text.toString();
+    }
+
+    private void store(String text) throws IOException {
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true); // The rename must not become visible before the data
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static final class SplitState {
+        long position = START;
+        long sinkPosition;
+        boolean finished;
+        int committedBatches;
+        int batchCount = -1; // Unknown until the source has read the whole split
+        final TreeMap<Integer, long[]> pending = new TreeMap<>(); // Committed out of order, by sequence
+        final Set<Long> ahead = new HashSet<>(); // Positions a previous run committed out of order
+    }
+}
@@ -0,0 +1,36 @@
+package com.digital;
+
+/**
+ * Minimal command-line parsing shared by the tools: options are given as {@code --name=value}
+ * and flags as {@code --name}.
+ */
+public final class CliOptions {
+
+    private CliOptions() {
+    }
+
+    public static String option(String[] args, String name, String defaultValue) {
+        String prefix = "--" + name + "=";
+        for (String arg : args) {
+            if (arg.startsWith(prefix)) {
+                return arg.substring(prefix.length());
+            }
+        }
+        return defaultValue;
+    }
+
+    public static int intOption(String[] args, String name, int defaultValue) {
+        String value = option(args, name, null);
+        return value == null ? defaultValue : Integer.parseInt(value);
+    }
+
+    public static boolean flag(String[] args, String name) {
+        String flag = "--" + name;
+        for (String arg : args) {
+            if (arg.equals(flag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,19 @@
+package com.digital;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Where JDBC sources and sinks get their connections: a {@link ConnectionPool} in the tools,
+ * or a {@code DriverManager} lambda.
+ */
+@FunctionalInterface
+public interface ConnectionFactory {
+    Connection getConnection() throws SQLException;
+
+    /**
+     * Called by the sources and sinks using the factory with the metrics of the run.
+     */
+    default void instrument(SyncMetrics metrics) {
+    }
+}
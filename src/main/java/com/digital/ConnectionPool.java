@@ -0,0 +1,98 @@
+package com.digital;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * The HikariCP pool every tool gets its connections from, one per database URL.
+ *
+ * <p>The pool holds exactly as many connections as the workers that use it, opened up front
+ * and kept open, so a worker or a keyset range that takes a connection gets a warm one instead
+ * of paying for a TCP and authentication handshake per task. The same number caps the batches
+ * in flight in {@linkplain Pipeline#virtualThreads(int) virtual-thread mode}.</p>
+ *
+ * <p>MySQL URLs get Connector/J's client-side statement cache and session-state tracking, so
+ * re-preparing a loader's or a range's statement on a pooled connection doesn't parse it again,
+ * and setting auto-commit or reading server variables doesn't cost a round trip. Statements
+ * stay client-side prepared: server-side ones would cap a rewritten batch at 65535
+ * placeholders. The time workers wait for a connection goes into
+ * {@link SyncMetrics#connectionWait()}.</p>
+ */
+public class ConnectionPool implements ConnectionFactory, AutoCloseable {
+    private static final long MAX_LIFETIME_MILLIS = 1_800_000; // Recycle before the server's wait_timeout
+
+    private final String name;
+    private final int size;
+    private final HikariDataSource dataSource;
+    private volatile SyncMetrics metrics = new SyncMetrics();
+
+    /**
+     * @param workers threads (or virtual-thread permits) that each hold a connection at once
+     */
+    public ConnectionPool(String name, String jdbcUrl, String user, String password, int workers) {
+        this.name = name;
+        this.size = Math.max(1, workers);
+        HikariConfig config = new HikariConfig();
+        config.setPoolName(name);
+        config.setJdbcUrl(jdbcUrl);
+        config.setUsername(user);
+        config.setPassword(password);
+        config.setMaximumPoolSize(size);
+        config.setMinimumIdle(size); // A fixed-size pool: no connection churn between tasks
+        config.setMaxLifetime(MAX_LIFETIME_MILLIS);
+        if (jdbcUrl.startsWith("jdbc:mysql:")) {
+            config.addDataSourceProperty("cachePrepStmts", "true");
+            config.addDataSourceProperty("prepStmtCacheSize", "250");
+            config.addDataSourceProperty("prepStmtCacheSqlLimit", "2048");
+            config.addDataSourceProperty("useLocalSessionState", "true");
+            config.addDataSourceProperty("elideSetAutoCommits", "true");
+            config.addDataSourceProperty("cacheServerConfiguration", "true");
+            config.addDataSourceProperty("cacheResultSetMetadata", "true");
+            config.addDataSourceProperty("maintainTimeStats", "false");
+        }
+        config.setMetricsTrackerFactory((poolName, poolStats) -> new IMetricsTracker() {
+            @Override
+            public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+                metrics.connectionWait().record(elapsedAcquiredNanos);
+            }
+
+            @Override
+            public void recordConnectionTimeout() {
+                metrics.connectionTimeouts().increment();
+            }
+        });
+        this.dataSource = new HikariDataSource(config);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return dataSource.getConnection();
+    }
+
+    /**
+     * Records connection waits in {@code metrics} and reports the pool's occupancy with them.
+     */
+    @Override
+    public void instrument(SyncMetrics metrics) {
+        this.metrics = metrics;
+        HikariPoolMXBean pool = dataSource.getHikariPoolMXBean();
+        metrics.addPool(name, pool::getActiveConnections, pool::getThreadsAwaitingConnection, size);
+    }
+
+    /**
+     * Connections in the pool, which is also how many workers can use it at once.
+     */
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void close() {
+        dataSource.close();
+    }
+}
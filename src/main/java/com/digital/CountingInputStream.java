@@ -0,0 +1,53 @@
+package com.digital;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * An {@link InputStream} wrapper that counts the bytes consumed from the underlying stream.
+ *
+ * <p>Used for progress reporting: the reader thread can compare {@link #getCount()} against
+ * the file size instead of pre-counting the rows in a separate pass.</p>
+ */
+public class CountingInputStream extends FilterInputStream {
+    private volatile long count;
+
+    public CountingInputStream(InputStream in) {
+        super(in);
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b != -1) {
+            count++;
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int n = super.read(b, off, len);
+        if (n > 0) {
+            count += n;
+        }
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = super.skip(n);
+        count += skipped;
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false; // Keeps the count monotonic
+    }
+}
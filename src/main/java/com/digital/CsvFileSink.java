@@ -0,0 +1,211 @@
+package com.digital;
+
+import com.opencsv.CSVWriter;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes person rows to a CSV file with a header row.
+ *
+ * <p>Every source split gets its own buffered part file, written by exactly one sink worker
+ * without any lock. {@link #finish()} stitches the header and the parts together in split
+ * order with {@link PartFiles#concatenate}, so the output is identical from run to run.</p>
+ *
+ * <p>When the run is checkpointed, each batch is flushed and synced to its part file before it
+ * is reported to the {@link CheckpointJournal} together with the part's length. A resumed run
+ * keeps the parts directory, truncates each unfinished part to its recorded length, which
+ * drops rows written after the last checkpoint, and appends from there.</p>
+ *
+ * <p>With {@link #append()} the parts are added to the end of an existing file instead of
+ * replacing it, as delta exports do.</p>
+ *
+ * <p>A target ending in {@code .gz} is written as {@link GzipMembers}: the header and every
+ * batch become a member of their own, compressed by the sink worker that wrote the batch, so
+ * compression runs on all sink workers at once. Members end at row boundaries, which lets
+ * {@link CsvFileSource} inflate and parse them in parallel again.</p>
+ */
+public class CsvFileSink implements Sink {
+    static final String[] HEADER = {"id", "name", "email", "address", "age"};
+    private static final int WRITE_BUFFER_SIZE = 1 << 16; // 64 KB buffer per part file
+
+    private final Path target;
+    private final boolean gzip;
+    private Path partsDirectory;
+    private int splitCount;
+    private SyncMetrics metrics = new SyncMetrics();
+    private CheckpointJournal journal;
+    private boolean append;
+
+    public CsvFileSink(Path target) {
+        this.target = target;
+        this.gzip = GzipMembers.isGzip(target);
+    }
+
+    /**
+     * Appends the rows to {@code target} if it already exists, without another header row.
+     */
+    public CsvFileSink append() {
+        this.append = true;
+        return this;
+    }
+
+    @Override
+    public void prepare(int splitCount) throws IOException {
+        this.splitCount = splitCount;
+        if (journal != null && journal.resumed()) {
+            this.partsDirectory = Files.createDirectories(PartFiles.partsDirectory(target)); // Keep committed parts
+        } else {
+            this.partsDirectory = PartFiles.createPartsDirectory(target);
+        }
+    }
+
+    @Override
+    public void checkpoint(CheckpointJournal journal) {
+        this.journal = journal;
+    }
+
+    @Override
+    public void instrument(SyncMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public boolean ordered() {
+        return true; // A part file must receive its split's batches in order
+    }
+
+    @Override
+    public Writer newWriter() {
+        return new Writer() {
+            private final Map<Integer, CSVWriter> parts = new HashMap<>();
+            private final Map<Integer, FileOutputStream> files = new HashMap<>();
+            private final Map<Integer, GzipMemberOutputStream> members = new HashMap<>();
+            private final Map<Integer, Long> written = new HashMap<>(); // Bytes of each part counted in the metrics
+
+            @Override
+            public void write(int split, RowBatch batch) throws Exception {
+                long start = System.nanoTime();
+                CSVWriter csvWriter = parts.get(split);
+                if (csvWriter == null) {
+                    FileOutputStream file = openPart(split);
+                    if (gzip) {
+                        GzipMemberOutputStream member = new GzipMemberOutputStream(file);
+                        csvWriter = new CSVWriter(new OutputStreamWriter(member, StandardCharsets.UTF_8));
+                        members.put(split, member);
+                    } else {
+                        csvWriter = new CSVWriter(new BufferedWriter(new OutputStreamWriter(file, StandardCharsets.UTF_8),
+                                WRITE_BUFFER_SIZE));
+                    }
+                    parts.put(split, csvWriter);
+                    files.put(split, file);
+                    written.put(split, file.getChannel().position());
+                }
+                for (int row = 0; row < batch.size(); row++) {
+                    csvWriter.writeNext(new String[]{String.valueOf(batch.id(row)), batch.name(row),
+                            batch.email(row), batch.address(row), String.valueOf(batch.age(row))});
+                }
+                GzipMemberOutputStream member = members.get(split);
+                if (member != null) {
+                    csvWriter.flush();
+                    member.endMember(); // One member per batch, so every member ends at a row boundary
+                }
+                if (journal != null) {
+                    csvWriter.flush();
+                    FileOutputStream file = files.get(split);
+                    file.getChannel().force(false);
+                    journal.committed(split, batch, file.getChannel().size());
+                }
+                // Bytes that left the buffers so far; the rest are counted with a later batch
+                long position = files.get(split).getChannel().position();
+                metrics.fileBytes().add(position - written.put(split, position));
+                // Without a journal a file has no commit; a row counts as committed once it is in its part file's buffer
+                metrics.executeBatch().record(System.nanoTime() - start);
+                metrics.rowsBound().add(batch.size());
+                metrics.rowsCommitted().add(batch.size());
+            }
+
+            private FileOutputStream openPart(int split) throws IOException {
+                Path part = PartFiles.partPath(partsDirectory, split);
+                if (journal == null || journal.position(split) == CheckpointJournal.START) {
+                    return new FileOutputStream(part.toFile());
+                }
+                // Resumed split: drop whatever was written after the last checkpoint, then append
+                FileOutputStream file = new FileOutputStream(part.toFile(), true);
+                file.getChannel().truncate(journal.sinkPosition(split));
+                return file;
+            }
+
+            @Override
+            public void splitFinished(int split) throws IOException {
+                CSVWriter csvWriter = parts.remove(split);
+                files.remove(split);
+                members.remove(split);
+                if (csvWriter != null) {
+                    csvWriter.close();
+                    long size = Files.size(PartFiles.partPath(partsDirectory, split));
+                    metrics.fileBytes().add(size - written.remove(split)); // The final flush
+                }
+            }
+
+            @Override
+            public void close() throws IOException {
+                for (CSVWriter csvWriter : parts.values()) {
+                    csvWriter.close();
+                }
+                parts.clear();
+                files.clear();
+                members.clear();
+                written.clear();
+            }
+        };
+    }
+
+    @Override
+    public void finish() throws IOException {
+        // Stitch the parts together in split order, header first; splits without rows have no part
+        List<Path> parts = new ArrayList<>();
+        for (int split = 0; split < splitCount; split++) {
+            Path part = PartFiles.partPath(partsDirectory, split);
+            if (Files.exists(part)) {
+                parts.add(part);
+            }
+        }
+        if (append && Files.exists(target) && Files.size(target) > 0) {
+            long before = Files.size(target);
+            long bytes = PartFiles.append(target, parts);
+            System.out.println("Appended " + (bytes - before) + " bytes to " + target);
+        } else {
+            long bytes = PartFiles.concatenate(target, headerBytes(), parts);
+            System.out.println("Wrote " + bytes + " bytes to " + target);
+        }
+        PartFiles.deleteDirectory(partsDirectory);
+    }
+
+    private byte[] headerBytes() throws IOException {
+        StringWriter header = new StringWriter();
+        try (CSVWriter csvWriter = new CSVWriter(header)) {
+            csvWriter.writeNext(HEADER);
+        }
+        byte[] bytes = header.toString().getBytes(StandardCharsets.UTF_8);
+        if (!gzip) {
+            return bytes;
+        }
+        ByteArrayOutputStream member = new ByteArrayOutputStream();
+        try (GzipMemberOutputStream out = new GzipMemberOutputStream(member)) {
+            out.write(bytes);
+        }
+        return member.toByteArray();
+    }
+}
@@ -0,0 +1,347 @@
+package com.digital;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Reads person rows ({@code id, name, email, address, age}) from a CSV file with a header row.
+ *
+ * <p>In {@code stream} mode a single split reads the file in one pass. In {@code mapped} mode the file is memory-mapped and cut into record-aligned
+ * regions by {@link MappedCsvSplitter}, one split each, so parsing runs in parallel. Either way
+ * progress is reported by bytes consumed. Rows that don't parse are logged, counted as
+ * rejected and skipped.</p>
+ *
+ * <p>Batches record where to resume after them: the byte offset of the next record in mapped
+ * mode, and the number of records consumed in stream mode, where the reader's read-ahead
+ * hides byte offsets. Resuming a stream therefore re-reads, but does not parse, the records
+ * before that point.</p>
+ *
+ * <p>With {@link #startAt(long)} only the records from a byte offset on are read, for example
+ * the rows a delta export appended since the last import.</p>
+ *
+ * <p>Every row carries the line of the file it starts on, for error reports. Line numbers are
+ * only unknown (0) where counting them would mean reading the file up to the point where
+ * reading starts: after a {@link #startAt(long)} offset in stream mode, and in gzip member runs
+ * other than the first.</p>
+ *
+ * <p>A file ending in {@code .gz} is decompressed on the fly, and offsets and progress refer
+ * to its compressed bytes. If it was written as {@link GzipMembers} (as {@link CsvFileSink}
+ * does), stream mode inflates members ahead on {@code splitCount} threads, or a shared
+ * {@link #executor(ExecutorService)}, while the single split parses, and mapped mode gives each
+ * split a run of whole members instead of a mapped region. Other gzip files are read as one
+ * stream either way.</p>
+ */
+public class CsvFileSource implements Source {
+    public static final String STREAM = "stream";
+    public static final String MAPPED = "mapped";
+
+    private final Path file;
+    private final String mode;
+    private final int batchSize;
+    private final int splitCount;
+    private long startOffset;
+    private boolean requireIds;
+    private ExecutorService executor;
+    private MappedFile mappedFile;
+    private SyncMetrics metrics = new SyncMetrics();
+    private final LongAdder bytesConsumed = new LongAdder();
+    private volatile long bytesTotal;
+
+    /**
+     * @param splitCount number of regions in mapped mode; stream mode always uses one split
+     */
+    public CsvFileSource(Path file, String mode, int batchSize, int splitCount) {
+        this.file = file;
+        this.mode = mode;
+        this.batchSize = batchSize;
+        this.splitCount = splitCount;
+    }
+
+    /**
+     * Reads only the records from {@code offset} on, which must be the start of a record
+     * after the header row; 0 reads the whole file.
+     */
+    public CsvFileSource startAt(long offset) {
+        this.startOffset = offset;
+        return this;
+    }
+
+    /**
+     * Rejects rows without a valid, positive id instead of reading them with id 0, for sinks
+     * that key on the id, such as an upsert.
+     */
+    public CsvFileSource requireIds() {
+        this.requireIds = true;
+        return this;
+    }
+
+    /**
+     * Scans for region boundaries and inflates gzip members ahead on {@code executor} instead of
+     * on a pool of {@code splitCount} threads of its own, so many sources can share a bounded
+     * set of threads. The caller shuts it down.
+     */
+    public CsvFileSource executor(ExecutorService executor) {
+        this.executor = executor;
+        return this;
+    }
+
+    @Override
+    public void instrument(SyncMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public double progress() {
+        long total = bytesTotal;
+        return total == 0 ? Double.NaN : Math.min(1.0, (double) bytesConsumed.sum() / total);
+    }
+
+    @Override
+    public List<? extends Split> splits() throws Exception {
+        if (GzipMembers.isGzip(file)) {
+            return gzipSplits();
+        }
+        if (!MAPPED.equals(mode)) {
+            bytesTotal = Files.size(file) - startOffset;
+            return List.of(this::readStream);
+        }
+
+        mappedFile = new MappedFile(file);
+        long dataStart = MappedCsvSplitter.headerEnd(mappedFile);
+        if (dataStart == 0) {
+            System.out.println("The CSV file is empty or missing the header row.");
+            return List.of();
+        }
+        dataStart = Math.max(dataStart, startOffset);
+
+        bytesTotal = mappedFile.size() - dataStart;
+        ExecutorService splitter = executor != null ? executor : Executors.newFixedThreadPool(splitCount);
+        try {
+            List<Split> splits = new ArrayList<>();
+            for (MappedCsvSplitter.Region region : MappedCsvSplitter.split(mappedFile, dataStart, splitCount, splitter)) {
+                splits.add((resumeFrom, out) -> readRegion(region, resumeFrom, out));
+            }
+            System.out.println("Mapped " + mappedFile.size() + " bytes from " + file + " into " + splits.size() + " regions");
+            return splits;
+        } finally {
+            if (splitter != executor) {
+                splitter.shutdown();
+            }
+        }
+    }
+
+    private List<? extends Split> gzipSplits() throws IOException {
+        bytesTotal = Files.size(file) - startOffset;
+        List<GzipMembers.Member> members = GzipMembers.members(file, startOffset);
+        if (members == null) {
+            if (MAPPED.equals(mode)) {
+                System.out.println(file + " has no member index, reading it as one stream");
+            }
+            return List.of(this::readStream);
+        }
+        if (members.isEmpty()) {
+            System.out.println("No gzip members in " + file + " after byte " + startOffset);
+            return List.of();
+        }
+        if (!MAPPED.equals(mode)) {
+            return List.of((resumeFrom, out) -> readMembers(members, true, resumeFrom, out));
+        }
+        List<Split> splits = new ArrayList<>();
+        for (List<GzipMembers.Member> run : GzipMembers.partition(members, splitCount)) {
+            splits.add((resumeFrom, out) -> readMembers(run, false, resumeFrom, out));
+        }
+        System.out.println("Split " + members.size() + " gzip members of " + file + " into " + splits.size() + " runs");
+        return splits;
+    }
+
+    // Inflates a run of members, ahead on the executor or splitCount threads if inflateAhead, and parses it
+    private void readMembers(List<GzipMembers.Member> members, boolean inflateAhead, long resumeFrom, BatchEmitter out)
+            throws Exception {
+        boolean header = startOffset == 0 && members.get(0).offset() == 0;
+        ExecutorService inflaters = null;
+        if (inflateAhead) {
+            inflaters = executor != null ? executor : Executors.newFixedThreadPool(splitCount);
+            System.out.println("Streaming " + bytesTotal + " bytes from " + file
+                    + (startOffset == 0 ? "" : " starting at byte " + startOffset) + ", " + members.size()
+                    + " gzip members inflated " + (executor != null ? "on the shared executor" : "on " + splitCount + " threads"));
+        }
+        try (GzipMemberInputStream input = new GzipMemberInputStream(file, members, inflaters, splitCount * 2)) {
+            readRecords(input, input::compressedBytesRead, header, resumeFrom, out);
+        } finally {
+            if (inflaters != null && inflaters != executor) {
+                inflaters.shutdownNow();
+            }
+        }
+    }
+
+    private void readStream(long resumeFrom, BatchEmitter out) throws Exception {
+        System.out.println("Streaming " + bytesTotal + " bytes from " + file
+                + (startOffset == 0 ? "" : " starting at byte " + startOffset));
+        FileInputStream fileInput = new FileInputStream(file.toFile());
+        fileInput.getChannel().position(startOffset);
+        try (CountingInputStream counting = new CountingInputStream(fileInput);
+             InputStream input = GzipMembers.isGzip(file) ? new GZIPInputStream(counting, 1 << 16) : counting) {
+            readRecords(input, counting::getCount, startOffset == 0, resumeFrom, out);
+        }
+    }
+
+    /**
+     * Parses every record of {@code in}; {@code consumed} tells how many bytes of the file
+     * that took, for progress.
+     */
+    private void readRecords(InputStream in, LongSupplier consumed, boolean skipHeader, long resumeFrom, BatchEmitter out)
+            throws Exception {
+        try (in) {
+            CsvRecordReader reader = new CsvRecordReader(in);
+            if (skipHeader) {
+                // Skip header line
+                String header = reader.next();
+                if (header == null || header.isEmpty()) {
+                    System.out.println("The CSV file is empty or missing the header row.");
+                    return;
+                }
+            }
+
+            long records = 0;
+            long lines = 1; // Lines consumed, header included; only meaningful when reading from the top
+            String row;
+            if (resumeFrom != CheckpointJournal.START) {
+                while (records < resumeFrom && (row = reader.next()) != null) {
+                    records++;
+                    lines += 1 + CsvRecordReader.lineBreaks(row);
+                }
+                System.out.println("Skipped " + records + " records committed by the previous run");
+            }
+
+            CsvRowParser parser = new CsvRowParser();
+            RowBatch batch = new RowBatch(batchSize);
+            long reportedBytes = 0;
+            while ((row = reader.next()) != null) {
+                records++;
+                if (!parseInto(parser, row, batch, skipHeader ? lines + 1 : 0, requireIds)) {
+                    rejected();
+                }
+                lines += 1 + CsvRecordReader.lineBreaks(row);
+                if (batch.isFull()) {
+                    batch.position(records);
+                    // Counted in read-ahead buffer steps, which is plenty for a progress estimate
+                    long bytes = consumed.getAsLong();
+                    consumed(bytes - reportedBytes);
+                    reportedBytes = bytes;
+                    out.emit(batch);
+                    batch = new RowBatch(batchSize);
+                }
+            }
+            consumed(consumed.getAsLong() - reportedBytes);
+            if (!batch.isEmpty()) {
+                batch.position(records);
+                out.emit(batch);
+            }
+        }
+    }
+
+    private void readRegion(MappedCsvSplitter.Region region, long resumeFrom, BatchEmitter out) throws Exception {
+        long start = resumeFrom == CheckpointJournal.START ? region.start() : resumeFrom;
+        bytesConsumed.add(start - region.start());
+        CsvRecordReader records = new CsvRecordReader(mappedFile, start, region.end());
+        CsvRowParser parser = new CsvRowParser();
+        RowBatch batch = new RowBatch(batchSize);
+        long reportedPosition = start;
+        long line = region.firstLine() + MappedCsvSplitter.lineFeeds(mappedFile, region.start(), start);
+        String row;
+        while ((row = records.next()) != null) {
+            if (!parseInto(parser, row, batch, line, requireIds)) {
+                rejected();
+            }
+            line += 1 + CsvRecordReader.lineBreaks(row);
+            if (batch.isFull()) {
+                consumed(records.position() - reportedPosition);
+                reportedPosition = records.position();
+                batch.position(records.position());
+                out.emit(batch);
+                batch = new RowBatch(batchSize);
+            }
+        }
+        consumed(region.end() - reportedPosition);
+        if (!batch.isEmpty()) {
+            batch.position(region.end());
+            out.emit(batch);
+        }
+    }
+
+    private void consumed(long bytes) {
+        bytesConsumed.add(bytes);
+        metrics.fileBytes().add(bytes);
+    }
+
+    private void rejected() {
+        // Rejected rows never reach a batch, so the pipeline doesn't see them as read
+        metrics.rowsRead().increment();
+        metrics.rowsRejected().increment();
+    }
+
+    /**
+     * Parses one record, which starts on line {@code line} (0 if unknown), into {@code batch};
+     * logs and skips it if it is malformed, or if {@code requireId} and its id is not valid.
+     *
+     * @return whether the row was added
+     */
+    static boolean parseInto(CsvRowParser parser, String row, RowBatch batch, long line, boolean requireId) {
+        // Fields: id, name, email, address, age
+        try {
+            if (parser.parse(row) < 5) {
+                System.err.println("Skipping row with " + parser.fieldCount() + " fields" + onLine(line) + ": " + row);
+                return false;
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println("Skipping malformed row" + onLine(line) + " (" + e.getMessage() + "): " + row);
+            return false;
+        }
+
+        // Ensure age is parsed as an integer
+        int age;
+        try {
+            age = parser.intField(4);
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid age value" + onLine(line) + ": " + parser.field(4));
+            return false; // Skip this record if the age is invalid
+        }
+
+        long id;
+        try {
+            id = parser.longField(0);
+        } catch (NumberFormatException e) {
+            id = 0;
+        }
+        if (id <= 0) {
+            if (requireId) {
+                System.err.println("Invalid id value" + onLine(line) + ": " + parser.field(0));
+                return false;
+            }
+            id = 0; // No id of its own; inserts let AUTO_INCREMENT assign one
+        }
+        batch.add(id, parser.field(1), parser.field(2), parser.field(3), age, line);
+        return true;
+    }
+
+    private static String onLine(long line) {
+        return line > 0 ? " on line " + line : "";
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (mappedFile != null) {
+            mappedFile.close();
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.digital;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads raw CSV records (one logical row each, without the line terminator) from a byte range
+ * of a {@link MappedFile} or from a byte stream.
+ *
+ * <p>Records are split on line feeds that are outside quoted fields, so a quoted value that
+ * contains a newline stays in one record. A carriage return right before such a line feed is
+ * dropped to support CRLF files; carriage returns and line feeds inside quotes are kept
+ * exactly as written. Both inputs go through the same byte scan, so stream and mapped mode
+ * yield the same records from the same file. The reader is not thread-safe; each worker uses
+ * its own instance over its own region.</p>
+ */
+public class CsvRecordReader {
+    private static final int STREAM_BUFFER_SIZE = 1 << 20; // 1 MB read buffer
+
+    private final MappedFile file;
+    private final long end;
+    private final InputStream in;
+    private long position;
+    private byte[] record = new byte[1024];
+
+    private byte[] streamBuffer;
+    private int streamNext;
+    private int streamLimit;
+
+    public CsvRecordReader(MappedFile file, long start, long end) {
+        this.file = file;
+        this.position = start;
+        this.end = end;
+        this.in = null;
+    }
+
+    /**
+     * Reads the records of {@code in} from its current position to its end.
+     */
+    public CsvRecordReader(InputStream in) {
+        this.file = null;
+        this.end = Long.MAX_VALUE;
+        this.in = in;
+        this.streamBuffer = new byte[STREAM_BUFFER_SIZE];
+    }
+
+    /**
+     * Offset of the next unread record: a file offset for a mapped region, the bytes read so
+     * far for a stream.
+     */
+    public long position() {
+        return position;
+    }
+
+    /**
+     * Returns the next record, or {@code null} once the end of the input is reached.
+     */
+    public String next() throws IOException {
+        int length = 0;
+        boolean inQuotes = false;
+        boolean ended = false; // Whether a byte was read at all
+        int b;
+        while ((b = read()) >= 0) {
+            ended = true;
+            if (b == '"') {
+                inQuotes = !inQuotes; // A doubled "" escape toggles twice, so the state stays right
+            } else if (b == '\n' && !inQuotes) {
+                break;
+            }
+            if (length == record.length) {
+                byte[] grown = new byte[record.length * 2];
+                System.arraycopy(record, 0, grown, 0, length);
+                record = grown;
+            }
+            record[length++] = (byte) b;
+        }
+        if (!ended) {
+            return null;
+        }
+
+        if (!inQuotes && length > 0 && record[length - 1] == '\r') {
+            length--;
+        }
+        return new String(record, 0, length, StandardCharsets.UTF_8);
+    }
+
+    // Next byte of the region or stream, or -1 at its end
+    private int read() throws IOException {
+        if (file != null) {
+            return position < end ? file.get(position++) & 0xFF : -1;
+        }
+        if (streamNext == streamLimit) {
+            int read = in.read(streamBuffer, 0, streamBuffer.length);
+            if (read <= 0) {
+                return -1;
+            }
+            streamNext = 0;
+            streamLimit = read;
+        }
+        position++;
+        return streamBuffer[streamNext++] & 0xFF;
+    }
+
+    /**
+     * Line breaks inside a record, i.e. how many lines after its first one it spans.
+     */
+    public static int lineBreaks(String record) {
+        int breaks = 0;
+        for (int i = record.indexOf('\n'); i >= 0; i = record.indexOf('\n', i + 1)) {
+            breaks++;
+        }
+        return breaks;
+    }
+}
@@ -0,0 +1,181 @@
+package com.digital;
+
+import java.util.Arrays;
+
+/**
+ * A reusable, RFC 4180 parser for a single CSV record.
+ *
+ * <p>{@link #parse(CharSequence)} scans the record once and only records where every field
+ * starts and ends in primitive arrays that are reused from row to row. Strings are created
+ * lazily by {@link #field(int)} when a column is actually bound, and {@link #intField(int)}
+ * and {@link #longField(int)} parse numbers straight from the characters without creating a
+ * String at all.</p>
+ *
+ * <p>Quoted fields may contain commas, line breaks and doubled {@code ""} quotes. Unquoted
+ * fields are taken verbatim (no trimming), as RFC 4180 specifies. A quoted field that is not
+ * closed, or a closing quote followed by anything other than a comma, is rejected with an
+ * {@link IllegalArgumentException}.</p>
+ *
+ * <p>Instances are not thread-safe; each worker keeps its own.</p>
+ */
+public class CsvRowParser {
+    private static final int INITIAL_FIELDS = 8;
+
+    private CharSequence row;
+    private int fieldCount;
+    private int[] starts = new int[INITIAL_FIELDS];
+    private int[] ends = new int[INITIAL_FIELDS];
+    private boolean[] escaped = new boolean[INITIAL_FIELDS]; // Field contains "" that must be collapsed
+    private final StringBuilder unescapeBuffer = new StringBuilder();
+
+    /**
+     * Parses {@code row} and returns the number of fields. The row is referenced, not copied,
+     * until the next call.
+     */
+    public int parse(CharSequence row) {
+        this.row = row;
+        this.fieldCount = 0;
+
+        int length = row.length();
+        int position = 0;
+        while (true) {
+            if (position < length && row.charAt(position) == '"') {
+                // Quoted field: runs to the next quote that is not part of a "" pair
+                int start = position + 1;
+                boolean hasEscapes = false;
+                position = start;
+                while (true) {
+                    if (position >= length) {
+                        throw new IllegalArgumentException("Unterminated quoted field starting at column " + start);
+                    }
+                    if (row.charAt(position) == '"') {
+                        if (position + 1 < length && row.charAt(position + 1) == '"') {
+                            hasEscapes = true;
+                            position += 2;
+                            continue;
+                        }
+                        break;
+                    }
+                    position++;
+                }
+                addField(start, position, hasEscapes);
+                position++; // Closing quote
+                if (position < length && row.charAt(position) != ',') {
+                    throw new IllegalArgumentException("Unexpected character after closing quote at column " + position);
+                }
+            } else {
+                int start = position;
+                while (position < length && row.charAt(position) != ',') {
+                    position++;
+                }
+                addField(start, position, false);
+            }
+
+            if (position >= length) {
+                return fieldCount;
+            }
+            position++; // Comma
+        }
+    }
+
+    public int fieldCount() {
+        return fieldCount;
+    }
+
+    /**
+     * Returns field {@code index} of the last parsed row, with quotes removed.
+     */
+    public String field(int index) {
+        checkIndex(index);
+        int start = starts[index];
+        int end = ends[index];
+        if (!escaped[index]) {
+            return row.subSequence(start, end).toString();
+        }
+
+        unescapeBuffer.setLength(0);
+        for (int i = start; i < end; i++) {
+            char c = row.charAt(i);
+            unescapeBuffer.append(c);
+            if (c == '"') {
+                i++; // Skip the second quote of the pair
+            }
+        }
+        return unescapeBuffer.toString();
+    }
+
+    /**
+     * Parses field {@code index} as a decimal int without allocating. Surrounding spaces are
+     * ignored.
+     *
+     * @throws NumberFormatException if the field is not a valid int
+     */
+    public int intField(int index) {
+        return (int) parseField(index, Integer.MIN_VALUE, Integer.MAX_VALUE, "int");
+    }
+
+    /**
+     * Parses field {@code index} as a decimal long without allocating, for ids. Surrounding
+     * spaces are ignored.
+     *
+     * @throws NumberFormatException if the field is not a valid long
+     */
+    public long longField(int index) {
+        return parseField(index, Long.MIN_VALUE, Long.MAX_VALUE, "long");
+    }
+
+    private long parseField(int index, long min, long max, String type) {
+        checkIndex(index);
+        int position = starts[index];
+        int end = ends[index];
+        while (position < end && row.charAt(position) == ' ') {
+            position++;
+        }
+        while (end > position && row.charAt(end - 1) == ' ') {
+            end--;
+        }
+
+        boolean negative = false;
+        if (position < end && (row.charAt(position) == '-' || row.charAt(position) == '+')) {
+            negative = row.charAt(position) == '-';
+            position++;
+        }
+        if (position >= end) {
+            throw new NumberFormatException("Not a valid " + type + ": \"" + field(index) + "\"");
+        }
+
+        // Accumulate negatively so the minimum value fits
+        long limit = negative ? min : -max;
+        long result = 0;
+        for (; position < end; position++) {
+            int digit = row.charAt(position) - '0';
+            if (digit < 0 || digit > 9) {
+                throw new NumberFormatException("Not a valid " + type + ": \"" + field(index) + "\"");
+            }
+            if (result < (limit + digit) / 10) {
+                throw new NumberFormatException("Out of range for " + type + ": \"" + field(index) + "\"");
+            }
+            result = result * 10 - digit;
+        }
+        return negative ? result : -result;
+    }
+
+    private void addField(int start, int end, boolean hasEscapes) {
+        if (fieldCount == starts.length) {
+            int capacity = fieldCount * 2;
+            starts = Arrays.copyOf(starts, capacity);
+            ends = Arrays.copyOf(ends, capacity);
+            escaped = Arrays.copyOf(escaped, capacity);
+        }
+        starts[fieldCount] = start;
+        ends[fieldCount] = end;
+        escaped[fieldCount] = hasEscapes;
+        fieldCount++;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= fieldCount) {
+            throw new IndexOutOfBoundsException("Field " + index + " of a row with " + fieldCount + " fields");
+        }
+    }
+}
@@ -1,50 +1,109 @@
 package com.digital;
 
-import com.opencsv.CSVWriter;
-
-import java.io.FileWriter;
 import java.io.IOException;
-import java.sql.*;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
-
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+
+/**
+ * Exports people2 to a CSV file with parallel keyset-range readers.
+ *
+ * <p>With {@code --delta} a {@link DeltaWatermark} next to the CSV remembers the highest id
+ * exported, and each run only appends rows with higher ids. {@code --updated-column=updated_at}
+ * also appends older rows whose timestamp column moved on since, after their previous version,
+ * so readers of the file (such as a delta import) let the last occurrence of an id win. Each run
+ * starts {@code --delta-id-lag} ids and {@code --delta-lag-seconds} behind the previous one's
+ * watermark, so rows that commit after a snapshot but below it are still exported; rows in that
+ * overlap are appended again.</p>
+ *
+ * <p>{@code --output=advanced.csv.gz} writes a gzip file instead, compressed in parallel by the
+ * writer threads, and {@code --output=advanced.rows} the binary {@link RowFile} format.</p>
+ */
 public class DBDataToCSV {
+    private static final int PARTITION_SIZE = 100_000; // Ids per partition, small enough for work stealing to balance gaps
+    private static final int FETCH_SIZE = 10_000;      // Rows per cursor fetch round-trip
+    private static final int BATCH_SIZE = 5_000;       // Rows handed from readers to writers at a time
+    private static final int DELTA_ID_LAG = 1_000;     // Ids re-read below the watermark, for late commits
+    private static final int DELTA_LAG_SECONDS = 60;   // Seconds of updates re-read below the watermark
+
     public static void main(String[] args) {
         // Total time for Multi-threaded reading and writing: 184204 ms,
         // thus 3.0 min
         Long startTime = System.currentTimeMillis();
 
-        String jdbcUrl = "jdbc:mysql://localhost:3306/db04";
+        // useCursorFetch makes Connector/J honour setFetchSize instead of buffering the whole result set
+        String jdbcUrl = "jdbc:mysql://localhost:3306/db04?useCursorFetch=true";
         String user = "user";
         String password = "user";
-        String csvFilePath = "advanced.csv"; // Output CSV file
+        // Output file; .gz compresses the CSV on every writer thread, .rows writes the binary row format
+        Path csvFilePath = Paths.get(CliOptions.option(args, "output", "advanced.csv"));
 
-        int totalRecords = 10_000_000; // Total records to fetch from DB
         int numThreads = 4; // Use 4 threads for multi-threading
-
-        ExecutorService executorService = Executors.newFixedThreadPool(numThreads);
-        int recordsPerThread = totalRecords / numThreads;
-
-        try (CSVWriter csvWriter = new CSVWriter(new FileWriter(csvFilePath))) {
-            // Write header for the CSV file
-            csvWriter.writeNext(new String[]{"id", "name", "email", "address", "age"});
-
-            for (int i = 0; i < numThreads; i++) {
-                int startIdx = i * recordsPerThread;
-                int endIdx = (i + 1) * recordsPerThread;
-
-                // Submit each task
-                executorService.submit(new ReadAndWriteTask(jdbcUrl, user, password, startIdx, endIdx, csvFilePath));
+        String metricsFile = CliOptions.option(args, "metrics-file", null); // Prometheus text format
+        boolean delta = CliOptions.flag(args, "delta");
+        boolean resume = CliOptions.flag(args, "resume");
+        String updatedColumn = CliOptions.option(args, "updated-column", null); // e.g. updated_at
+
+        // Every id range borrows a warm connection instead of opening its own
+        try (ConnectionPool pool = new ConnectionPool("csv-export", jdbcUrl, user, password, numThreads)) {
+            JdbcTableSource source = new JdbcTableSource(pool, "people2", PARTITION_SIZE, FETCH_SIZE, BATCH_SIZE);
+            boolean append = false;
+            String job = "csv-export people2 to " + csvFilePath.toAbsolutePath() + " partition=" + PARTITION_SIZE
+                    + " batch=" + BATCH_SIZE;
+
+            DeltaWatermark watermark = null;
+            if (delta) {
+                watermark = DeltaWatermark.load(DeltaWatermark.pathFor(csvFilePath));
+                DeltaWatermark.Mark next = resume ? watermark.pending() : null;
+                if (next == null) {
+                    try (Connection connection = pool.getConnection()) {
+                        next = DeltaWatermark.query(connection, "people2", updatedColumn);
+                    }
+                    watermark.begin(next);
+                }
+                DeltaWatermark.Mark last = Files.exists(csvFilePath) ? watermark.committed() : null;
+                if (last == null) {
+                    watermark.rewrite();
+                    System.out.println("No delta watermark for " + csvFilePath + ", exporting every row up to id " + next.maxId());
+                    source.idsBetween(Long.MIN_VALUE, next.maxId());
+                } else {
+                    truncate(csvFilePath, watermark.csvBytes()); // Drop what an interrupted append left behind
+                    DeltaWatermark.Mark from = last.lagging(CliOptions.intOption(args, "delta-id-lag", DELTA_ID_LAG),
+                            CliOptions.intOption(args, "delta-lag-seconds", DELTA_LAG_SECONDS) * 1000L);
+                    System.out.println("Delta export of ids " + (from.maxId() + 1) + " to " + next.maxId()
+                            + (updatedColumn == null ? "" : " and rows with " + updatedColumn + " from " + from.updatedAt()));
+                    source.idsBetween(from.maxId(), next.maxId());
+                    if (updatedColumn != null && from.updatedAt() != null) {
+                        source.changedBetween(updatedColumn, from.updatedAt(), next.updatedAt());
+                    }
+                    append = true;
+                    job += " delta from=" + from.maxId() + "," + from.updatedAt();
+                }
+                job += " upto=" + next.maxId() + "," + next.updatedAt();
+            } else if (Files.exists(DeltaWatermark.pathFor(csvFilePath))) {
+                // A full export replaces what the watermark describes; delta readers must not trust their prefix
+                DeltaWatermark.load(DeltaWatermark.pathFor(csvFilePath)).rewrite();
             }
 
-            // Shut down the executor and wait for all tasks to finish
-            executorService.shutdown();
-            if (!executorService.awaitTermination(1, TimeUnit.HOURS)) {
-                executorService.shutdownNow();
+            // Readers pull id ranges as they free up; each range is written to its own part file, stitched at the end
+            Pipeline.Result result = new Pipeline(source, FileFormats.sink(csvFilePath, append))
+                    .sourceParallelism(numThreads)
+                    .sinkParallelism(numThreads)
+                    .name("csv-export")
+                    .reportEvery(CliOptions.intOption(args, "report-interval", 10))
+                    .prometheusFile(metricsFile == null ? null : Paths.get(metricsFile))
+                    .virtualThreads(CliOptions.flag(args, "virtual-threads") ? pool.size() : 0)
+                    .checkpoint(Paths.get(CliOptions.option(args, "checkpoint", "csv-export.checkpoint")), job, resume)
+                    .run();
+            if (watermark != null) {
+                watermark.commit(Files.size(csvFilePath));
             }
+            System.out.println("Exported " + result.rowsWritten() + " rows to " + csvFilePath);
 
-        } catch (IOException | InterruptedException e) {
+        } catch (Exception e) {
             e.printStackTrace();
         }
 
@@ -52,53 +111,13 @@ public class DBDataToCSV {
         long totalTime = endTime - startTime;
         System.out.println("Total time for Multi-threaded reading and writing: " + totalTime + " ms");
     }
-}
 
-class ReadAndWriteTask implements Runnable {
-    private String jdbcUrl;
-    private String jdbcUser;
-    private String jdbcPassword;
-    private int startIdx;
-    private int endIdx;
-    private String csvFilePath;
-
-    public ReadAndWriteTask(String jdbcUrl, String jdbcUser, String jdbcPassword, int startIdx, int endIdx, String csvFilePath) {
-        this.jdbcUrl = jdbcUrl;
-        this.jdbcUser = jdbcUser;
-        this.jdbcPassword = jdbcPassword;
-        this.startIdx = startIdx;
-        this.endIdx = endIdx;
-        this.csvFilePath = csvFilePath;
-    }
-
-    @Override
-    public void run() {
-        try (Connection connection = DriverManager.getConnection(jdbcUrl, jdbcUser, jdbcPassword);
-             CSVWriter csvWriter = new CSVWriter(new FileWriter(csvFilePath, true))) { // Append mode
-
-            String query = "SELECT id, name, email, address, age FROM people2 LIMIT ?, ?";
-            try (PreparedStatement statement = connection.prepareStatement(query)) {
-                statement.setInt(1, startIdx);
-                statement.setInt(2, endIdx - startIdx); // Adjust the number of records to fetch
-
-                try (ResultSet resultSet = statement.executeQuery()) {
-                    while (resultSet.next()) {
-                        int id = resultSet.getInt("id");
-                        String name = resultSet.getString("name");
-                        String email = resultSet.getString("email");
-                        String address = resultSet.getString("address");
-                        int age = resultSet.getInt("age");
-
-                        String[] record = {String.valueOf(id), name, email, address, String.valueOf(age)};
-                        synchronized (csvWriter) { // Synchronize access to csvWriter
-                            csvWriter.writeNext(record);
-                        }
-                    }
-                }
+    private static void truncate(Path file, long size) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            if (channel.size() > size) {
+                System.out.println("Cutting " + (channel.size() - size) + " bytes of an unfinished export from " + file);
+                channel.truncate(size);
             }
-
-        } catch (SQLException | IOException e) {
-            e.printStackTrace();
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,143 @@
+package com.digital;
+
+import com.opencsv.CSVWriter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientException;
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A CSV file of the rows the database refused, each with the line it came from and the error,
+ * so they can be fixed and loaded again while the rest of the input is committed.
+ *
+ * <p>The file is only created once a row fails, so a clean run leaves none behind; a stale one
+ * from an earlier run is deleted unless the run resumes, which appends. Every row is flushed
+ * before the batch it was dropped from commits. After {@code maxRows} rows the input is taken
+ * to be broken rather than dirty, and the run fails.</p>
+ *
+ * <p>Writers share the file under a {@link ReentrantLock} rather than a monitor: the write and
+ * flush happen while it is held, and a virtual thread blocked on file I/O inside a
+ * {@code synchronized} block would pin its carrier.</p>
+ */
+public class DeadLetterFile implements AutoCloseable {
+    static final String[] HEADER = {"line", "error", "id", "name", "email", "address", "age"};
+
+    private final Path file;
+    private final boolean append;
+    private final long maxRows;
+    private final ReentrantLock lock = new ReentrantLock();
+    private CSVWriter writer;
+    private long rows;
+    private long[] ids = new long[16]; // Ids of the rows written by this run
+
+    /**
+     * @param append keep the rows an interrupted run already wrote
+     */
+    public DeadLetterFile(Path file, boolean append, long maxRows) throws IOException {
+        this.file = file;
+        this.append = append;
+        this.maxRows = maxRows;
+        if (!append) {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * Whether {@code e} is the fault of the rows sent, such as a bad value or a duplicate key,
+     * rather than of the connection, the transaction or the statement itself.
+     */
+    public static boolean isRowError(SQLException e) {
+        if (e instanceof SQLTransientException || e instanceof SQLRecoverableException
+                || e instanceof SQLNonTransientConnectionException) {
+            return false;
+        }
+        String state = e.getSQLState();
+        // 08 connection, 40 transaction rolled back (deadlock), 42 syntax or missing table, HYT timeout
+        return state == null || !(state.startsWith("08") || state.startsWith("40") || state.startsWith("42")
+                || state.startsWith("HYT"));
+    }
+
+    /**
+     * Records {@code row} of {@code batch} as refused with {@code error}.
+     */
+    public void write(RowBatch batch, int row, SQLException error) throws IOException {
+        lock.lock();
+        try {
+            writeLocked(batch, row, error);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void writeLocked(RowBatch batch, int row, SQLException error) throws IOException {
+        if (writer == null) {
+            boolean header = !append || !Files.exists(file) || Files.size(file) == 0;
+            writer = new CSVWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND));
+            if (header) {
+                writer.writeNext(HEADER);
+            }
+        }
+        long line = batch.line(row);
+        String message = String.valueOf(error.getMessage()).replaceAll("\\s*\\R\\s*", " "); // One line per row
+        writer.writeNext(new String[]{line > 0 ? String.valueOf(line) : "", message,
+                String.valueOf(batch.id(row)), batch.name(row), batch.email(row), batch.address(row),
+                String.valueOf(batch.age(row))});
+        writer.flush();
+        if (rows == ids.length) {
+            ids = Arrays.copyOf(ids, ids.length * 2);
+        }
+        ids[(int) rows] = batch.id(row);
+        if (++rows > maxRows) {
+            throw new IOException("More than " + maxRows + " rows refused by the database, see " + file
+                    + "; last error: " + error.getMessage());
+        }
+    }
+
+    public Path file() {
+        return file;
+    }
+
+    public long rows() {
+        lock.lock();
+        try {
+            return rows;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Ids of the rows written by this run, for example to keep them out of a delta import's
+     * {@link RowHashIndex} so the next import retries them.
+     */
+    public long[] ids() {
+        lock.lock();
+        try {
+            return Arrays.copyOf(ids, (int) rows);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (writer != null) {
+                writer.close();
+                writer = null;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.digital;
+
+import com.opencsv.CSVWriter;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Drops rows whose key column, for example the email, already came up earlier in the run, so
+ * each key is bound once. Duplicates are counted and, with {@link #duplicatesFile(Path)},
+ * written to a CSV file instead of being lost.
+ *
+ * <p>Keys are remembered as 64-bit hashes in one {@link OffHeapHashSet}, shared lock-free by
+ * every transform thread, so the stage can run as wide as the parser. With several threads,
+ * or a split-parallel source, which copy of a key counts as the first one is a race. Two
+ * different keys with the same hash would wrongly drop a row; among 10 million keys the odds
+ * are about 3 in a million, while ids are hashed one-to-one and practically never collide.
+ * Keys only go back to the start of the run: a resumed import does not see the keys of the
+ * rows committed before it.</p>
+ *
+ * <p>Transform threads take turns on the duplicates file under a {@link ReentrantLock}, not a
+ * monitor, so a virtual thread waiting on the file's I/O doesn't pin its carrier.</p>
+ */
+public class DedupTransform implements Transform, AutoCloseable {
+    public static final String[] COLUMNS = {"id", "name", "email", "address"};
+
+    private final String column;
+    private final RowKey key;
+    private final OffHeapHashSet seen;
+    private final LongAdder duplicates = new LongAdder();
+    private final ReentrantLock duplicatesLock = new ReentrantLock();
+    private CSVWriter duplicatesWriter;
+
+    /**
+     * @param column one of {@link #COLUMNS}
+     * @param expectedKeys distinct keys to size the hash set for
+     */
+    public DedupTransform(String column, long expectedKeys) {
+        this.column = column;
+        this.key = switch (column) {
+            case "id" -> (batch, row) -> RowHashIndex.hash(batch.id(row));
+            case "name" -> (batch, row) -> RowHashIndex.hash(batch.name(row));
+            case "email" -> (batch, row) -> RowHashIndex.hash(batch.email(row));
+            case "address" -> (batch, row) -> RowHashIndex.hash(batch.address(row));
+            default -> throw new IllegalArgumentException("Unknown dedup column: " + column
+                    + " (expected one of " + String.join(", ", COLUMNS) + ")");
+        };
+        this.seen = new OffHeapHashSet(expectedKeys);
+    }
+
+    /**
+     * Writes every dropped row to {@code file} as CSV, replacing it.
+     */
+    public DedupTransform duplicatesFile(Path file) throws IOException {
+        BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+        this.duplicatesWriter = new CSVWriter(writer);
+        duplicatesWriter.writeNext(CsvFileSink.HEADER);
+        return this;
+    }
+
+    @Override
+    public RowBatch apply(RowBatch batch) throws IOException {
+        RowBatch unique = new RowBatch(batch.size());
+        RowBatch dropped = null;
+        for (int row = 0; row < batch.size(); row++) {
+            if (seen.add(key.hash(batch, row))) {
+                unique.add(batch, row);
+            } else {
+                duplicates.increment();
+                if (duplicatesWriter != null) {
+                    if (dropped == null) {
+                        dropped = new RowBatch(batch.size());
+                    }
+                    dropped.add(batch, row);
+                }
+            }
+        }
+        if (dropped != null) {
+            writeDuplicates(dropped);
+        }
+        return unique;
+    }
+
+    private void writeDuplicates(RowBatch rows) throws IOException {
+        duplicatesLock.lock();
+        try {
+            for (int row = 0; row < rows.size(); row++) {
+                duplicatesWriter.writeNext(new String[]{String.valueOf(rows.id(row)), rows.name(row),
+                        rows.email(row), rows.address(row), String.valueOf(rows.age(row))});
+            }
+            if (duplicatesWriter.checkError()) {
+                throw new IOException("Could not write duplicate rows");
+            }
+        } finally {
+            duplicatesLock.unlock();
+        }
+    }
+
+    // Hash of a row's key column; takes the row as an int so nothing is boxed per row
+    @FunctionalInterface
+    private interface RowKey {
+        long hash(RowBatch batch, int row);
+    }
+
+    public String column() {
+        return column;
+    }
+
+    public long duplicates() {
+        return duplicates.sum();
+    }
+
+    public long distinctKeys() {
+        return seen.size();
+    }
+
+    public long tableBytes() {
+        return seen.bytes();
+    }
+
+    @Override
+    public void close() throws IOException {
+        duplicatesLock.lock();
+        try {
+            if (duplicatesWriter != null) {
+                duplicatesWriter.close();
+                duplicatesWriter = null;
+            }
+        } finally {
+            duplicatesLock.unlock();
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.digital;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.Properties;
+
+/**
+ * How far a delta export has got, kept next to the CSV file (for example
+ * {@code advanced.csv.watermark}).
+ *
+ * <p>The committed mark is the highest id, and optionally the newest {@code updated_at}, that
+ * the CSV contains, together with the CSV's length at that point. A run first records its own
+ * snapshot of the table as the pending mark, exports everything between the two, and then
+ * commits the pending mark. A resumed run reuses the pending mark, so it exports exactly the
+ * rows the interrupted run was exporting; bytes past the committed length, left by an
+ * interrupted append, are cut off first.</p>
+ *
+ * <p>The watermark also counts the times the CSV was written from scratch rather than appended
+ * to, as its {@link #generation()}. A reader that remembers a prefix of the file, such as a
+ * {@link RowHashIndex}, can trust that prefix only within the same generation: a rewrite can
+ * change a row without changing the length or the last bytes of the prefix.</p>
+ */
+public class DeltaWatermark {
+
+    /**
+     * @param updatedAt newest value of the change-tracking column, or {@code null} without one
+     */
+    public record Mark(long maxId, Timestamp updatedAt) {
+
+        /**
+         * This mark moved back by {@code ids} and {@code millis}. Rows can land below a snapshot
+         * after it was taken: ids handed out to transactions that commit later, and changes
+         * committed later with an older timestamp. Reading from a lagging mark sends them late
+         * instead of never, and sends some rows again, which a delta import takes in its stride.
+         */
+        public Mark lagging(long ids, long millis) {
+            return new Mark(maxId - ids, updatedAt == null ? null : new Timestamp(updatedAt.getTime() - millis));
+        }
+    }
+
+    private final Path file;
+    private Mark committed;
+    private long csvBytes;
+    private long generation;
+    private Mark pending;
+
+    private DeltaWatermark(Path file) {
+        this.file = file;
+    }
+
+    public static Path pathFor(Path csvFile) {
+        return csvFile.resolveSibling(csvFile.getFileName() + ".watermark");
+    }
+
+    /**
+     * Loads the watermark at {@code file}, or returns an empty one if there is none yet.
+     */
+    public static DeltaWatermark load(Path file) throws IOException {
+        DeltaWatermark watermark = new DeltaWatermark(file);
+        if (Files.exists(file)) {
+            Properties properties = new Properties();
+            try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                properties.load(reader);
+            }
+            watermark.committed = mark(properties, "");
+            watermark.pending = mark(properties, "pending.");
+            watermark.csvBytes = Long.parseLong(properties.getProperty("csvBytes", "0"));
+            watermark.generation = Long.parseLong(properties.getProperty("generation", "0"));
+        }
+        return watermark;
+    }
+
+    /**
+     * Reads the current high-water mark of {@code table}; {@code column} may be {@code null}.
+     */
+    public static Mark query(Connection connection, String table, String column) throws SQLException {
+        String query = "SELECT MAX(id)" + (column == null ? "" : ", MAX(" + column + ")") + " FROM " + table;
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(query)) {
+            resultSet.next();
+            return new Mark(resultSet.getLong(1), column == null ? null : resultSet.getTimestamp(2));
+        }
+    }
+
+    /**
+     * The mark the CSV is complete up to, or {@code null} before the first export.
+     */
+    public Mark committed() {
+        return committed;
+    }
+
+    /**
+     * Length of the CSV when {@link #committed()} was recorded.
+     */
+    public long csvBytes() {
+        return csvBytes;
+    }
+
+    /**
+     * How many times the CSV was rewritten from scratch; 0 if no export has recorded one.
+     */
+    public long generation() {
+        return generation;
+    }
+
+    /**
+     * The snapshot of a run that did not complete, or {@code null}.
+     */
+    public Mark pending() {
+        return pending;
+    }
+
+    public void begin(Mark next) throws IOException {
+        pending = next;
+        save();
+    }
+
+    /**
+     * Records, before the CSV is written from scratch, that its committed mark no longer
+     * applies, and starts a new generation.
+     */
+    public void rewrite() throws IOException {
+        committed = null;
+        csvBytes = 0;
+        generation++;
+        save();
+    }
+
+    public void commit(long csvBytes) throws IOException {
+        committed = pending;
+        this.csvBytes = csvBytes;
+        pending = null;
+        save();
+    }
+
+    private void save() throws IOException {
+        Properties properties = new Properties();
+        put(properties, "", committed);
+        put(properties, "pending.", pending);
+        properties.setProperty("csvBytes", String.valueOf(csvBytes));
+        properties.setProperty("generation", String.valueOf(generation));
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+            properties.store(writer, "ThreadedCSVSync delta export watermark");
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static Mark mark(Properties properties, String prefix) {
+        String maxId = properties.getProperty(prefix + "maxId");
+        if (maxId == null) {
+            return null;
+        }
+        String updatedAt = properties.getProperty(prefix + "updatedAt");
+        return new Mark(Long.parseLong(maxId), updatedAt == null ? null : Timestamp.valueOf(updatedAt));
+    }
+
+    private static void put(Properties properties, String prefix, Mark mark) {
+        if (mark == null) {
+            return;
+        }
+        properties.setProperty(prefix + "maxId", String.valueOf(mark.maxId()));
+        if (mark.updatedAt() != null) {
+            properties.setProperty(prefix + "updatedAt", mark.updatedAt().toString());
+        }
+    }
+}
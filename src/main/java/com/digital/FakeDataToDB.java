@@ -1,11 +1,6 @@
 package com.digital;
 
-import com.github.javafaker.Faker;
-
-import java.sql.*;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
+import java.nio.file.Paths;
 
 public class FakeDataToDB {
     public static void main(String[] args) {
@@ -18,25 +13,35 @@ public class FakeDataToDB {
         String password = "";
         int totalRecords = 10_000_000; // Total records to insert
         int numThreads = 4; // Use 4 threads for multi-threading
-
-        ExecutorService executorService = Executors.newFixedThreadPool(numThreads);
-        int recordsPerThread = totalRecords / numThreads;
-
-        for (int i = 0; i < numThreads; i++) {
-            int startIdx = i * recordsPerThread;
-            int endIdx = (i + 1) * recordsPerThread;
-
-            // Submit each task for insertion
-            executorService.submit(new InsertDataTask(jdbcUrl, user, password, startIdx, endIdx));
-        }
-
-        // Shut down the executor and wait for all tasks to finish
-        executorService.shutdown();
-        try {
-            if (!executorService.awaitTermination(1, TimeUnit.HOURS)) {
-                executorService.shutdownNow();
+        String loaderStrategy = CliOptions.option(args, "loader", BulkLoaders.BATCH); // batch | multirow | loaddata
+        String url = BulkLoaders.withUrlParameters(jdbcUrl, loaderStrategy);
+        String metricsFile = CliOptions.option(args, "metrics-file", null); // Prometheus text format
+        long seed = Long.parseLong(CliOptions.option(args, "seed", String.valueOf(SyntheticPersonGenerator.DEFAULT_SEED)));
+        SyntheticPersonGenerator generator = new SyntheticPersonGenerator(seed); // Faker is sampled once, up front
+
+        try (ConnectionPool pool = new ConnectionPool("fake-data", url, user, password, numThreads)) {
+            JdbcTableSink sink = new JdbcTableSink(pool, "people4", loaderStrategy);
+            if (CliOptions.flag(args, "autotune")) {
+                sink.autotune(new BatchAutotuner(1000, numThreads));
             }
-        } catch (InterruptedException e) {
+
+            // Generation is far cheaper than inserting, so one generator thread keeps the inserters busy
+            Pipeline.Result result = new Pipeline(
+                    new SyntheticSource(generator, seed, totalRecords, totalRecords / numThreads, 1000),
+                    sink)
+                    .sourceParallelism(1)
+                    .sinkParallelism(numThreads)
+                    .name("fake-data")
+                    .reportEvery(CliOptions.intOption(args, "report-interval", 10))
+                    .prometheusFile(metricsFile == null ? null : Paths.get(metricsFile))
+                    .virtualThreads(CliOptions.flag(args, "virtual-threads") ? pool.size() : 0)
+                    .checkpoint(Paths.get(CliOptions.option(args, "checkpoint", "fake-data.checkpoint")),
+                            "fake-data people4 seed=" + seed + " total=" + totalRecords,
+                            CliOptions.flag(args, "resume"))
+                    .run();
+            System.out.println("Inserted " + result.rowsWritten() + " records");
+
+        } catch (Exception e) {
             e.printStackTrace();
         }
 
@@ -45,58 +50,3 @@ public class FakeDataToDB {
         System.out.println("Total time for Multi-threaded data insertion: " + totalTime + " ms");
     }
 }
-
-class InsertDataTask implements Runnable {
-    private String jdbcUrl;
-    private String jdbcUser;
-    private String jdbcPassword;
-    private int startIdx;
-    private int endIdx;
-
-    public InsertDataTask(String jdbcUrl, String jdbcUser, String jdbcPassword, int startIdx, int endIdx) {
-        this.jdbcUrl = jdbcUrl;
-        this.jdbcUser = jdbcUser;
-        this.jdbcPassword = jdbcPassword;
-        this.startIdx = startIdx;
-        this.endIdx = endIdx;
-    }
-
-    @Override
-    public void run() {
-        try (Connection connection = DriverManager.getConnection(jdbcUrl, jdbcUser, jdbcPassword)) {
-            connection.setAutoCommit(false); // Disable auto-commit for performance improvement
-            Faker faker = new Faker();
-            String insertSQL = "INSERT INTO people4 (name, email, address, age) VALUES (?, ?, ?, ?)";
-
-            try (PreparedStatement statement = connection.prepareStatement(insertSQL)) {
-                int batchCount = 0;
-
-                for (int i = startIdx; i < endIdx; i++) {
-                    String name = faker.name().fullName();
-                    String email = faker.internet().emailAddress();
-                    String address = faker.address().fullAddress();
-                    int age = faker.number().numberBetween(18, 100);
-
-                    statement.setString(1, name);
-                    statement.setString(2, email);
-                    statement.setString(3, address);
-                    statement.setInt(4, age);
-
-                    statement.addBatch(); // Add to batch
-
-                    // Execute batch every 1000 records
-                    if (++batchCount % 1000 == 0 || i == endIdx - 1) {
-                        statement.executeBatch(); // Execute batch for every 1000 records or final batch
-                    }
-                }
-
-                connection.commit(); // Commit after all records are inserted in the batch
-            } catch (SQLException e) {
-                connection.rollback(); // Rollback in case of an error
-                e.printStackTrace();
-            }
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
-    }
-}
\ No newline at end of file
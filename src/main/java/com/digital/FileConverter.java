@@ -0,0 +1,37 @@
+package com.digital;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Converts a person file between CSV, gzipped CSV and the binary {@link RowFile} format,
+ * picked by file name, for example {@code advanced.csv} to {@code advanced.rows} and back.
+ *
+ * <p>Usage: {@code FileConverter --from=advanced.csv --to=advanced.rows [--report-interval=seconds]}</p>
+ */
+public class FileConverter {
+    private static final int THREAD_COUNT = 4;
+    private static final int BATCH_SIZE = 5_000; // Also the rows per block when writing a row file
+
+    public static void main(String[] args) {
+        long startTime = System.currentTimeMillis();
+        Path from = Paths.get(CliOptions.option(args, "from", "advanced.csv"));
+        Path to = Paths.get(CliOptions.option(args, "to", "advanced.rows"));
+
+        try {
+            // Split-parallel on both sides: mapped regions, gzip members or row blocks in, part files out
+            Pipeline.Result result = new Pipeline(
+                    FileFormats.source(from, CsvFileSource.MAPPED, BATCH_SIZE, THREAD_COUNT, 0),
+                    FileFormats.sink(to, false))
+                    .sourceParallelism(THREAD_COUNT)
+                    .sinkParallelism(THREAD_COUNT)
+                    .name("convert")
+                    .reportEvery(CliOptions.intOption(args, "report-interval", 10))
+                    .run();
+            System.out.println("Converted " + result.rowsWritten() + " rows from " + from + " to " + to
+                    + " in " + (System.currentTimeMillis() - startTime) + " ms");
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+}
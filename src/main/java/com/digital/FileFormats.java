@@ -0,0 +1,36 @@
+package com.digital;
+
+import java.nio.file.Path;
+
+/**
+ * Picks the file source or sink for a path by its name: {@code .rows} is a {@link RowFile},
+ * anything else CSV ({@code .csv.gz} compressed), so every file tool can read and write
+ * either format.
+ */
+public final class FileFormats {
+
+    private FileFormats() {
+    }
+
+    /**
+     * @param startOffset byte offset of the first record or block to read; 0 reads the whole file
+     */
+    public static Source source(Path file, String mode, int batchSize, int splitCount, long startOffset) {
+        if (RowFile.isRowFile(file)) {
+            return new RowFileSource(file, mode, batchSize, splitCount).startAt(startOffset);
+        }
+        return new CsvFileSource(file, mode, batchSize, splitCount).startAt(startOffset);
+    }
+
+    /**
+     * @param append add to the end of an existing file instead of replacing it
+     */
+    public static Sink sink(Path file, boolean append) {
+        if (RowFile.isRowFile(file)) {
+            RowFileSink sink = new RowFileSink(file);
+            return append ? sink.append() : sink;
+        }
+        CsvFileSink sink = new CsvFileSink(file);
+        return append ? sink.append() : sink;
+    }
+}
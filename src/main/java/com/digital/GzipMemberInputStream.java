@@ -0,0 +1,120 @@
+package com.digital;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Reads the decompressed bytes of a run of {@link GzipMembers} members, in order.
+ *
+ * <p>With an executor, up to {@code readAhead} members are read and inflated on its threads
+ * while the caller consumes earlier ones, so decompression runs in parallel and overlaps with
+ * parsing. Without one, each member is inflated on the reading thread when it is reached.</p>
+ */
+public class GzipMemberInputStream extends InputStream {
+    private final FileChannel channel;
+    private final List<GzipMembers.Member> members;
+    private final ExecutorService inflaters;
+    private final int readAhead;
+    private final ArrayDeque<Future<byte[]>> inflating = new ArrayDeque<>();
+    private int nextMember;      // Next member to read or submit
+    private byte[] current = new byte[0];
+    private int position;
+    private volatile long compressedBytesRead;
+
+    /**
+     * @param inflaters threads to inflate members ahead on, or {@code null} to inflate inline
+     */
+    public GzipMemberInputStream(Path file, List<GzipMembers.Member> members, ExecutorService inflaters, int readAhead)
+            throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        this.members = members;
+        this.inflaters = inflaters;
+        this.readAhead = Math.max(1, readAhead);
+    }
+
+    /**
+     * Compressed length of the members handed out so far, for progress.
+     */
+    public long compressedBytesRead() {
+        return compressedBytesRead;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!fill()) {
+            return -1;
+        }
+        return current[position++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        if (!fill()) {
+            return -1;
+        }
+        int count = Math.min(length, current.length - position);
+        System.arraycopy(current, position, bytes, offset, count);
+        position += count;
+        return count;
+    }
+
+    // Moves to the next non-empty member once the current one is used up; false at the end
+    private boolean fill() throws IOException {
+        while (position == current.length) {
+            if (inflaters == null) {
+                if (nextMember == members.size()) {
+                    return false;
+                }
+                current = GzipMembers.inflate(channel, members.get(nextMember));
+                compressedBytesRead += members.get(nextMember++).length();
+            } else {
+                while (inflating.size() < readAhead && nextMember < members.size()) {
+                    GzipMembers.Member member = members.get(nextMember++);
+                    inflating.add(inflaters.submit(() -> GzipMembers.inflate(channel, member)));
+                }
+                if (inflating.isEmpty()) {
+                    return false;
+                }
+                current = take(inflating.poll());
+                compressedBytesRead += members.get(nextMember - inflating.size() - 1).length();
+            }
+            position = 0;
+        }
+        return true;
+    }
+
+    private static byte[] take(Future<byte[]> member) throws IOException {
+        try {
+            return member.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while inflating");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException cause) {
+                throw cause;
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (Future<byte[]> member : inflating) {
+            member.cancel(false);
+        }
+        inflating.clear();
+        channel.close();
+    }
+}
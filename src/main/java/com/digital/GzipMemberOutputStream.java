@@ -0,0 +1,66 @@
+package com.digital;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+
+/**
+ * Collects bytes and writes them to the underlying stream as one {@link GzipMembers} member
+ * each time {@link #endMember()} is called, so the caller decides where members end (at row
+ * boundaries, for CSV files). {@link #flush()} only flushes what has been written already.
+ */
+public class GzipMemberOutputStream extends OutputStream {
+    private final OutputStream out;
+    private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+    private byte[] buffer = new byte[1 << 16];
+    private int count;
+
+    public GzipMemberOutputStream(OutputStream out) {
+        this.out = out;
+    }
+
+    @Override
+    public void write(int b) {
+        ensureCapacity(1);
+        buffer[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) {
+        ensureCapacity(length);
+        System.arraycopy(bytes, offset, buffer, count, length);
+        count += length;
+    }
+
+    /**
+     * Compresses everything written since the previous member into a new one.
+     */
+    public void endMember() throws IOException {
+        if (count > 0) {
+            GzipMembers.writeMember(out, buffer, count, deflater);
+            count = 0;
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            endMember();
+            out.close();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private void ensureCapacity(int length) {
+        if (count + length > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, count + length));
+        }
+    }
+}
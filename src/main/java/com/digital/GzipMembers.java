@@ -0,0 +1,208 @@
+package com.digital;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Reads and writes gzip files as a series of independent members, each a complete gzip
+ * stream of its own. Concatenated members are still one valid gzip file for {@code gunzip}
+ * and {@link java.util.zip.GZIPInputStream}, but each member can be compressed or inflated by
+ * a different thread.
+ *
+ * <p>Like BGZF, every member written here records its own compressed length in an extra
+ * header field (subfield {@code CS}), so a reader finds all member boundaries by hopping from
+ * header to header without inflating anything. Files from other gzip writers have no such
+ * field and can only be read as one stream.</p>
+ */
+public final class GzipMembers {
+    public static final String SUFFIX = ".gz";
+
+    private static final int HEADER_SIZE = 20;   // Fixed header, XLEN and the CS subfield
+    private static final int TRAILER_SIZE = 8;   // CRC32 and ISIZE
+    private static final int FLAG_HCRC = 0x02;
+    private static final int FLAG_EXTRA = 0x04;
+    private static final int FLAG_NAME = 0x08;
+    private static final int FLAG_COMMENT = 0x10;
+
+    /**
+     * One member: where it starts in the file and its compressed length, header to trailer.
+     */
+    public record Member(long offset, int length) {
+    }
+
+    private GzipMembers() {
+    }
+
+    public static boolean isGzip(Path file) {
+        return file.getFileName().toString().endsWith(SUFFIX);
+    }
+
+    /**
+     * Compresses {@code data[0, length)} into one member and writes it to {@code out}.
+     */
+    public static void writeMember(OutputStream out, byte[] data, int length, Deflater deflater) throws IOException {
+        deflater.reset();
+        deflater.setInput(data, 0, length);
+        deflater.finish();
+        byte[] member = new byte[HEADER_SIZE + length + (length >>> 8) + 64]; // Room for incompressible data
+        int size = HEADER_SIZE;
+        while (!deflater.finished()) {
+            if (size == member.length) {
+                member = Arrays.copyOf(member, member.length * 2);
+            }
+            size += deflater.deflate(member, size, member.length - size);
+        }
+        if (size + TRAILER_SIZE > member.length) {
+            member = Arrays.copyOf(member, size + TRAILER_SIZE);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, length);
+
+        ByteBuffer header = ByteBuffer.wrap(member).order(ByteOrder.LITTLE_ENDIAN);
+        header.put((byte) 0x1f).put((byte) 0x8b).put((byte) 8).put((byte) FLAG_EXTRA)
+                .putInt(0)                          // MTIME: none
+                .put((byte) 0).put((byte) 0xff)     // XFL, OS: unknown
+                .putShort((short) 8)                // XLEN
+                .put((byte) 'C').put((byte) 'S').putShort((short) 4)
+                .putInt(size + TRAILER_SIZE);       // Compressed member length
+        header.position(size);
+        header.putInt((int) crc.getValue()).putInt(length);
+        out.write(member, 0, size + TRAILER_SIZE);
+    }
+
+    /**
+     * Lists the members of {@code file} from byte {@code from}, which must be a member
+     * boundary, to the end; returns {@code null} if a member has no length field, and throws
+     * if its length field can't be right.
+     */
+    public static List<Member> members(Path file, long from) throws IOException {
+        List<Member> members = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            long offset = from;
+            while (offset < size) {
+                header.clear();
+                readFully(channel, header, offset);
+                header.flip();
+                if (header.getShort(0) != (short) 0x8b1f || header.get(2) != 8) {
+                    throw new IOException(file + " has no gzip member at byte " + offset);
+                }
+                if ((header.get(3) & FLAG_EXTRA) == 0 || header.getShort(10) != 8
+                        || header.get(12) != 'C' || header.get(13) != 'S' || header.getShort(14) != 4) {
+                    return null;
+                }
+                int length = header.getInt(16);
+                if (length < HEADER_SIZE + TRAILER_SIZE || length > size - offset) {
+                    // Zero or negative would never get past this member, too long runs off the end
+                    throw new IOException(file + " has a gzip member of impossible length " + length + " at byte " + offset);
+                }
+                members.add(new Member(offset, length));
+                offset += length;
+            }
+        }
+        return members;
+    }
+
+    /**
+     * Splits {@code members} into at most {@code parts} runs of consecutive members with
+     * about the same compressed size.
+     */
+    public static List<List<Member>> partition(List<Member> members, int parts) {
+        List<List<Member>> runs = new ArrayList<>();
+        if (members.isEmpty()) {
+            return runs;
+        }
+        long start = members.get(0).offset();
+        Member last = members.get(members.size() - 1);
+        long total = last.offset() + last.length() - start;
+        int first = 0;
+        for (int i = 0; i < members.size(); i++) {
+            Member member = members.get(i);
+            long end = member.offset() + member.length() - start;
+            // Close the run once it reaches its share of the bytes
+            if (end * parts >= total * (runs.size() + 1) || i == members.size() - 1) {
+                runs.add(List.copyOf(members.subList(first, i + 1)));
+                first = i + 1;
+            }
+        }
+        return runs;
+    }
+
+    /**
+     * Reads and inflates one member, checking its CRC and length.
+     */
+    public static byte[] inflate(FileChannel channel, Member member) throws IOException {
+        ByteBuffer compressed = ByteBuffer.allocate(member.length()).order(ByteOrder.LITTLE_ENDIAN);
+        readFully(channel, compressed, member.offset());
+        byte[] bytes = compressed.array();
+        int flags = bytes[3];
+        int position = 10;
+        if ((flags & FLAG_EXTRA) != 0) {
+            position += 2 + compressed.getShort(position);
+        }
+        if ((flags & FLAG_NAME) != 0) {
+            position = skipZeroTerminated(bytes, position);
+        }
+        if ((flags & FLAG_COMMENT) != 0) {
+            position = skipZeroTerminated(bytes, position);
+        }
+        if ((flags & FLAG_HCRC) != 0) {
+            position += 2;
+        }
+        int crc = compressed.getInt(member.length() - 8);
+        int size = compressed.getInt(member.length() - 4);
+
+        byte[] data = new byte[size];
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(bytes, position, member.length() - TRAILER_SIZE - position);
+            int inflated = 0;
+            while (inflated < size && !inflater.finished()) {
+                int count = inflater.inflate(data, inflated, size - inflated);
+                if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                inflated += count;
+            }
+            CRC32 check = new CRC32();
+            check.update(data, 0, inflated);
+            if (inflated != size || !inflater.finished() || (int) check.getValue() != crc) {
+                throw new IOException("Corrupt gzip member at byte " + member.offset());
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt gzip member at byte " + member.offset() + ": " + e.getMessage(), e);
+        } finally {
+            inflater.end();
+        }
+        return data;
+    }
+
+    private static int skipZeroTerminated(byte[] bytes, int position) {
+        while (bytes[position] != 0) {
+            position++;
+        }
+        return position + 1;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long offset) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, offset + buffer.position()) < 0) {
+                throw new EOFException("Gzip member cut off at byte " + (offset + buffer.position()));
+            }
+        }
+    }
+}
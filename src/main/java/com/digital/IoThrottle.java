@@ -0,0 +1,56 @@
+package com.digital;
+
+/**
+ * Caps the file bandwidth of everything that shares it, in bytes per second.
+ *
+ * <p>A token bucket in its "virtual scheduling" form: the throttle keeps the time at which the
+ * bytes charged so far would have gone through at the full rate, and a caller only sleeps once
+ * that time runs more than one second ahead of the clock. Up to a second's worth of bytes can
+ * therefore go through in a burst after a quiet spell. Callers charge bytes after moving them,
+ * so the limit holds on average, not for every single read or write.</p>
+ *
+ * <p>Charging and waiting are separate, so a caller can charge as it goes and wait at a point
+ * where it holds nothing others need.</p>
+ */
+public final class IoThrottle {
+    private static final long BURST_NANOS = 1_000_000_000L;
+
+    private final double nanosPerByte;
+    private long busyUntil = System.nanoTime(); // When the bytes charged so far would have gone through
+
+    public IoThrottle(long bytesPerSecond) {
+        if (bytesPerSecond <= 0) {
+            throw new IllegalArgumentException("bytesPerSecond must be positive: " + bytesPerSecond);
+        }
+        this.nanosPerByte = 1e9 / bytesPerSecond;
+    }
+
+    /**
+     * Charges {@code bytes} without waiting; the wait falls to whoever {@link #await awaits} next.
+     */
+    public synchronized void charge(long bytes) {
+        if (bytes > 0) {
+            busyUntil = Math.max(busyUntil, System.nanoTime()) + (long) (bytes * nanosPerByte);
+        }
+    }
+
+    /**
+     * True if the bytes charged so far are within the rate, so more can be moved right away.
+     */
+    public synchronized boolean withinRate() {
+        return busyUntil - System.nanoTime() <= BURST_NANOS;
+    }
+
+    /**
+     * Sleeps until the bytes charged so far are within the rate.
+     */
+    public void await() throws InterruptedException {
+        long waitNanos;
+        synchronized (this) {
+            waitNanos = busyUntil - System.nanoTime() - BURST_NANOS;
+        }
+        if (waitNanos > 0) {
+            Thread.sleep(waitNanos / 1_000_000, (int) (waitNanos % 1_000_000)); // Outside the monitor
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.digital;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * The classic strategy: one single-row {@code INSERT} bound per row with {@code addBatch()}.
+ * With {@code rewriteBatchedStatements=true} Connector/J folds the batch into multi-row
+ * statements on the wire; without it every row is its own round-trip.
+ */
+public class JdbcBatchLoader implements BulkLoader {
+    private final PreparedStatement statement;
+    private final boolean withIds;
+
+    public JdbcBatchLoader(Connection connection, String table) throws SQLException {
+        this(connection, table, false);
+    }
+
+    /**
+     * @param withIds insert each row's id too, see {@link BulkLoaders#create(String, Connection, String, boolean)}
+     */
+    public JdbcBatchLoader(Connection connection, String table, boolean withIds) throws SQLException {
+        this.withIds = withIds;
+        this.statement = connection.prepareStatement("INSERT INTO " + table + " (" + BulkLoaders.columns(withIds)
+                + ") VALUES (" + (withIds ? "?, " : "") + "?, ?, ?, ?)");
+    }
+
+    @Override
+    public int load(RowBatch batch, int from, int to) throws SQLException {
+        for (int row = from; row < to; row++) {
+            int parameter = 1;
+            if (withIds) {
+                BulkLoaders.bindId(statement, parameter++, batch.id(row));
+            }
+            statement.setString(parameter++, batch.name(row));
+            statement.setString(parameter++, batch.email(row));
+            statement.setString(parameter++, batch.address(row));
+            statement.setInt(parameter, batch.age(row));
+            statement.addBatch();
+        }
+        try {
+            statement.executeBatch();
+        } catch (SQLException e) {
+            statement.clearBatch(); // Some drivers keep a failed batch, and would send it again with the next rows
+            throw e;
+        }
+        return to - from;
+    }
+
+    @Override
+    public void close() throws SQLException {
+        statement.close();
+    }
+}
@@ -0,0 +1,289 @@
+package com.digital;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Inserts batches into a person table through a {@link BulkLoader}, one connection per sink
+ * worker and one commit per batch.
+ *
+ * <p>With a {@link BatchAutotuner} the commit size comes from the tuner instead: a batch may
+ * be split over several transactions, or several batches may share one, and each transaction
+ * runs only while the tuner grants the writer a permit.</p>
+ *
+ * <p>When the run is checkpointed, every committed batch is reported to the
+ * {@link CheckpointJournal}; tuned writers then only commit at batch boundaries, so a batch is
+ * never half committed.</p>
+ *
+ * <p>With a {@link DeadLetterFile}, a load that fails because of bad rows is undone and
+ * retried in halves, bisecting down to the rows at fault, which go to the file; the good rows
+ * still commit with their batch. One bad row in a batch of n costs about 2 log2(n) extra
+ * loads. Failures that are not the rows' fault still fail the run.</p>
+ */
+public class JdbcTableSink implements Sink {
+    private final ConnectionFactory connections;
+    private final String table;
+    private final String loaderStrategy;
+    private BatchAutotuner autotuner;
+    private SyncMetrics metrics = new SyncMetrics();
+    private CheckpointJournal journal;
+    private DeadLetterFile deadLetters;
+    private boolean withIds;
+
+    public JdbcTableSink(ConnectionFactory connections, String table, String loaderStrategy) {
+        this.connections = connections;
+        this.table = table;
+        this.loaderStrategy = loaderStrategy;
+    }
+
+    /**
+     * Lets {@code autotuner} choose the commit size and the number of concurrent writers.
+     */
+    public JdbcTableSink autotune(BatchAutotuner autotuner) {
+        this.autotuner = autotuner;
+        return this;
+    }
+
+    /**
+     * Isolates the rows the database refuses into {@code deadLetters} instead of failing.
+     */
+    public JdbcTableSink deadLetters(DeadLetterFile deadLetters) {
+        this.deadLetters = deadLetters;
+        return this;
+    }
+
+    /**
+     * Inserts each row's own id instead of leaving it to AUTO_INCREMENT, so the table keeps
+     * the ids of its source, as later upserts by id expect.
+     */
+    public JdbcTableSink withIds() {
+        this.withIds = true;
+        return this;
+    }
+
+    @Override
+    public void instrument(SyncMetrics metrics) {
+        this.metrics = metrics;
+        connections.instrument(metrics);
+    }
+
+    @Override
+    public void checkpoint(CheckpointJournal journal) {
+        this.journal = journal;
+    }
+
+    @Override
+    public Writer newWriter() throws SQLException {
+        Connection connection = connections.getConnection();
+        try {
+            connection.setAutoCommit(false); // Disable auto-commit for batch processing
+            BulkLoader loader = BulkLoaders.create(loaderStrategy, connection, table, withIds);
+            if (autotuner != null) {
+                return new TunedWriter(connection, loader, autotuner, metrics, journal, deadLetters);
+            }
+            return new Writer() {
+                @Override
+                public void write(int split, RowBatch batch) throws Exception {
+                    if (batch.isEmpty()) {
+                        if (journal != null) {
+                            journal.committed(split, batch, 0); // Filtered out by a transform; nothing to load
+                        }
+                        return;
+                    }
+                    long start = System.nanoTime();
+                    int rows = batch.size();
+                    try {
+                        loader.load(batch);
+                    } catch (SQLException e) {
+                        if (deadLetters == null || !DeadLetterFile.isRowError(e)) {
+                            throw e;
+                        }
+                        connection.rollback(); // The batch is the whole transaction, so no savepoint is needed
+                        rows = isolate(connection, loader, batch, 0, batch.size(), e, deadLetters, metrics);
+                    }
+                    long loaded = System.nanoTime();
+                    metrics.executeBatch().record(loaded - start);
+                    metrics.rowsBound().add(rows);
+
+                    connection.commit();
+                    metrics.commit().record(System.nanoTime() - loaded);
+                    metrics.rowsCommitted().add(rows);
+                    if (journal != null) {
+                        journal.committed(split, batch, 0);
+                    }
+                }
+
+                @Override
+                public void close() throws SQLException {
+                    try (connection) {
+                        loader.close();
+                    }
+                }
+            };
+        } catch (SQLException | RuntimeException e) {
+            connection.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public void finish() {
+        if (autotuner != null) {
+            autotuner.report();
+        }
+    }
+
+    /**
+     * Loads rows {@code [from, to)} in the open transaction; if that fails because of bad rows,
+     * rolls back to before the load and {@link #isolate isolates} them. Returns the rows loaded.
+     */
+    private static int loadIsolating(Connection connection, BulkLoader loader, RowBatch batch, int from, int to,
+                                     DeadLetterFile deadLetters, SyncMetrics metrics) throws SQLException, IOException {
+        Savepoint savepoint = connection.setSavepoint();
+        try {
+            loader.load(batch, from, to);
+        } catch (SQLException e) {
+            if (!DeadLetterFile.isRowError(e)) {
+                throw e;
+            }
+            connection.rollback(savepoint);
+            connection.releaseSavepoint(savepoint); // Rolling back to it doesn't remove it
+            return isolate(connection, loader, batch, from, to, e, deadLetters, metrics);
+        }
+        // Released right away, or a long tuned transaction piles up one on the server per load
+        connection.releaseSavepoint(savepoint);
+        return to - from;
+    }
+
+    // Rows [from, to) just failed with failure: dead-letter a single row, or load each half on its own
+    private static int isolate(Connection connection, BulkLoader loader, RowBatch batch, int from, int to,
+                               SQLException failure, DeadLetterFile deadLetters, SyncMetrics metrics)
+            throws SQLException, IOException {
+        if (to - from == 1) {
+            deadLetters.write(batch, from, failure);
+            metrics.rowsRejected().increment();
+            return 0;
+        }
+        int middle = (from + to) >>> 1;
+        return loadIsolating(connection, loader, batch, from, middle, deadLetters, metrics)
+                + loadIsolating(connection, loader, batch, middle, to, deadLetters, metrics);
+    }
+
+    /**
+     * Commits every {@link BatchAutotuner#batchSize()} rows, whatever the size of the incoming
+     * batches, and reports each commit to the tuner.
+     */
+    private static final class TunedWriter implements Writer {
+        private final Connection connection;
+        private final BulkLoader loader;
+        private final BatchAutotuner autotuner;
+        private final SyncMetrics metrics;
+        private final CheckpointJournal journal;
+        private final DeadLetterFile deadLetters;
+        private final List<Integer> pendingSplits = new ArrayList<>(); // Batches in the open transaction, for the journal
+        private final List<RowBatch> pendingBatches = new ArrayList<>();
+        private boolean inTransaction;
+        private boolean failed;
+        private int pendingRows;
+        private int pendingLoaded; // pendingRows less the dead-lettered ones
+        private long busyNanos; // Load and commit time of the open transaction, not time spent waiting for batches
+
+        TunedWriter(Connection connection, BulkLoader loader, BatchAutotuner autotuner, SyncMetrics metrics,
+                    CheckpointJournal journal, DeadLetterFile deadLetters) {
+            this.connection = connection;
+            this.loader = loader;
+            this.autotuner = autotuner;
+            this.metrics = metrics;
+            this.journal = journal;
+            this.deadLetters = deadLetters;
+        }
+
+        @Override
+        public void write(int split, RowBatch batch) throws Exception {
+            if (batch.isEmpty()) {
+                if (journal != null) {
+                    journal.committed(split, batch, 0); // Filtered out by a transform; nothing to load
+                }
+                return;
+            }
+            int from = 0;
+            while (from < batch.size()) {
+                if (!inTransaction) {
+                    autotuner.beginTransaction();
+                    inTransaction = true;
+                }
+                int target = autotuner.batchSize();
+                // A checkpointed batch must commit as a whole, so only split batches without a journal
+                int to = journal != null ? batch.size() : Math.min(batch.size(), from + Math.max(1, target - pendingRows));
+                long start = System.nanoTime();
+                int loaded = to - from;
+                try {
+                    if (deadLetters == null) {
+                        loader.load(batch, from, to);
+                    } else {
+                        // Other batches may share the transaction, so every load gets a savepoint to undo it to
+                        loaded = loadIsolating(connection, loader, batch, from, to, deadLetters, metrics);
+                    }
+                } catch (SQLException | IOException | RuntimeException e) {
+                    failed = true;
+                    throw e;
+                }
+                long loadNanos = System.nanoTime() - start;
+                metrics.executeBatch().record(loadNanos);
+                metrics.rowsBound().add(loaded);
+                busyNanos += loadNanos;
+                pendingRows += to - from;
+                pendingLoaded += loaded;
+                from = to;
+                if (journal != null) {
+                    pendingSplits.add(split);
+                    pendingBatches.add(batch);
+                }
+                if (pendingRows >= target) {
+                    commit();
+                }
+            }
+        }
+
+        @Override
+        public void close() throws Exception {
+            try (connection; loader) {
+                if (inTransaction && !failed) {
+                    commit(); // Rows left over at the end of the input
+                }
+            } finally {
+                if (inTransaction) {
+                    inTransaction = false;
+                    autotuner.abortTransaction(); // Rolled back when the connection closes
+                }
+            }
+        }
+
+        private void commit() throws Exception {
+            long start = System.nanoTime();
+            try {
+                connection.commit();
+            } catch (SQLException e) {
+                failed = true;
+                throw e;
+            }
+            inTransaction = false;
+            long commitNanos = System.nanoTime() - start;
+            metrics.commit().record(commitNanos);
+            metrics.rowsCommitted().add(pendingLoaded);
+            autotuner.endTransaction(pendingRows, busyNanos + commitNanos);
+            pendingRows = 0;
+            pendingLoaded = 0;
+            busyNanos = 0;
+            for (int i = 0; i < pendingBatches.size(); i++) {
+                journal.committed(pendingSplits.get(i), pendingBatches.get(i), 0);
+            }
+            pendingSplits.clear();
+            pendingBatches.clear();
+        }
+    }
+}
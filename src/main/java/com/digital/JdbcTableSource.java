@@ -0,0 +1,150 @@
+package com.digital;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Reads a person table in id order, split into keyset ranges ({@code WHERE id BETWEEN ? AND ?})
+ * sized by {@code MIN(id)}/{@code MAX(id)}, so no split scans rows that belong to another.
+ *
+ * <p>Each range streams through a server-side cursor with the given fetch size, which needs
+ * {@code useCursorFetch=true} on the Connector/J URL. A range resumes after the last id it
+ * exported.</p>
+ *
+ * <p>For delta exports, {@link #idsBetween} limits the read to ids added since a watermark,
+ * and {@link #changedBetween} adds older rows whose change-tracking column moved on since.</p>
+ */
+public class JdbcTableSource implements Source {
+    private final ConnectionFactory connections;
+    private final String table;
+    private final long partitionSize;
+    private final int fetchSize;
+    private final int batchSize;
+    private long afterId = Long.MIN_VALUE;
+    private long upToId = Long.MAX_VALUE;
+    private String changedColumn;
+    private Timestamp changedFrom;
+    private Timestamp changedUpTo;
+    private final LongAdder idsCovered = new LongAdder(); // Ids at or below each range's last row, for progress
+    private volatile long idSpan;
+
+    public JdbcTableSource(ConnectionFactory connections, String table, long partitionSize, int fetchSize, int batchSize) {
+        this.connections = connections;
+        this.table = table;
+        this.partitionSize = partitionSize;
+        this.fetchSize = fetchSize;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Reads only ids in {@code (afterId, upToId]}.
+     */
+    public JdbcTableSource idsBetween(long afterId, long upToId) {
+        this.afterId = afterId;
+        this.upToId = upToId;
+        return this;
+    }
+
+    /**
+     * Also reads rows at or below the {@link #idsBetween} range whose {@code column} is in
+     * {@code [from, upTo]}: rows updated since the previous export. The lower bound is inclusive,
+     * since rows updated within the same tick as the previous export's snapshot carry its time.
+     */
+    public JdbcTableSource changedBetween(String column, Timestamp from, Timestamp upTo) {
+        this.changedColumn = column;
+        this.changedFrom = from;
+        this.changedUpTo = upTo;
+        return this;
+    }
+
+    @Override
+    public void instrument(SyncMetrics metrics) {
+        connections.instrument(metrics);
+    }
+
+    @Override
+    public double progress() {
+        long span = idSpan;
+        return span == 0 ? Double.NaN : (double) idsCovered.sum() / span;
+    }
+
+    @Override
+    public List<? extends Split> splits() throws SQLException {
+        List<Split> splits = new ArrayList<>();
+        try (Connection connection = connections.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT MIN(id), MAX(id) FROM " + table)) {
+            resultSet.next();
+            long minId = resultSet.getLong(1);
+            if (resultSet.wasNull()) {
+                System.out.println("Table " + table + " is empty.");
+                return splits;
+            }
+            long maxId = Math.min(resultSet.getLong(2), upToId);
+            if (changedColumn == null && afterId != Long.MIN_VALUE) {
+                minId = Math.max(minId, afterId + 1); // Changed rows may be anywhere below, new ones only above
+            }
+            if (minId > maxId) {
+                System.out.println("No rows in " + table + " after id " + afterId);
+                return splits;
+            }
+            System.out.println("Reading " + table + " ids " + minId + " to " + maxId);
+            idSpan = maxId - minId + 1;
+
+            for (long fromId = minId; fromId <= maxId; fromId += partitionSize) {
+                long rangeStart = fromId;
+                long rangeEnd = Math.min(fromId + partitionSize - 1, maxId);
+                // Resume after the last id exported from the range
+                splits.add((resumeFrom, out) -> readRange(
+                        resumeFrom == CheckpointJournal.START ? rangeStart : resumeFrom + 1, rangeEnd, out));
+            }
+        }
+        return splits;
+    }
+
+    private void readRange(long fromId, long toId, BatchEmitter out) throws Exception {
+        String query = "SELECT id, name, email, address, age FROM " + table + " WHERE id BETWEEN ? AND ?"
+                + (changedColumn == null ? "" : " AND (id > ? OR (" + changedColumn + " >= ? AND " + changedColumn + " <= ?))")
+                + " ORDER BY id";
+        try (Connection connection = connections.getConnection();
+             PreparedStatement statement = connection.prepareStatement(query)) {
+            statement.setLong(1, fromId);
+            statement.setLong(2, toId);
+            if (changedColumn != null) {
+                statement.setLong(3, afterId);
+                statement.setTimestamp(4, changedFrom);
+                statement.setTimestamp(5, changedUpTo);
+            }
+            statement.setFetchSize(fetchSize); // Stream the range through a server-side cursor
+
+            try (ResultSet resultSet = statement.executeQuery()) {
+                RowBatch batch = new RowBatch(batchSize);
+                long coveredTo = fromId - 1;
+                while (resultSet.next()) {
+                    batch.add(resultSet.getLong(1), resultSet.getString(2), resultSet.getString(3),
+                            resultSet.getString(4), resultSet.getInt(5));
+                    if (batch.isFull()) {
+                        long lastId = batch.id(batch.size() - 1);
+                        idsCovered.add(lastId - coveredTo);
+                        coveredTo = lastId;
+                        batch.position(lastId);
+                        out.emit(batch);
+                        batch = new RowBatch(batchSize);
+                    }
+                }
+                idsCovered.add(toId - coveredTo);
+                if (!batch.isEmpty()) {
+                    batch.position(toId);
+                    out.emit(batch);
+                }
+            }
+        }
+    }
+}
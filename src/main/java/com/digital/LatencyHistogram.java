@@ -0,0 +1,103 @@
+package com.digital;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free latency histogram with logarithmic buckets: eight buckets per power of two, so
+ * any percentile is off by at most about 6%, in a fixed 4 KB array that covers 1 ns to
+ * centuries.
+ *
+ * <p>{@link #record(long)} is a couple of atomic increments and never allocates, so it can be
+ * called once per batch from every worker. Percentiles over an interval are taken by
+ * subtracting two {@link #snapshot()}s.</p>
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder totalNanos = new LongAdder();
+
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts.incrementAndGet(bucket(value));
+        totalNanos.add(value);
+    }
+
+    /**
+     * Sum of all recorded values, for averages and the Prometheus {@code _sum}.
+     */
+    public long totalNanos() {
+        return totalNanos.sum();
+    }
+
+    /**
+     * Copies the bucket counts; buckets recorded concurrently may or may not be included.
+     */
+    public long[] snapshot() {
+        long[] snapshot = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+        }
+        return snapshot;
+    }
+
+    public static long count(long[] snapshot) {
+        long count = 0;
+        for (long bucketCount : snapshot) {
+            count += bucketCount;
+        }
+        return count;
+    }
+
+    /**
+     * Returns {@code later - earlier}, the values recorded between two snapshots.
+     */
+    public static long[] difference(long[] later, long[] earlier) {
+        long[] difference = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            difference[i] = later[i] - earlier[i];
+        }
+        return difference;
+    }
+
+    /**
+     * Returns the value at {@code quantile} (0..1) of {@code snapshot} in nanoseconds, or 0 if
+     * it is empty.
+     */
+    public static long percentile(long[] snapshot, double quantile) {
+        long count = count(snapshot);
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(quantile * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return midpoint(i);
+            }
+        }
+        return midpoint(BUCKETS - 1);
+    }
+
+    private static int bucket(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value; // Small values get a bucket each
+        }
+        int highestBit = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (highestBit - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (highestBit - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    private static long midpoint(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        long lower = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+        return lower + (1L << shift) / 2;
+    }
+}
@@ -0,0 +1,442 @@
+package com.digital;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs every job of a manifest ({@link SyncJob}: files into tables, tables into files) at once
+ * on one shared work-stealing {@link ForkJoinPool}, so a small job's work fills the cores a
+ * large job leaves idle, instead of each tool running one file with its own threads.
+ *
+ * <p>Every job is planned into its source's splits, about {@code --chunk-mb} of input file
+ * each for imports and {@value #PARTITION_SIZE} ids each for exports, and every split becomes
+ * one task that reads it and writes its batches through a writer of its own. A split's batches
+ * therefore stay in order for file sinks without any queues between stages. The jobs are
+ * forked largest first and their tasks are stolen by idle workers. Two limits apply to all
+ * jobs together: at most {@code --connections} tasks use the database at once, and with
+ * {@code --io-limit-mb} the bytes read from and written to files are throttled by one
+ * {@link IoThrottle}. Tasks wait for both as managed blocks: for the throttle before they take
+ * a connection and again after every batch, so a running split slows down with the others
+ * instead of only the splits yet to start.</p>
+ *
+ * <p>A failed job is reported and doesn't stop the others. Jobs are not checkpointed; rows the
+ * database refuses go to a {@link DeadLetterFile} next to the input file.</p>
+ *
+ * <p>Usage: {@code ManifestSync --manifest=sync.manifest [--parallelism=threads] [--connections=n]
+ * [--io-limit-mb=MB/s] [--chunk-mb=MB] [--loader=batch|multirow|loaddata] [--report-interval=seconds]
+ * [--metrics-file=path]}</p>
+ */
+public class ManifestSync {
+    private static final String DB_URL = "jdbc:mysql://localhost:3306/db04";
+    private static final String DB_USER = "user";
+    private static final String DB_PASSWORD = "user";
+
+    private static final int CHUNK_MB = 64;            // Input file bytes per import task
+    private static final int PARTITION_SIZE = 100_000; // Ids per export task
+    private static final int FETCH_SIZE = 10_000;      // Rows per cursor fetch round-trip
+    private static final int BATCH_SIZE = 1000;        // Rows per batch, and per commit for imports
+    private static final int MAX_DEAD_LETTERS = 1000;  // Refused rows before an import job fails
+
+    private final ConnectionFactory readConnections;
+    private final ConnectionFactory writeConnections;
+    private final Semaphore connectionPermits;
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+    private long chunkBytes = (long) CHUNK_MB << 20;
+    private String loader = BulkLoaders.BATCH;
+    private IoThrottle throttle;
+    private int reportIntervalSeconds = 10;
+    private Path prometheusFile;
+
+    private final SyncMetrics metrics = new SyncMetrics();
+    private final LongAdder plannedSplits = new LongAdder();
+    private final LongAdder finishedSplits = new LongAdder();
+    private final AtomicLong throttledBytes = new AtomicLong(); // File bytes already charged to the throttle
+    private ExecutorService scanners; // Region scans of every import, instead of a pool per file
+
+    /**
+     * Outcome of one job; {@code failure} is null if it succeeded.
+     */
+    public record Outcome(SyncJob job, long rows, long elapsedMillis, Throwable failure) {
+    }
+
+    /**
+     * @param readConnections  connections for export jobs, {@code null} if there are none
+     * @param writeConnections connections for import jobs, {@code null} if there are none
+     * @param maxConnections   connections in use at once over all jobs
+     */
+    public ManifestSync(ConnectionFactory readConnections, ConnectionFactory writeConnections, int maxConnections) {
+        this.readConnections = readConnections;
+        this.writeConnections = writeConnections;
+        this.connectionPermits = new Semaphore(Math.max(1, maxConnections));
+    }
+
+    /**
+     * Worker threads of the shared pool.
+     */
+    public ManifestSync parallelism(int threads) {
+        this.parallelism = Math.max(1, threads);
+        return this;
+    }
+
+    /**
+     * Input file bytes per import task.
+     */
+    public ManifestSync chunkBytes(long bytes) {
+        this.chunkBytes = Math.max(1, bytes);
+        return this;
+    }
+
+    public ManifestSync loader(String loader) {
+        this.loader = loader;
+        return this;
+    }
+
+    /**
+     * Throttles the file bytes of all jobs together; {@code null} for no limit.
+     */
+    public ManifestSync throttle(IoThrottle throttle) {
+        this.throttle = throttle;
+        return this;
+    }
+
+    public ManifestSync reportEvery(int seconds) {
+        this.reportIntervalSeconds = Math.max(0, seconds);
+        return this;
+    }
+
+    public ManifestSync prometheusFile(Path file) {
+        this.prometheusFile = file;
+        return this;
+    }
+
+    public SyncMetrics metrics() {
+        return metrics;
+    }
+
+    /**
+     * Runs every job and returns their outcomes in manifest order.
+     */
+    public List<Outcome> run(List<SyncJob> jobs) {
+        List<JobTask> tasks = new ArrayList<>();
+        for (SyncJob job : jobs) {
+            tasks.add(new JobTask(job));
+        }
+        // Largest first, so the last tasks to start are small ones that even out the finish;
+        // exports come first since a table's size is unknown until it is planned
+        List<JobTask> schedule = new ArrayList<>(tasks);
+        schedule.sort(Comparator.comparingLong(JobTask::inputBytes).reversed());
+
+        // Tasks waiting for a permit or the throttle get spare threads from the pool; at most one per
+        // worker, after which they wait without one rather than growing the pool split by split
+        ForkJoinPool pool = new ForkJoinPool(parallelism, ForkJoinPool.defaultForkJoinWorkerThreadFactory, null,
+                false, 0, 2 * parallelism, 1, saturated -> true, 60, TimeUnit.SECONDS);
+        scanners = Executors.newFixedThreadPool(parallelism);
+        try (MetricsReporter reporter = new MetricsReporter(metrics, "manifest", reportIntervalSeconds, prometheusFile)) {
+            metrics.progress(() -> plannedSplits.sum() == 0 ? Double.NaN
+                    : (double) finishedSplits.sum() / plannedSplits.sum());
+            reporter.start();
+            pool.invoke(ForkJoinTask.adapt(() -> {
+                // Forked in schedule order, so idle workers, which steal the oldest task first, take the
+                // largest jobs first; invokeAll would fork in reverse and run the first job inline
+                for (JobTask task : schedule) {
+                    task.fork();
+                }
+                for (JobTask task : schedule) {
+                    task.quietlyJoin();
+                }
+            }));
+        } finally {
+            pool.shutdownNow();
+            scanners.shutdownNow();
+        }
+        List<Outcome> outcomes = new ArrayList<>();
+        for (JobTask task : tasks) {
+            outcomes.add(task.join());
+        }
+        return outcomes;
+    }
+
+    public static void main(String[] args) {
+        long startTime = System.currentTimeMillis();
+        Path manifest = Paths.get(CliOptions.option(args, "manifest", "sync.manifest"));
+        int parallelism = CliOptions.intOption(args, "parallelism", Runtime.getRuntime().availableProcessors());
+        int connections = CliOptions.intOption(args, "connections", parallelism);
+        int ioLimit = CliOptions.intOption(args, "io-limit-mb", 0); // MB/s over all jobs; 0 for no limit
+        String loader = CliOptions.option(args, "loader", BulkLoaders.BATCH); // batch | multirow | loaddata
+        String metricsFile = CliOptions.option(args, "metrics-file", null); // Prometheus text format
+
+        try {
+            List<SyncJob> jobs = SyncJob.readManifest(manifest);
+            boolean exports = jobs.stream().anyMatch(job -> !job.isImport());
+            boolean imports = jobs.stream().anyMatch(SyncJob::isImport);
+            // As in TableCopy, reads and writes need different URL properties, so each side gets its own pool;
+            // the permits keep the connections in use over both under --connections
+            try (ConnectionPool readPool = exports ? new ConnectionPool("manifest-read", DB_URL + "?useCursorFetch=true",
+                    DB_USER, DB_PASSWORD, connections) : null;
+                 ConnectionPool writePool = imports ? new ConnectionPool("manifest-write",
+                         BulkLoaders.withUrlParameters(DB_URL, loader), DB_USER, DB_PASSWORD, connections) : null) {
+                List<Outcome> outcomes = new ManifestSync(readPool, writePool, connections)
+                        .parallelism(parallelism)
+                        .chunkBytes((long) CliOptions.intOption(args, "chunk-mb", CHUNK_MB) << 20)
+                        .loader(loader)
+                        .throttle(ioLimit > 0 ? new IoThrottle((long) ioLimit << 20) : null)
+                        .reportEvery(CliOptions.intOption(args, "report-interval", 10))
+                        .prometheusFile(metricsFile == null ? null : Paths.get(metricsFile))
+                        .run(jobs);
+
+                long rows = 0;
+                int failed = 0;
+                for (Outcome outcome : outcomes) {
+                    if (outcome.failure() == null) {
+                        rows += outcome.rows();
+                        System.out.println(outcome.job() + ": " + outcome.rows() + " rows in "
+                                + outcome.elapsedMillis() + " ms");
+                    } else {
+                        failed++;
+                        System.err.println(outcome.job() + " FAILED: " + outcome.failure());
+                    }
+                }
+                System.out.println("Synced " + rows + " rows in " + (outcomes.size() - failed) + " of "
+                        + outcomes.size() + " jobs in " + (System.currentTimeMillis() - startTime) + " ms");
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Plans one job, runs its splits as subtasks and finishes its sink; never completes
+     * abnormally, a failure is part of the outcome.
+     */
+    @SuppressWarnings("serial") // Never serialized; the pool only runs it
+    private final class JobTask extends RecursiveTask<Outcome> {
+        private final SyncJob job;
+        private final long inputBytes;
+        private final LongAdder rows = new LongAdder();
+        private volatile boolean failed; // Set by the first split to fail, so the others that haven't started skip
+
+        JobTask(SyncJob job) {
+            this.job = job;
+            long bytes;
+            try {
+                bytes = job.isImport() ? Files.size(job.file()) : Long.MAX_VALUE;
+            } catch (Exception e) {
+                bytes = 0; // Missing; fails as soon as it runs
+            }
+            this.inputBytes = bytes;
+        }
+
+        long inputBytes() {
+            return inputBytes;
+        }
+
+        @Override
+        protected Outcome compute() {
+            long start = System.currentTimeMillis();
+            DeadLetterFile deadLetters = null;
+            try {
+                Source source;
+                Sink sink;
+                if (job.isImport()) {
+                    int splitCount = (int) Math.max(1, Math.min(Integer.MAX_VALUE, (inputBytes + chunkBytes - 1) / chunkBytes));
+                    source = FileFormats.source(job.file(), CsvFileSource.MAPPED, BATCH_SIZE, splitCount, 0);
+                    if (source instanceof CsvFileSource csvSource) {
+                        csvSource.executor(scanners);
+                    }
+                    deadLetters = new DeadLetterFile(job.file().resolveSibling(job.file().getFileName() + ".rejected.csv"),
+                            false, MAX_DEAD_LETTERS);
+                    sink = new JdbcTableSink(writeConnections, job.table(), loader).deadLetters(deadLetters);
+                } else {
+                    source = new JdbcTableSource(readConnections, job.table(), PARTITION_SIZE, FETCH_SIZE, BATCH_SIZE);
+                    sink = FileFormats.sink(job.file(), false);
+                }
+                try (source) {
+                    source.instrument(metrics);
+                    sink.instrument(metrics);
+                    List<? extends Source.Split> splits;
+                    if (job.isImport()) {
+                        splits = source.splits();
+                    } else {
+                        acquirePermit(); // Planning an export queries the table's id range
+                        try {
+                            splits = source.splits();
+                        } finally {
+                            connectionPermits.release();
+                        }
+                    }
+                    sink.prepare(splits.size());
+                    plannedSplits.add(splits.size());
+                    List<SplitTask> work = new ArrayList<>();
+                    for (int i = 0; i < splits.size(); i++) {
+                        work.add(new SplitTask(splits.get(i), i, sink, this));
+                    }
+                    for (SplitTask task : work) {
+                        task.fork(); // Idle workers steal these from this worker's queue
+                    }
+                    // Every split is joined, failed or not, before the sink is finished and the source and
+                    // dead letters closed; invokeAll would return at the first failure with the rest running
+                    Throwable failure = null;
+                    for (SplitTask task : work) {
+                        task.quietlyJoin();
+                        if (task.isCompletedAbnormally()) {
+                            Throwable e = unwrap(task.getException());
+                            if (failure == null) {
+                                failure = e;
+                            } else if (e != failure) {
+                                failure.addSuppressed(e);
+                            }
+                        }
+                    }
+                    if (failure != null) {
+                        return new Outcome(job, rows.sum(), System.currentTimeMillis() - start, failure);
+                    }
+                    sink.finish();
+                }
+                if (deadLetters != null && deadLetters.rows() > 0) {
+                    System.out.println(job + ": " + deadLetters.rows() + " refused rows written to " + deadLetters.file());
+                }
+                return new Outcome(job, rows.sum(), System.currentTimeMillis() - start, null);
+            } catch (Throwable t) {
+                return new Outcome(job, rows.sum(), System.currentTimeMillis() - start, unwrap(t));
+            } finally {
+                if (deadLetters != null) {
+                    try {
+                        deadLetters.close();
+                    } catch (Exception e) {
+                        System.err.println("Error closing " + deadLetters.file() + ": " + e.getMessage());
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Takes one of the connection permits. Waiting for it is a managed block, so the pool can
+     * run other tasks on a spare thread meanwhile.
+     */
+    private void acquirePermit() throws InterruptedException {
+        ForkJoinPool.managedBlock(new ForkJoinPool.ManagedBlocker() {
+            private boolean acquired;
+
+            @Override
+            public boolean block() throws InterruptedException {
+                if (!acquired) {
+                    connectionPermits.acquire();
+                    acquired = true;
+                }
+                return true;
+            }
+
+            @Override
+            public boolean isReleasable() {
+                return acquired || (acquired = connectionPermits.tryAcquire());
+            }
+        });
+    }
+
+    /**
+     * Waits, as a managed block, until the file bytes moved by all tasks are within the I/O limit.
+     */
+    private void awaitThrottle() throws InterruptedException {
+        if (throttle == null) {
+            return;
+        }
+        chargeThrottle();
+        ForkJoinPool.managedBlock(new ForkJoinPool.ManagedBlocker() {
+            @Override
+            public boolean block() throws InterruptedException {
+                throttle.await();
+                return throttle.withinRate();
+            }
+
+            @Override
+            public boolean isReleasable() {
+                return throttle.withinRate();
+            }
+        });
+    }
+
+    // Charges the file bytes moved since the last charge, by any task, to the shared throttle
+    private void chargeThrottle() {
+        if (throttle == null) {
+            return;
+        }
+        long moved = metrics.fileBytes().sum();
+        long charged = throttledBytes.getAndAccumulate(moved, Math::max);
+        if (moved > charged) {
+            throttle.charge(moved - charged);
+        }
+    }
+
+    private static Throwable unwrap(Throwable t) {
+        return t instanceof CompletionException && t.getCause() != null ? t.getCause() : t;
+    }
+
+    /**
+     * Reads one split and writes its batches, holding one of the connection permits throughout.
+     * It waits for the I/O limit before taking the permit and after each batch. Once another
+     * split of its job failed, it is skipped instead.
+     */
+    @SuppressWarnings("serial") // Never serialized; the pool only runs it
+    private final class SplitTask extends RecursiveAction {
+        private final Source.Split split;
+        private final int index;
+        private final Sink sink;
+        private final JobTask job;
+
+        SplitTask(Source.Split split, int index, Sink sink, JobTask job) {
+            this.split = split;
+            this.index = index;
+            this.sink = sink;
+            this.job = job;
+        }
+
+        @Override
+        protected void compute() {
+            if (job.failed) {
+                finishedSplits.increment();
+                return;
+            }
+            try {
+                awaitThrottle(); // Before the permit, so a task never sleeps holding a connection
+                acquirePermit();
+                try (Sink.Writer writer = sink.newWriter()) {
+                    long[] batchStart = {System.nanoTime()};
+                    int[] sequence = {0};
+                    split.read(CheckpointJournal.START, batch -> {
+                        metrics.readBatch().record(System.nanoTime() - batchStart[0]);
+                        metrics.rowsRead().add(batch.size());
+                        metrics.rowsParsed().add(batch.size());
+                        batch.sequence(sequence[0]++);
+                        writer.write(index, batch);
+                        job.rows.add(batch.size());
+                        awaitThrottle(); // With the connection held, but the limit is for every task alike
+                        batchStart[0] = System.nanoTime();
+                    });
+                    writer.splitFinished(index);
+                } finally {
+                    connectionPermits.release();
+                    finishedSplits.increment();
+                }
+            } catch (Exception e) {
+                job.failed = true;
+                throw new CompletionException(e);
+            }
+        }
+    }
+}
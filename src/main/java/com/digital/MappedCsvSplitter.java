@@ -0,0 +1,141 @@
+package com.digital;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Splits a memory-mapped CSV file into byte ranges that start and end on record boundaries,
+ * so that each worker can parse its own region with no shared reader.
+ *
+ * <p>A naive split point can land inside a quoted field that contains a newline. To find the
+ * real boundaries the splitter first counts the quote characters of every raw chunk in
+ * parallel; the parity of the running total tells whether a raw split point is inside quotes
+ * (a doubled {@code ""} escape contributes two quotes and does not change the parity). Each
+ * split point is then moved forward, again in parallel, to just past the next newline that is
+ * outside quotes.</p>
+ *
+ * <p>The first pass also counts the line feeds of every chunk, so each region knows the line
+ * number of its first record without another pass over the file.</p>
+ */
+public class MappedCsvSplitter {
+
+    /**
+     * A half-open byte range {@code [start, end)} holding whole records, the first of which
+     * starts on line {@code firstLine} (1-based) of the file.
+     */
+    public record Region(long start, long end, long firstLine) {
+    }
+
+    // Quote parity and line feeds of one raw chunk
+    private record Chunk(boolean oddQuotes, long lineFeeds) {
+    }
+
+    private MappedCsvSplitter() {
+    }
+
+    /**
+     * Offset of the first byte after the header record.
+     */
+    public static long headerEnd(MappedFile file) {
+        return nextRecordStart(file, 0, false);
+    }
+
+    /**
+     * Splits {@code [dataStart, file.size())} into at most {@code parts} regions aligned on
+     * record boundaries. Empty regions are dropped, so fewer regions may be returned.
+     */
+    public static List<Region> split(MappedFile file, long dataStart, int parts, ExecutorService executor)
+            throws Exception {
+        long size = file.size();
+        long[] rawSplits = new long[parts + 1];
+        for (int i = 0; i <= parts; i++) {
+            rawSplits[i] = dataStart + (size - dataStart) * i / parts;
+        }
+
+        // Pass 1: quote parity and line feeds of everything before dataStart, then of each raw chunk
+        List<Future<Chunk>> chunks = new ArrayList<>();
+        chunks.add(executor.submit(() -> scan(file, 0, dataStart)));
+        for (int i = 0; i < parts; i++) {
+            long from = rawSplits[i];
+            long to = rawSplits[i + 1];
+            chunks.add(executor.submit(() -> scan(file, from, to)));
+        }
+        boolean[] inQuotesAt = new boolean[parts];
+        long[] lineFeedsBefore = new long[parts];
+        Chunk prefix = chunks.get(0).get();
+        boolean inQuotes = prefix.oddQuotes();
+        long lineFeeds = prefix.lineFeeds();
+        for (int i = 0; i < parts; i++) {
+            inQuotesAt[i] = inQuotes;
+            lineFeedsBefore[i] = lineFeeds;
+            Chunk chunk = chunks.get(i + 1).get();
+            inQuotes ^= chunk.oddQuotes();
+            lineFeeds += chunk.lineFeeds();
+        }
+
+        // Pass 2: move every interior split point forward to the next record boundary
+        List<Future<Long>> boundaries = new ArrayList<>();
+        for (int i = 1; i < parts; i++) {
+            long from = rawSplits[i];
+            boolean quoted = inQuotesAt[i];
+            boundaries.add(executor.submit(() -> nextRecordStart(file, from, quoted)));
+        }
+
+        List<Region> regions = new ArrayList<>(parts);
+        long start = dataStart;
+        long startLine = 1 + prefix.lineFeeds();
+        for (int i = 1; i < parts; i++) {
+            long end = boundaries.get(i - 1).get();
+            if (end > start) {
+                regions.add(new Region(start, end, startLine));
+                start = end;
+                // Line feeds from the raw split point to the boundary, usually part of one record
+                startLine = 1 + lineFeedsBefore[i] + lineFeeds(file, rawSplits[i], end);
+            }
+        }
+        if (size > start) {
+            regions.add(new Region(start, size, startLine));
+        }
+        return regions;
+    }
+
+    private static Chunk scan(MappedFile file, long from, long to) {
+        boolean odd = false;
+        long lineFeeds = 0;
+        for (long position = from; position < to; position++) {
+            byte b = file.get(position);
+            if (b == '"') {
+                odd = !odd;
+            } else if (b == '\n') {
+                lineFeeds++;
+            }
+        }
+        return new Chunk(odd, lineFeeds);
+    }
+
+    /**
+     * Number of line feeds in {@code [from, to)}.
+     */
+    static long lineFeeds(MappedFile file, long from, long to) {
+        return scan(file, from, to).lineFeeds();
+    }
+
+    /**
+     * Scans forward from {@code from}, which is inside quotes if {@code inQuotes}, and returns
+     * the offset just past the next unquoted newline, or the file size if there is none.
+     */
+    private static long nextRecordStart(MappedFile file, long from, boolean inQuotes) {
+        long size = file.size();
+        for (long position = from; position < size; position++) {
+            byte b = file.get(position);
+            if (b == '"') {
+                inQuotes = !inQuotes;
+            } else if (b == '\n' && !inQuotes) {
+                return position + 1;
+            }
+        }
+        return size;
+    }
+}
@@ -0,0 +1,80 @@
+package com.digital;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A read-only, memory-mapped view of a file of any size.
+ *
+ * <p>A single {@link MappedByteBuffer} is limited to 2 GB, so the file is mapped as a series of
+ * fixed-size windows and every position is addressed with a {@code long}. Reads that cross a
+ * window boundary are handled transparently, which lets callers treat the file as one flat
+ * byte array. The buffers are shared read-only; each reader uses absolute gets, so any number
+ * of threads can read concurrently without coordination.</p>
+ */
+public class MappedFile implements AutoCloseable {
+    static final int DEFAULT_WINDOW_SHIFT = 30; // 1 GB windows
+
+    private final FileChannel channel;
+    private final MappedByteBuffer[] windows;
+    private final int windowShift;
+    private final long windowMask;
+    private final long size;
+
+    public MappedFile(Path path) throws IOException {
+        this(path, DEFAULT_WINDOW_SHIFT);
+    }
+
+    /**
+     * @param windowShift log2 of the window size; smaller windows are only useful to exercise
+     *                    the multi-window code path with small files
+     */
+    public MappedFile(Path path, int windowShift) throws IOException {
+        if (windowShift < 1 || windowShift > 30) {
+            throw new IllegalArgumentException("windowShift must be between 1 and 30: " + windowShift);
+        }
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.size = channel.size();
+        this.windowShift = windowShift;
+        this.windowMask = (1L << windowShift) - 1;
+
+        long windowSize = 1L << windowShift;
+        int windowCount = (int) ((size + windowSize - 1) >>> windowShift);
+        this.windows = new MappedByteBuffer[windowCount];
+        for (int i = 0; i < windowCount; i++) {
+            long position = (long) i << windowShift;
+            windows[i] = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(windowSize, size - position));
+        }
+    }
+
+    public long size() {
+        return size;
+    }
+
+    public byte get(long position) {
+        return windows[(int) (position >>> windowShift)].get((int) (position & windowMask));
+    }
+
+    /**
+     * Copies {@code length} bytes starting at {@code position} into {@code target}.
+     */
+    public void get(long position, byte[] target, int offset, int length) {
+        while (length > 0) {
+            MappedByteBuffer window = windows[(int) (position >>> windowShift)];
+            int windowOffset = (int) (position & windowMask);
+            int chunk = Math.min(length, window.limit() - windowOffset);
+            window.get(windowOffset, target, offset, chunk);
+            position += chunk;
+            offset += chunk;
+            length -= chunk;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close(); // The mappings stay valid until the buffers are garbage collected
+    }
+}
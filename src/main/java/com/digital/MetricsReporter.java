@@ -0,0 +1,254 @@
+package com.digital;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes a {@link SyncMetrics} while a pipeline runs: a progress line on stdout every
+ * interval, the metrics as a JMX MBean, and optionally a Prometheus text-format file (for the
+ * node_exporter textfile collector or a plain {@code cat}).
+ *
+ * <p>The stdout line shows the last interval (rows/s and p50/p99 latencies since the previous
+ * line) so slowdowns stand out; JMX and the Prometheus file are cumulative. The file is
+ * rewritten through a temporary file and an atomic move, so a scraper never sees half of
+ * it.</p>
+ */
+public class MetricsReporter implements AutoCloseable {
+    private static final String PREFIX = "csvsync_";
+
+    private final SyncMetrics metrics;
+    private final String name;
+    private final int intervalSeconds;
+    private final Path prometheusFile;
+    private ScheduledExecutorService scheduler;
+    private ObjectName objectName;
+    private boolean closed;
+
+    // State of the previous stdout line, guarded by this
+    private long lastNanos;
+    private long lastCommitted;
+    private long[] lastReadBatch;
+    private long[] lastExecuteBatch;
+    private long[] lastCommit;
+    private long[] lastConnectionWait;
+
+    /**
+     * @param intervalSeconds seconds between reports; 0 disables the periodic line and file
+     * @param prometheusFile  file to keep up to date, or {@code null} for none
+     */
+    public MetricsReporter(SyncMetrics metrics, String name, int intervalSeconds, Path prometheusFile) {
+        this.metrics = metrics;
+        this.name = name;
+        this.intervalSeconds = intervalSeconds;
+        this.prometheusFile = prometheusFile;
+        this.lastNanos = System.nanoTime();
+        this.lastReadBatch = metrics.readBatch().snapshot();
+        this.lastExecuteBatch = metrics.executeBatch().snapshot();
+        this.lastCommit = metrics.commit().snapshot();
+        this.lastConnectionWait = metrics.connectionWait().snapshot();
+    }
+
+    public void start() {
+        try {
+            objectName = new ObjectName("com.digital:type=SyncMetrics,name=" + ObjectName.quote(name));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, objectName);
+        } catch (JMException e) {
+            System.err.println("Metrics not registered with JMX: " + e.getMessage());
+            objectName = null;
+        }
+
+        if (intervalSeconds > 0) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "metrics-reporter");
+                thread.setDaemon(true); // Never keeps a finished tool alive
+                return thread;
+            });
+            scheduler.scheduleAtFixedRate(this::report, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Stops reporting, prints a summary of the whole run and writes the final file.
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        double seconds = metrics.elapsedNanos() / 1e9;
+        System.out.printf(Locale.ROOT, "[%s] %d rows read, %d parsed, %d rejected, %d committed in %.1f s (%.0f rows/s)%s%s%s%s%n",
+                name, metrics.getRowsRead(), metrics.getRowsParsed(), metrics.getRowsRejected(),
+                metrics.getRowsCommitted(), seconds, metrics.getRowsPerSecond(),
+                latency("read", metrics.readBatch().snapshot()),
+                latency("executeBatch", metrics.executeBatch().snapshot()),
+                latency("commit", metrics.commit().snapshot()),
+                latency("connection wait", metrics.connectionWait().snapshot()));
+        writePrometheusFile();
+
+        if (objectName != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+            } catch (JMException e) {
+                System.err.println("Metrics not unregistered from JMX: " + e.getMessage());
+            }
+        }
+    }
+
+    private synchronized void report() {
+        if (closed) {
+            return;
+        }
+        long now = System.nanoTime();
+        long committed = metrics.getRowsCommitted();
+        long[] readBatch = metrics.readBatch().snapshot();
+        long[] executeBatch = metrics.executeBatch().snapshot();
+        long[] commit = metrics.commit().snapshot();
+        long[] connectionWait = metrics.connectionWait().snapshot();
+        double seconds = (now - lastNanos) / 1e9;
+
+        StringBuilder line = new StringBuilder();
+        line.append(String.format(Locale.ROOT, "[%s] %d rows committed, %.0f rows/s", name, committed,
+                (committed - lastCommitted) / Math.max(1e-9, seconds)));
+        line.append(latency("read", LatencyHistogram.difference(readBatch, lastReadBatch)));
+        line.append(latency("executeBatch", LatencyHistogram.difference(executeBatch, lastExecuteBatch)));
+        line.append(latency("commit", LatencyHistogram.difference(commit, lastCommit)));
+        line.append(latency("connection wait", LatencyHistogram.difference(connectionWait, lastConnectionWait)));
+        for (SyncMetrics.Queue queue : metrics.queues()) {
+            line.append(" | ").append(queue.stage()).append(" queue ")
+                    .append(queue.depth().getAsInt()).append('/').append(queue.capacity());
+        }
+        for (SyncMetrics.Pool pool : metrics.pools()) {
+            line.append(" | ").append(pool.name()).append(" pool ").append(pool.active().getAsInt()).append('/')
+                    .append(pool.size()).append(" busy, ").append(pool.waiting().getAsInt()).append(" waiting");
+        }
+        double progress = metrics.progress();
+        if (!Double.isNaN(progress)) {
+            line.append(String.format(Locale.ROOT, " | %.0f%%", progress * 100));
+            long eta = metrics.etaSeconds();
+            if (eta >= 0) {
+                line.append(", ETA ").append(eta / 60).append('m').append(eta % 60).append('s');
+            }
+        }
+        System.out.println(line);
+
+        lastNanos = now;
+        lastCommitted = committed;
+        lastReadBatch = readBatch;
+        lastExecuteBatch = executeBatch;
+        lastCommit = commit;
+        lastConnectionWait = connectionWait;
+        writePrometheusFile();
+    }
+
+    private static String latency(String label, long[] snapshot) {
+        if (LatencyHistogram.count(snapshot) == 0) {
+            return "";
+        }
+        return String.format(Locale.ROOT, " | %s p50 %.1f ms p99 %.1f ms", label,
+                LatencyHistogram.percentile(snapshot, 0.50) / 1e6, LatencyHistogram.percentile(snapshot, 0.99) / 1e6);
+    }
+
+    private void writePrometheusFile() {
+        if (prometheusFile == null) {
+            return;
+        }
+        String job = "job=\"" + name.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n") + "\"";
+        StringBuilder text = new StringBuilder();
+
+        text.append("# HELP ").append(PREFIX).append("rows_total Rows that reached each stage.\n");
+        text.append("# TYPE ").append(PREFIX).append("rows_total counter\n");
+        appendRows(text, job, "read", metrics.getRowsRead());
+        appendRows(text, job, "parsed", metrics.getRowsParsed());
+        appendRows(text, job, "rejected", metrics.getRowsRejected());
+        appendRows(text, job, "bound", metrics.getRowsBound());
+        appendRows(text, job, "committed", metrics.getRowsCommitted());
+
+        text.append("# HELP ").append(PREFIX).append("file_bytes_total Bytes read from and written to files.\n");
+        text.append("# TYPE ").append(PREFIX).append("file_bytes_total counter\n");
+        text.append(PREFIX).append("file_bytes_total{").append(job).append("} ").append(metrics.getFileBytes()).append('\n');
+
+        text.append("# HELP ").append(PREFIX).append("batch_seconds Time per batch for each operation.\n");
+        text.append("# TYPE ").append(PREFIX).append("batch_seconds summary\n");
+        appendSummary(text, "batch_seconds", job + ",operation=\"read\"", metrics.readBatch());
+        appendSummary(text, "batch_seconds", job + ",operation=\"execute_batch\"", metrics.executeBatch());
+        appendSummary(text, "batch_seconds", job + ",operation=\"commit\"", metrics.commit());
+
+        if (!metrics.pools().isEmpty()) {
+            text.append("# HELP ").append(PREFIX).append("connection_wait_seconds Time to get a pooled connection.\n");
+            text.append("# TYPE ").append(PREFIX).append("connection_wait_seconds summary\n");
+            appendSummary(text, "connection_wait_seconds", job, metrics.connectionWait());
+            text.append("# HELP ").append(PREFIX).append("connection_timeouts_total Connection requests that timed out.\n");
+            text.append("# TYPE ").append(PREFIX).append("connection_timeouts_total counter\n");
+            text.append(PREFIX).append("connection_timeouts_total{").append(job).append("} ")
+                    .append(metrics.getConnectionTimeouts()).append('\n');
+            text.append("# HELP ").append(PREFIX).append("pool_connections Connections in each pool, by state.\n");
+            text.append("# TYPE ").append(PREFIX).append("pool_connections gauge\n");
+            for (SyncMetrics.Pool pool : metrics.pools()) {
+                int active = pool.active().getAsInt();
+                appendPool(text, job, pool.name(), "active", active);
+                appendPool(text, job, pool.name(), "idle", pool.size() - active);
+            }
+            text.append("# HELP ").append(PREFIX).append("pool_waiting_threads Threads blocked waiting for a connection.\n");
+            text.append("# TYPE ").append(PREFIX).append("pool_waiting_threads gauge\n");
+            for (SyncMetrics.Pool pool : metrics.pools()) {
+                text.append(PREFIX).append("pool_waiting_threads{").append(job).append(",pool=\"").append(pool.name())
+                        .append("\"} ").append(pool.waiting().getAsInt()).append('\n');
+            }
+        }
+
+        text.append("# HELP ").append(PREFIX).append("queued_batches Batches waiting in front of each stage.\n");
+        text.append("# TYPE ").append(PREFIX).append("queued_batches gauge\n");
+        for (SyncMetrics.Queue queue : metrics.queues()) {
+            text.append(PREFIX).append("queued_batches{").append(job).append(",stage=\"").append(queue.stage())
+                    .append("\"} ").append(queue.depth().getAsInt()).append('\n');
+        }
+
+        double progress = metrics.progress();
+        if (!Double.isNaN(progress)) {
+            text.append("# HELP ").append(PREFIX).append("progress_ratio Completed fraction of the input.\n");
+            text.append("# TYPE ").append(PREFIX).append("progress_ratio gauge\n");
+            text.append(PREFIX).append("progress_ratio{").append(job).append("} ").append(progress).append('\n');
+        }
+
+        try {
+            Path temporary = prometheusFile.resolveSibling(prometheusFile.getFileName() + ".tmp");
+            Files.writeString(temporary, text, StandardCharsets.UTF_8);
+            Files.move(temporary, prometheusFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Error writing metrics to " + prometheusFile + ": " + e.getMessage());
+        }
+    }
+
+    private static void appendRows(StringBuilder text, String job, String stage, long rows) {
+        text.append(PREFIX).append("rows_total{").append(job).append(",stage=\"").append(stage).append("\"} ")
+                .append(rows).append('\n');
+    }
+
+    private static void appendPool(StringBuilder text, String job, String pool, String state, int connections) {
+        text.append(PREFIX).append("pool_connections{").append(job).append(",pool=\"").append(pool)
+                .append("\",state=\"").append(state).append("\"} ").append(connections).append('\n');
+    }
+
+    private static void appendSummary(StringBuilder text, String metric, String labels, LatencyHistogram histogram) {
+        long[] snapshot = histogram.snapshot();
+        for (double quantile : new double[]{0.5, 0.99}) {
+            text.append(PREFIX).append(metric).append('{').append(labels).append(",quantile=\"").append(quantile)
+                    .append("\"} ").append(LatencyHistogram.percentile(snapshot, quantile) / 1e9).append('\n');
+        }
+        text.append(PREFIX).append(metric).append("_sum{").append(labels).append("} ")
+                .append(histogram.totalNanos() / 1e9).append('\n');
+        text.append(PREFIX).append(metric).append("_count{").append(labels).append("} ")
+                .append(LatencyHistogram.count(snapshot)).append('\n');
+    }
+}
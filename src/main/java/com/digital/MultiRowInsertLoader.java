@@ -0,0 +1,108 @@
+package com.digital;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Sends explicit multi-row statements, {@code INSERT ... VALUES (?, ?, ?, ?), (?, ?, ?, ?), ...},
+ * so batching does not depend on driver-side rewriting.
+ *
+ * <p>The number of rows per statement is chosen so that a statement full of maximum-width rows
+ * still fits in the server's {@code max_allowed_packet}, and never exceeds the 65,535 bind
+ * parameter limit. Statements are cached by row count; a batch normally needs only the full
+ * size plus one tail size.</p>
+ */
+public class MultiRowInsertLoader implements BulkLoader {
+    // Widest possible row: VARCHAR(250) + 2 x VARCHAR(100) at 4 bytes per char, an INT, a BIGINT id and framing
+    static final int MAX_ROW_BYTES = (250 + 100 + 100) * 4 + 11 + 20 + 32;
+    static final long DEFAULT_MAX_PACKET = 4L << 20; // MySQL 5.7 default, used when the server won't say
+    private static final int MAX_PARAMETERS = 65_535;
+
+    private final Connection connection;
+    private final String table;
+    private final boolean withIds;
+    private final int rowsPerStatement;
+    private final Map<Integer, PreparedStatement> statements = new HashMap<>();
+
+    public MultiRowInsertLoader(Connection connection, String table) throws SQLException {
+        this(connection, table, false);
+    }
+
+    /**
+     * @param withIds insert each row's id too, see {@link BulkLoaders#create(String, Connection, String, boolean)}
+     */
+    public MultiRowInsertLoader(Connection connection, String table, boolean withIds) throws SQLException {
+        this.connection = connection;
+        this.table = table;
+        this.withIds = withIds;
+        int columns = withIds ? 5 : 4;
+        long packetBudget = maxAllowedPacket(connection) * 9 / 10; // Leave headroom for the statement text
+        this.rowsPerStatement = (int) Math.max(1, Math.min(MAX_PARAMETERS / columns, packetBudget / MAX_ROW_BYTES));
+    }
+
+    public int rowsPerStatement() {
+        return rowsPerStatement;
+    }
+
+    @Override
+    public int load(RowBatch batch, int from, int to) throws SQLException {
+        for (int start = from; start < to; start += rowsPerStatement) {
+            int rows = Math.min(rowsPerStatement, to - start);
+            PreparedStatement statement = statementFor(rows);
+            int parameter = 1;
+            for (int row = start; row < start + rows; row++) {
+                if (withIds) {
+                    BulkLoaders.bindId(statement, parameter++, batch.id(row));
+                }
+                statement.setString(parameter++, batch.name(row));
+                statement.setString(parameter++, batch.email(row));
+                statement.setString(parameter++, batch.address(row));
+                statement.setInt(parameter++, batch.age(row));
+            }
+            statement.executeUpdate();
+        }
+        return to - from;
+    }
+
+    private PreparedStatement statementFor(int rows) throws SQLException {
+        PreparedStatement statement = statements.get(rows);
+        if (statement == null) {
+            String values = withIds ? "(?, ?, ?, ?, ?)" : "(?, ?, ?, ?)";
+            StringBuilder sql = new StringBuilder(64 + rows * (values.length() + 2))
+                    .append("INSERT INTO ").append(table).append(" (").append(BulkLoaders.columns(withIds))
+                    .append(") VALUES ");
+            for (int row = 0; row < rows; row++) {
+                sql.append(row == 0 ? "" : ", ").append(values);
+            }
+            statement = connection.prepareStatement(sql.toString());
+            statements.put(rows, statement);
+        }
+        return statement;
+    }
+
+    /**
+     * Reads {@code @@max_allowed_packet}, falling back to a conservative default on databases
+     * that don't have it (for example an embedded test database).
+     */
+    static long maxAllowedPacket(Connection connection) {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT @@max_allowed_packet")) {
+            return resultSet.next() ? resultSet.getLong(1) : DEFAULT_MAX_PACKET;
+        } catch (SQLException e) {
+            return DEFAULT_MAX_PACKET;
+        }
+    }
+
+    @Override
+    public void close() throws SQLException {
+        for (PreparedStatement statement : statements.values()) {
+            statement.close();
+        }
+        statements.clear();
+    }
+}
@@ -0,0 +1,102 @@
+package com.digital;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A set of 64-bit hashes kept in direct memory, for remembering tens of millions of keys
+ * without an object per key on the heap or any garbage while adding them.
+ *
+ * <p>An open-addressing table with linear probing: every slot is one 8-byte hash, 0 meaning
+ * empty. {@link #add(long)} claims an empty slot with a compare-and-set, so any number of
+ * threads add and look up keys at once without a lock; a thread that loses the race for a slot
+ * sees the winner's key there and carries on from it. Hashes must already be well mixed, such
+ * as {@link RowHashIndex#hash(String)}, since their low bits pick the slot.</p>
+ *
+ * <p>The table never grows. It is sized for {@code expectedKeys} at a load of at most 3/4,
+ * 11 to 21 bytes per key, and {@link #add(long)} throws once every slot is taken. The memory
+ * is counted against {@code -XX:MaxDirectMemorySize} and freed when the set is collected.</p>
+ */
+public final class OffHeapHashSet {
+    private static final VarHandle SLOTS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+    private static final int SEGMENT_SHIFT = 27; // 2^27 slots (1 GB) per direct buffer, below its 2 GB limit
+    private static final long SEGMENT_MASK = (1L << SEGMENT_SHIFT) - 1;
+    private static final long EMPTY = 0;
+    private static final long ZERO_HASH = 0x9E3779B97F4A7C15L; // Stored in place of a hash of 0, which marks empty
+
+    private final ByteBuffer[] segments;
+    private final long mask;
+    private final LongAdder size = new LongAdder();
+
+    public OffHeapHashSet(long expectedKeys) {
+        long capacity = Long.highestOneBit(Math.max(16, expectedKeys + expectedKeys / 3) - 1) << 1;
+        int segmentSlots = (int) Math.min(capacity, 1L << SEGMENT_SHIFT);
+        this.segments = new ByteBuffer[(int) (capacity / segmentSlots)];
+        for (int i = 0; i < segments.length; i++) {
+            // Direct buffers start zeroed, i.e. empty; aligned so every slot can be swapped atomically
+            segments[i] = ByteBuffer.allocateDirect(segmentSlots * 8 + 7).alignedSlice(8);
+        }
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * Adds {@code hash}; true if it was not in the set yet.
+     *
+     * @throws IllegalStateException if the set is full
+     */
+    public boolean add(long hash) {
+        long key = hash == EMPTY ? ZERO_HASH : hash;
+        long slot = key & mask;
+        for (long probes = 0; probes <= mask; probes++) {
+            ByteBuffer segment = segments[(int) (slot >>> SEGMENT_SHIFT)];
+            int offset = (int) (slot & SEGMENT_MASK) << 3;
+            long current = (long) SLOTS.getAcquire(segment, offset);
+            if (current == EMPTY) {
+                current = (long) SLOTS.compareAndExchange(segment, offset, EMPTY, key);
+                if (current == EMPTY) {
+                    size.increment();
+                    return true;
+                }
+            }
+            if (current == key) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        throw new IllegalStateException("Hash set full at " + capacity() + " keys; size it for more");
+    }
+
+    public boolean contains(long hash) {
+        long key = hash == EMPTY ? ZERO_HASH : hash;
+        long slot = key & mask;
+        for (long probes = 0; probes <= mask; probes++) {
+            long current = (long) SLOTS.getAcquire(segments[(int) (slot >>> SEGMENT_SHIFT)], (int) (slot & SEGMENT_MASK) << 3);
+            if (current == key) {
+                return true;
+            }
+            if (current == EMPTY) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    public long size() {
+        return size.sum();
+    }
+
+    public long capacity() {
+        return mask + 1;
+    }
+
+    /**
+     * Direct memory held by the table.
+     */
+    public long bytes() {
+        return capacity() * 8;
+    }
+}
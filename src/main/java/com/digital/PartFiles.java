@@ -0,0 +1,96 @@
+package com.digital;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Helpers for writing a file as independent part files and stitching them together.
+ *
+ * <p>Each writer thread owns its part file, so no lock is needed while writing. The final
+ * stage copies the parts into the target in order with {@link FileChannel#transferTo}, which
+ * lets the kernel move the bytes without copying them through the Java heap.</p>
+ */
+public final class PartFiles {
+
+    private PartFiles() {
+    }
+
+    /**
+     * Directory holding the parts of {@code target}, e.g. {@code advanced.csv.parts}.
+     */
+    public static Path partsDirectory(Path target) {
+        Path absolute = target.toAbsolutePath();
+        return absolute.resolveSibling(absolute.getFileName() + ".parts");
+    }
+
+    public static Path partPath(Path partsDirectory, int index) {
+        return partsDirectory.resolve(String.format("part-%08d", index));
+    }
+
+    /**
+     * Creates an empty parts directory, removing parts left over from an earlier run.
+     */
+    public static Path createPartsDirectory(Path target) throws IOException {
+        Path directory = partsDirectory(target);
+        deleteDirectory(directory);
+        return Files.createDirectories(directory);
+    }
+
+    /**
+     * Writes {@code header} followed by every part, in list order, to {@code target}, replacing it.
+     */
+    public static long concatenate(Path target, byte[] header, List<Path> parts) throws IOException {
+        try (FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer headerBuffer = ByteBuffer.wrap(header);
+            while (headerBuffer.hasRemaining()) {
+                out.write(headerBuffer);
+            }
+            copyParts(parts, out);
+            return out.size();
+        }
+    }
+
+    /**
+     * Appends every part, in list order, to the end of {@code target}.
+     *
+     * @return the new size of {@code target}
+     */
+    public static long append(Path target, List<Path> parts) throws IOException {
+        try (FileChannel out = FileChannel.open(target, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            copyParts(parts, out);
+            out.force(false); // A delta watermark recorded next must not point past what is on disk
+            return out.size();
+        }
+    }
+
+    private static void copyParts(List<Path> parts, FileChannel out) throws IOException {
+        for (Path part : parts) {
+            try (FileChannel in = FileChannel.open(part, StandardOpenOption.READ)) {
+                long size = in.size();
+                long position = 0;
+                while (position < size) {
+                    // transferTo may move fewer bytes than asked for, so loop until the part is copied
+                    position += in.transferTo(position, size - position, out);
+                }
+            }
+        }
+    }
+
+    public static void deleteDirectory(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        try (var entries = Files.list(directory)) {
+            for (Path entry : (Iterable<Path>) entries::iterator) {
+                Files.delete(entry);
+            }
+        }
+        Files.delete(directory);
+    }
+}
@@ -0,0 +1,553 @@
+package com.digital;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.nio.file.Path;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A staged Source &rarr; Transform* &rarr; Sink engine shared by all the tools.
+ *
+ * <p>Each stage runs on its own set of worker threads and stages are connected by bounded
+ * queues, so a slow stage blocks the one before it instead of letting batches pile up in
+ * memory. Source workers pull splits from a shared queue, which balances uneven splits.</p>
+ *
+ * <p>Completion travels down the stages: when the last worker of a stage finishes, it sends
+ * an end marker to every consumer of the next one. The first failure anywhere is recorded,
+ * all workers are interrupted, and {@link #run()} rethrows it; the sink is only
+ * {@linkplain Sink#finish() finished} if everything succeeded. Queue waits also poll the
+ * failure flag, because JDBC drivers are known to swallow interrupts.</p>
+ *
+ * <p>With {@link #virtualThreads(int)} every split and every sink batch runs on its own virtual
+ * thread instead of a fixed pool. Semaphores, not thread counts, then bound the work: the
+ * source parallelism for splits, and the given limit (normally the connection pool size) for
+ * batches being written. Sink writers are pooled and handed from one batch's thread to the
+ * next, so a writer is still only used by one thread at a time. Ordered sinks keep one
+ * virtual thread per writer, because a split's batches must reach its writer in order.
+ * Nothing the pipeline runs blocks while holding a monitor, so virtual threads don't pin
+ * their carriers; run with {@code -Djdk.tracePinnedThreads=short} to check a new sink or
+ * driver.</p>
+ *
+ * <p>With {@link #checkpoint} the run keeps a {@link CheckpointJournal}: finished splits are
+ * skipped on {@code resume}, the others continue after their last committed batch, and the
+ * journal is deleted once the run succeeds.</p>
+ *
+ * <p>Every run is measured in a {@link SyncMetrics} and published by a
+ * {@link MetricsReporter}: a line on stdout every {@link #reportEvery(int)} seconds, a JMX
+ * MBean, and optionally a Prometheus text file.</p>
+ *
+ * <pre>{@code
+ * new Pipeline(new CsvFileSource(...), new JdbcTableSink(...))
+ *         .sourceParallelism(1)
+ *         .sinkParallelism(10)
+ *         .run();
+ * }</pre>
+ */
+public class Pipeline {
+    private final Source source;
+    private final Sink sink;
+    private final List<Transform> transforms = new ArrayList<>();
+    private final List<Integer> transformParallelism = new ArrayList<>();
+    private int sourceParallelism = 1;
+    private int sinkParallelism = 1;
+    private int queueCapacity = 16;
+    private int virtualConcurrency; // Batches written at once in virtual-thread mode; 0 uses fixed pools
+    private String name = "pipeline";
+    private int reportIntervalSeconds = 10;
+    private Path prometheusFile;
+    private Path checkpointFile;
+    private String checkpointJob;
+    private boolean resume;
+    private CheckpointJournal journal;
+
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private final SyncMetrics metrics = new SyncMetrics();
+    private final LongAdder rowsWritten = new LongAdder();
+    private ExecutorService executor;
+    private final Phaser runningTasks = new Phaser(1); // The caller of run() plus every submitted task
+
+    public Pipeline(Source source, Sink sink) {
+        this.source = source;
+        this.sink = sink;
+    }
+
+    public Pipeline sourceParallelism(int threads) {
+        this.sourceParallelism = Math.max(1, threads);
+        return this;
+    }
+
+    public Pipeline sinkParallelism(int threads) {
+        this.sinkParallelism = Math.max(1, threads);
+        return this;
+    }
+
+    /**
+     * Runs splits and sink batches on virtual threads, writing at most {@code maxConcurrency}
+     * batches at once; size it to the connection pool. Ordered sinks still use
+     * {@link #sinkParallelism(int)} writers. 0 keeps the fixed thread pools.
+     */
+    public Pipeline virtualThreads(int maxConcurrency) {
+        this.virtualConcurrency = Math.max(0, maxConcurrency);
+        return this;
+    }
+
+    /**
+     * Number of batches each queue between two stages may hold.
+     */
+    public Pipeline queueCapacity(int batches) {
+        this.queueCapacity = Math.max(1, batches);
+        return this;
+    }
+
+    /**
+     * Name used in the progress lines, the JMX object name and the Prometheus job label.
+     */
+    public Pipeline name(String name) {
+        this.name = name;
+        return this;
+    }
+
+    /**
+     * Seconds between progress lines and Prometheus file updates; 0 only reports at the end.
+     */
+    public Pipeline reportEvery(int seconds) {
+        this.reportIntervalSeconds = Math.max(0, seconds);
+        return this;
+    }
+
+    /**
+     * Keeps {@code file} up to date with the metrics in Prometheus text format; {@code null}
+     * for none.
+     */
+    public Pipeline prometheusFile(Path file) {
+        this.prometheusFile = file;
+        return this;
+    }
+
+    /**
+     * Records progress in {@code file} after every commit. With {@code resume}, continues the
+     * run recorded there instead of starting over.
+     *
+     * @param job describes the input and plan; a journal for a different job is refused
+     */
+    public Pipeline checkpoint(Path file, String job, boolean resume) {
+        this.checkpointFile = file;
+        this.checkpointJob = job;
+        this.resume = resume;
+        return this;
+    }
+
+    public SyncMetrics metrics() {
+        return metrics;
+    }
+
+    /**
+     * Adds a transform stage after the previously added ones.
+     */
+    public Pipeline transform(Transform transform, int threads) {
+        transforms.add(transform);
+        transformParallelism.add(Math.max(1, threads));
+        return this;
+    }
+
+    /**
+     * Outcome of a successful run.
+     */
+    public record Result(long rowsRead, long rowsWritten, long elapsedMillis) {
+    }
+
+    public Result run() throws Exception {
+        long startTime = System.currentTimeMillis();
+        try (source;
+             MetricsReporter reporter = new MetricsReporter(metrics, name, reportIntervalSeconds, prometheusFile)) {
+            source.instrument(metrics);
+            sink.instrument(metrics);
+            metrics.progress(source::progress);
+            List<? extends Source.Split> splits = source.splits();
+            if (checkpointFile != null) {
+                journal = new CheckpointJournal(checkpointFile, checkpointJob);
+                journal.open(splits.size(), resume);
+                sink.checkpoint(journal);
+            }
+            sink.prepare(splits.size());
+
+            // channels[i] feeds transform i, and the last channel feeds the sink
+            int stageCount = transforms.size() + 1;
+            int sourceWorkers = Math.max(1, Math.min(sourceParallelism, splits.size()));
+            boolean virtual = virtualConcurrency > 0;
+            // In virtual-thread mode one coordinator feeds the source side and one dispatcher drains an unordered sink
+            int sinkConsumers = virtual && !sink.ordered() ? 1 : sinkParallelism;
+            Channel[] channels = new Channel[stageCount];
+            int producers = virtual ? 1 : sourceWorkers;
+            for (int stage = 0; stage < stageCount; stage++) {
+                int consumers = stage < transforms.size() ? transformParallelism.get(stage) : sinkConsumers;
+                channels[stage] = new Channel(sink.ordered(), producers, consumers, queueCapacity, failure);
+                metrics.addQueue(stage < transforms.size() ? "transform" + stage : "sink",
+                        channels[stage]::depth, channels[stage].capacity());
+                producers = consumers;
+            }
+
+            int threadCount = sourceWorkers + sinkParallelism;
+            for (int threads : transformParallelism) {
+                threadCount += threads;
+            }
+            executor = virtual
+                    ? Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("worker-", 1).factory())
+                    : Executors.newFixedThreadPool(threadCount, new StageThreadFactory());
+            reporter.start();
+
+            ConcurrentLinkedQueue<Integer> pendingSplits = new ConcurrentLinkedQueue<>();
+            for (int i = 0; i < splits.size(); i++) {
+                if (journal == null || !journal.isFinished(i)) {
+                    pendingSplits.add(i);
+                }
+            }
+            if (virtual) {
+                submit("source", () -> readSplitsConcurrently(splits, pendingSplits, sourceWorkers, channels[0]));
+            } else {
+                for (int worker = 0; worker < sourceWorkers; worker++) {
+                    submit("source", () -> readSplits(splits, pendingSplits, channels[0]));
+                }
+            }
+            for (int stage = 0; stage < transforms.size(); stage++) {
+                for (int worker = 0; worker < transformParallelism.get(stage); worker++) {
+                    int transformIndex = stage;
+                    int consumer = worker;
+                    submit("transform" + stage, () -> applyTransform(transforms.get(transformIndex),
+                            channels[transformIndex], consumer, channels[transformIndex + 1]));
+                }
+            }
+            if (virtual && !sink.ordered()) {
+                submit("sink", () -> dispatchBatches(channels[stageCount - 1]));
+            } else {
+                for (int worker = 0; worker < sinkParallelism; worker++) {
+                    int consumer = worker;
+                    submit("sink", () -> writeBatches(channels[stageCount - 1], consumer));
+                }
+            }
+
+            // Workers may still submit tasks (splits and batches in virtual-thread mode), so wait for
+            // every task to finish before shutting down; after a failure the executor is already shut down
+            int phase = runningTasks.arrive();
+            while (failure.get() == null) {
+                try {
+                    runningTasks.awaitAdvanceInterruptibly(phase, Channel.WAIT_MILLIS, TimeUnit.MILLISECONDS);
+                    break;
+                } catch (TimeoutException e) {
+                    // Check for a failure and keep waiting
+                }
+            }
+            executor.shutdown();
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+
+            Throwable error = failure.get();
+            if (error != null && journal != null) {
+                journal.flush();
+                System.err.println("Checkpoint kept at " + journal.file() + "; rerun with --resume to continue");
+            }
+            if (error instanceof Exception exception) {
+                throw exception;
+            } else if (error != null) {
+                throw (Error) error;
+            }
+            sink.finish();
+            if (journal != null) {
+                journal.delete();
+            }
+        } finally {
+            if (executor != null) {
+                executor.shutdownNow();
+            }
+        }
+        return new Result(metrics.getRowsParsed(), rowsWritten.sum(), System.currentTimeMillis() - startTime);
+    }
+
+    private void readSplits(List<? extends Source.Split> splits, ConcurrentLinkedQueue<Integer> pending, Channel out)
+            throws Exception {
+        Integer split;
+        while ((split = pending.poll()) != null) {
+            readSplit(splits, split, out);
+        }
+        out.producerDone();
+    }
+
+    /**
+     * Virtual-thread mode: one virtual thread per split, at most {@code parallelism} at a time.
+     */
+    private void readSplitsConcurrently(List<? extends Source.Split> splits, ConcurrentLinkedQueue<Integer> pending,
+                                        int parallelism, Channel out) throws Exception {
+        Semaphore permits = new Semaphore(parallelism);
+        CountDownLatch done = new CountDownLatch(pending.size());
+        for (int split : pending) {
+            acquire(permits, 1);
+            submit("source", () -> {
+                try {
+                    readSplit(splits, split, out);
+                } finally {
+                    permits.release();
+                    done.countDown();
+                }
+            });
+        }
+        while (!done.await(Channel.WAIT_MILLIS, TimeUnit.MILLISECONDS)) {
+            checkNotAborted();
+        }
+        out.producerDone();
+    }
+
+    private void readSplit(List<? extends Source.Split> splits, int index, Channel out) throws Exception {
+        long[] batchStart = {System.nanoTime()};
+        int[] sequence = {0};
+        long resumeFrom = journal == null ? CheckpointJournal.START : journal.position(index);
+        splits.get(index).read(resumeFrom, batch -> {
+            // Time to produce the batch, leaving out time blocked on a full queue
+            metrics.readBatch().record(System.nanoTime() - batchStart[0]);
+            metrics.rowsRead().add(batch.size());
+            metrics.rowsParsed().add(batch.size());
+            batch.sequence(sequence[0]++);
+            if (journal != null && journal.skip(index, batch)) {
+                journal.committed(index, batch, 0); // Committed by the previous run
+            } else {
+                out.send(new Item(index, batch));
+            }
+            batchStart[0] = System.nanoTime();
+        });
+        if (journal != null) {
+            journal.sourceFinished(index, sequence[0]);
+        }
+        out.send(new Item(index, null)); // End of split
+    }
+
+    private void applyTransform(Transform transform, Channel in, int consumer, Channel out) throws Exception {
+        Item item;
+        while (!(item = in.receive(consumer)).last()) {
+            if (item.batch() == null) {
+                out.send(item);
+                continue;
+            }
+            RowBatch batch = item.batch();
+            RowBatch result = transform.apply(batch);
+            if (result != null && !result.isEmpty()) {
+                result.position(batch.position());
+                result.sequence(batch.sequence());
+                out.send(new Item(item.split(), result));
+            } else if (journal != null) {
+                // The sink never sees a dropped batch, but the journal must still count it as done
+                RowBatch empty = new RowBatch(0);
+                empty.position(batch.position());
+                empty.sequence(batch.sequence());
+                out.send(new Item(item.split(), empty));
+            }
+        }
+        out.producerDone();
+    }
+
+    private void writeBatches(Channel in, int consumer) throws Exception {
+        try (Sink.Writer writer = sink.newWriter()) {
+            Item item;
+            while (!(item = in.receive(consumer)).last()) {
+                if (item.batch() == null) {
+                    writer.splitFinished(item.split());
+                } else {
+                    writer.write(item.split(), item.batch());
+                    rowsWritten.add(item.batch().size());
+                }
+            }
+        }
+    }
+
+    /**
+     * Virtual-thread mode for unordered sinks: each batch is written on its own virtual thread
+     * by a pooled writer, with at most {@link #virtualConcurrency} batches in flight.
+     */
+    private void dispatchBatches(Channel in) throws Exception {
+        Semaphore permits = new Semaphore(virtualConcurrency);
+        ConcurrentLinkedQueue<Sink.Writer> idleWriters = new ConcurrentLinkedQueue<>();
+        ConcurrentLinkedQueue<Sink.Writer> writers = new ConcurrentLinkedQueue<>();
+        try {
+            Item item;
+            while (!(item = in.receive(0)).last()) {
+                if (item.batch() == null) {
+                    continue; // End of a split only matters to ordered sinks
+                }
+                acquire(permits, 1); // Backpressure: the channel fills up while every permit is taken
+                Item batch = item;
+                submit("sink", () -> {
+                    try {
+                        Sink.Writer writer = idleWriters.poll();
+                        if (writer == null) {
+                            writer = sink.newWriter();
+                            writers.add(writer);
+                        }
+                        writer.write(batch.split(), batch.batch());
+                        rowsWritten.add(batch.batch().size());
+                        idleWriters.add(writer); // Only returned after a clean write
+                    } finally {
+                        permits.release();
+                    }
+                });
+            }
+            acquire(permits, virtualConcurrency); // Every batch has been written
+        } finally {
+            if (failure.get() != null) {
+                permits.tryAcquire(virtualConcurrency, 10, TimeUnit.SECONDS); // Let aborted writes unwind first
+            }
+            Exception closeFailure = null;
+            for (Sink.Writer writer : writers) {
+                try {
+                    writer.close();
+                } catch (Exception e) {
+                    closeFailure = e;
+                }
+            }
+            if (closeFailure != null && failure.get() == null) {
+                throw closeFailure;
+            }
+        }
+    }
+
+    // Semaphore waits poll the failure flag for the same reason queue waits do
+    private void acquire(Semaphore permits, int count) throws InterruptedException {
+        while (!permits.tryAcquire(count, Channel.WAIT_MILLIS, TimeUnit.MILLISECONDS)) {
+            checkNotAborted();
+        }
+    }
+
+    private void checkNotAborted() throws InterruptedException {
+        if (failure.get() != null) {
+            throw new InterruptedException("Pipeline aborted");
+        }
+    }
+
+    private void submit(String stage, Work work) {
+        runningTasks.register();
+        try {
+            executor.execute(() -> {
+                Thread.currentThread().setName(stage + "-" + Thread.currentThread().getName());
+                try {
+                    work.run();
+                } catch (InterruptedException e) {
+                    // Interrupted because another worker failed; that failure is the one reported
+                    Thread.currentThread().interrupt();
+                } catch (Throwable t) {
+                    if (failure.compareAndSet(null, t)) {
+                        executor.shutdownNow(); // Unblock every other worker
+                    }
+                } finally {
+                    runningTasks.arriveAndDeregister();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            runningTasks.arriveAndDeregister();
+            throw e;
+        }
+    }
+
+    private interface Work {
+        void run() throws Exception;
+    }
+
+    /**
+     * A batch tagged with its split. A {@code null} batch marks the end of that split, or the
+     * end of all input for one consumer if {@code last} is set.
+     */
+    private record Item(int split, RowBatch batch, boolean last) {
+        Item(int split, RowBatch batch) {
+            this(split, batch, false);
+        }
+    }
+
+    /**
+     * Bounded hand-off between two stages. Unordered channels share one queue among all
+     * consumers; ordered channels give each consumer its own queue and route by split, so the
+     * batches of a split keep their order.
+     */
+    private static final class Channel {
+        private static final long WAIT_MILLIS = 100;
+
+        private final List<BlockingQueue<Item>> queues;
+        private final int consumers;
+        private final AtomicInteger openProducers;
+        private final AtomicReference<Throwable> failure;
+
+        Channel(boolean ordered, int producers, int consumers, int capacity, AtomicReference<Throwable> failure) {
+            int queueCount = ordered ? consumers : 1;
+            this.queues = new ArrayList<>(queueCount);
+            for (int i = 0; i < queueCount; i++) {
+                queues.add(new ArrayBlockingQueue<>(ordered ? Math.max(2, capacity / consumers) : capacity));
+            }
+            this.consumers = consumers;
+            this.openProducers = new AtomicInteger(producers);
+            this.failure = failure;
+        }
+
+        void send(Item item) throws InterruptedException {
+            BlockingQueue<Item> queue = queues.get(queues.size() == 1 ? 0 : item.split() % queues.size());
+            while (!queue.offer(item, WAIT_MILLIS, TimeUnit.MILLISECONDS)) {
+                checkNotAborted();
+            }
+        }
+
+        Item receive(int consumer) throws InterruptedException {
+            BlockingQueue<Item> queue = queues.get(queues.size() == 1 ? 0 : consumer);
+            Item item;
+            while ((item = queue.poll(WAIT_MILLIS, TimeUnit.MILLISECONDS)) == null) {
+                checkNotAborted();
+            }
+            return item;
+        }
+
+        int depth() {
+            int depth = 0;
+            for (BlockingQueue<Item> queue : queues) {
+                depth += queue.size();
+            }
+            return depth;
+        }
+
+        int capacity() {
+            int capacity = 0;
+            for (BlockingQueue<Item> queue : queues) {
+                capacity += queue.size() + queue.remainingCapacity();
+            }
+            return capacity;
+        }
+
+        void producerDone() throws InterruptedException {
+            if (openProducers.decrementAndGet() == 0) {
+                for (int consumer = 0; consumer < consumers; consumer++) {
+                    send(new Item(queues.size() == 1 ? 0 : consumer, null, true));
+                }
+            }
+        }
+
+        private void checkNotAborted() throws InterruptedException {
+            if (failure.get() != null) {
+                throw new InterruptedException("Pipeline aborted");
+            }
+        }
+    }
+
+    private static final class StageThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            return new Thread(runnable, "worker-" + count.incrementAndGet());
+        }
+    }
+}
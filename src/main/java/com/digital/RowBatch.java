@@ -0,0 +1,130 @@
+package com.digital;
+
+import java.util.Arrays;
+
+/**
+ * A reusable, column-oriented batch of person rows ({@code id, name, email, address, age}).
+ *
+ * <p>Rows are stored in parallel primitive and String arrays rather than one object per row,
+ * so a batch can be filled, handed to a {@link BulkLoader} and cleared again without creating
+ * garbage beyond the field values themselves.</p>
+ */
+public class RowBatch {
+    private final long[] ids;
+    private final String[] names;
+    private final String[] emails;
+    private final String[] addresses;
+    private final int[] ages;
+    private final long[] lines; // Source line of each row, 0 if the source has no lines
+    private int size;
+    private long position = CheckpointJournal.START; // Source's resume position after the last row
+    private int sequence; // Batch number within its split, stamped by the pipeline
+
+    public RowBatch(int capacity) {
+        this.ids = new long[capacity];
+        this.names = new String[capacity];
+        this.emails = new String[capacity];
+        this.addresses = new String[capacity];
+        this.ages = new int[capacity];
+        this.lines = new long[capacity];
+    }
+
+    /**
+     * Appends a row; the caller checks {@link #isFull()} first.
+     */
+    public void add(long id, String name, String email, String address, int age) {
+        add(id, name, email, address, age, 0);
+    }
+
+    /**
+     * Appends a row read from line {@code line} of a text file, for error reports.
+     */
+    public void add(long id, String name, String email, String address, int age, long line) {
+        lines[size] = line;
+        ids[size] = id;
+        names[size] = name;
+        emails[size] = email;
+        addresses[size] = address;
+        ages[size] = age;
+        size++;
+    }
+
+    /**
+     * Appends a copy of {@code row} of {@code source}, its line included.
+     */
+    public void add(RowBatch source, int row) {
+        add(source.ids[row], source.names[row], source.emails[row], source.addresses[row], source.ages[row],
+                source.lines[row]);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return ids.length;
+    }
+
+    public boolean isFull() {
+        return size == ids.length;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Where the source would continue after this batch (byte offset, record count, row index or
+     * id, depending on the source); recorded by the {@link CheckpointJournal} once committed.
+     */
+    public long position() {
+        return position;
+    }
+
+    public void position(long position) {
+        this.position = position;
+    }
+
+    public int sequence() {
+        return sequence;
+    }
+
+    void sequence(int sequence) {
+        this.sequence = sequence;
+    }
+
+    public void clear() {
+        // Drop the String references so a recycled batch doesn't keep old rows alive
+        Arrays.fill(names, 0, size, null);
+        Arrays.fill(emails, 0, size, null);
+        Arrays.fill(addresses, 0, size, null);
+        size = 0;
+    }
+
+    public long id(int row) {
+        return ids[row];
+    }
+
+    public String name(int row) {
+        return names[row];
+    }
+
+    public String email(int row) {
+        return emails[row];
+    }
+
+    public String address(int row) {
+        return addresses[row];
+    }
+
+    public int age(int row) {
+        return ages[row];
+    }
+
+    /**
+     * 1-based line in the source file where the row starts, or 0 if unknown.
+     */
+    public long line(int row) {
+        return lines[row];
+    }
+}
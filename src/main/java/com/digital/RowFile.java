@@ -0,0 +1,308 @@
+package com.digital;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32C;
+
+/**
+ * A compact binary file of person rows, for table-to-file-to-table copies that don't need a
+ * human-readable file: no quoting, escaping or number formatting on either side.
+ *
+ * <p>The file starts with an 8-byte header (magic and version) followed by blocks, one per
+ * batch written. A block header holds the block's magic, row count, payload length, which
+ * columns are dictionary encoded, and a CRC32C of the payload. The payload is stored by column:
+ * ids as 8-byte and ages as 4-byte big-endian ints, then name, email and address as UTF-8
+ * strings, each prefixed with its length as a varint.</p>
+ *
+ * <p>Any column but the id can instead be written as a dictionary of the block's distinct
+ * values followed by one 1- or 2-byte code per row, whenever that is smaller: ages nearly
+ * always, strings when a block repeats them. Readers decode each dictionary entry once and
+ * share the String across its rows.</p>
+ *
+ * <p>Because every block header carries its length, readers index the file by hopping from
+ * header to header, and blocks can be read in any order by any number of threads.</p>
+ */
+public final class RowFile {
+    public static final String SUFFIX = ".rows";
+    public static final int HEADER_SIZE = 8;
+    public static final int BLOCK_HEADER_SIZE = 20;
+
+    private static final int MAGIC = 0x43535652;       // "CSVR"
+    private static final int VERSION = 1;
+    private static final int BLOCK_MAGIC = 0x524F5742; // "ROWB"
+    private static final int STRING_COLUMNS = 3;       // name, email, address; bits 0-2 of the dictionary flags
+    private static final int AGE_DICTIONARY = 1 << 3;
+    private static final int MAX_DICTIONARY_SIZE = 1 << 16; // Codes are at most 2 bytes
+
+    /**
+     * One block: where its header starts and how many rows and bytes, header included, it has.
+     */
+    public record Block(long offset, int rows, int length) {
+    }
+
+    private RowFile() {
+    }
+
+    public static boolean isRowFile(Path file) {
+        return file.getFileName().toString().endsWith(SUFFIX);
+    }
+
+    public static byte[] header() {
+        return ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(VERSION).array();
+    }
+
+    /**
+     * Checks the file header and returns where the first block starts.
+     */
+    public static long checkHeader(MappedFile file) throws IOException {
+        if (file.size() < HEADER_SIZE) {
+            throw new IOException("Row file too short for a header: " + file.size() + " bytes");
+        }
+        byte[] header = new byte[HEADER_SIZE];
+        file.get(0, header, 0, HEADER_SIZE);
+        ByteBuffer buffer = ByteBuffer.wrap(header);
+        if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+            throw new IOException("Not a version " + VERSION + " row file");
+        }
+        return HEADER_SIZE;
+    }
+
+    /**
+     * Lists the blocks from byte {@code from}, which must be a block boundary, to the end.
+     */
+    public static List<Block> blocks(MappedFile file, long from) throws IOException {
+        List<Block> blocks = new ArrayList<>();
+        byte[] header = new byte[BLOCK_HEADER_SIZE];
+        long offset = from;
+        while (offset < file.size()) {
+            if (file.size() - offset < BLOCK_HEADER_SIZE) {
+                throw new IOException("Row file cut off in the block header at byte " + offset);
+            }
+            file.get(offset, header, 0, BLOCK_HEADER_SIZE);
+            ByteBuffer buffer = ByteBuffer.wrap(header);
+            if (buffer.getInt() != BLOCK_MAGIC) {
+                throw new IOException("No row block at byte " + offset);
+            }
+            int rows = buffer.getInt();
+            int length = BLOCK_HEADER_SIZE + buffer.getInt();
+            if (file.size() - offset < length) {
+                throw new IOException("Row file cut off in the block at byte " + offset);
+            }
+            blocks.add(new Block(offset, rows, length));
+            offset += length;
+        }
+        return blocks;
+    }
+
+    /**
+     * Encodes every row of {@code batch} as one block, header included.
+     */
+    public static byte[] encode(RowBatch batch) throws IOException {
+        int rows = batch.size();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(BLOCK_HEADER_SIZE + rows * 96);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.write(new byte[BLOCK_HEADER_SIZE]); // Filled in below, once the payload is known
+        for (int row = 0; row < rows; row++) {
+            out.writeLong(batch.id(row));
+        }
+        int dictionaryColumns = 0;
+        if (writeAges(out, batch)) {
+            dictionaryColumns |= AGE_DICTIONARY;
+        }
+        String[] values = new String[rows];
+        for (int column = 0; column < STRING_COLUMNS; column++) {
+            for (int row = 0; row < rows; row++) {
+                values[row] = column == 0 ? batch.name(row) : column == 1 ? batch.email(row) : batch.address(row);
+            }
+            if (writeStrings(out, values, rows)) {
+                dictionaryColumns |= 1 << column;
+            }
+        }
+        out.flush();
+
+        byte[] block = bytes.toByteArray();
+        int payloadLength = block.length - BLOCK_HEADER_SIZE;
+        CRC32C crc = new CRC32C();
+        crc.update(block, BLOCK_HEADER_SIZE, payloadLength);
+        ByteBuffer.wrap(block).putInt(BLOCK_MAGIC).putInt(rows).putInt(payloadLength).putInt(dictionaryColumns)
+                .putInt((int) crc.getValue());
+        return block;
+    }
+
+    /**
+     * Reads, checks and decodes {@code block} into a batch of its rows.
+     */
+    public static RowBatch decode(MappedFile file, Block block) throws IOException {
+        byte[] bytes = new byte[block.length()];
+        file.get(block.offset(), bytes, 0, block.length());
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        buffer.position(12);
+        int dictionaryColumns = buffer.getInt();
+        int expectedCrc = buffer.getInt();
+        CRC32C crc = new CRC32C();
+        crc.update(bytes, BLOCK_HEADER_SIZE, bytes.length - BLOCK_HEADER_SIZE);
+        if ((int) crc.getValue() != expectedCrc) {
+            throw new IOException("Checksum mismatch in the row block at byte " + block.offset());
+        }
+
+        int rows = block.rows();
+        long[] ids = new long[rows];
+        for (int row = 0; row < rows; row++) {
+            ids[row] = buffer.getLong();
+        }
+        int[] ages = new int[rows];
+        if ((dictionaryColumns & AGE_DICTIONARY) != 0) {
+            int[] entries = new int[buffer.getInt()];
+            for (int i = 0; i < entries.length; i++) {
+                entries[i] = buffer.getInt();
+            }
+            for (int row = 0; row < rows; row++) {
+                ages[row] = entries[readCode(buffer, entries.length)];
+            }
+        } else {
+            for (int row = 0; row < rows; row++) {
+                ages[row] = buffer.getInt();
+            }
+        }
+        String[][] strings = new String[STRING_COLUMNS][rows];
+        for (int column = 0; column < STRING_COLUMNS; column++) {
+            String[] values = strings[column];
+            if ((dictionaryColumns & (1 << column)) != 0) {
+                String[] entries = new String[buffer.getInt()];
+                for (int i = 0; i < entries.length; i++) {
+                    entries[i] = readString(buffer);
+                }
+                for (int row = 0; row < rows; row++) {
+                    values[row] = entries[readCode(buffer, entries.length)];
+                }
+            } else {
+                for (int row = 0; row < rows; row++) {
+                    values[row] = readString(buffer);
+                }
+            }
+        }
+        RowBatch batch = new RowBatch(rows);
+        for (int row = 0; row < rows; row++) {
+            batch.add(ids[row], strings[0][row], strings[1][row], strings[2][row], ages[row]);
+        }
+        return batch;
+    }
+
+    // Writes the ages as a dictionary and codes if that is smaller than 4 bytes per row
+    private static boolean writeAges(DataOutputStream out, RowBatch batch) throws IOException {
+        int rows = batch.size();
+        Map<Integer, Integer> codes = new HashMap<>();
+        for (int row = 0; row < rows && codes.size() <= MAX_DICTIONARY_SIZE; row++) {
+            codes.putIfAbsent(batch.age(row), codes.size());
+        }
+        if (codes.size() > MAX_DICTIONARY_SIZE || 4 + codes.size() * 4 + rows * codeWidth(codes.size()) >= rows * 4) {
+            for (int row = 0; row < rows; row++) {
+                out.writeInt(batch.age(row));
+            }
+            return false;
+        }
+        int[] entries = new int[codes.size()];
+        codes.forEach((age, code) -> entries[code] = age);
+        out.writeInt(entries.length);
+        for (int age : entries) {
+            out.writeInt(age);
+        }
+        for (int row = 0; row < rows; row++) {
+            writeCode(out, codes.get(batch.age(row)), entries.length);
+        }
+        return true;
+    }
+
+    // Writes the values as a dictionary and codes if that is smaller than writing each one; true if it did
+    private static boolean writeStrings(DataOutputStream out, String[] values, int rows) throws IOException {
+        Map<String, Integer> codes = new HashMap<>();
+        List<byte[]> entries = new ArrayList<>();
+        int[] rowCodes = new int[rows];
+        long plainSize = 0;
+        long dictionarySize = 4;
+        for (int row = 0; row < rows; row++) {
+            Integer code = codes.get(values[row]);
+            if (code == null) {
+                code = entries.size();
+                codes.put(values[row], code);
+                entries.add(values[row] == null ? null : values[row].getBytes(StandardCharsets.UTF_8));
+                dictionarySize += encodedSize(entries.get(code));
+            }
+            rowCodes[row] = code;
+            plainSize += encodedSize(entries.get(code));
+        }
+        if (entries.size() > MAX_DICTIONARY_SIZE || dictionarySize + (long) rows * codeWidth(entries.size()) >= plainSize) {
+            for (int row = 0; row < rows; row++) {
+                writeString(out, entries.get(rowCodes[row]));
+            }
+            return false;
+        }
+        out.writeInt(entries.size());
+        for (byte[] entry : entries) {
+            writeString(out, entry);
+        }
+        for (int row = 0; row < rows; row++) {
+            writeCode(out, rowCodes[row], entries.size());
+        }
+        return true;
+    }
+
+    // A string is its UTF-8 length plus one as an unsigned varint, 0 meaning null, then the bytes
+    private static void writeString(DataOutputStream out, byte[] utf8) throws IOException {
+        int length = utf8 == null ? 0 : utf8.length + 1;
+        while (length >= 0x80) {
+            out.writeByte(length & 0x7f | 0x80);
+            length >>>= 7;
+        }
+        out.writeByte(length);
+        if (utf8 != null) {
+            out.write(utf8);
+        }
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = 0;
+        int shift = 0;
+        int b;
+        do {
+            b = buffer.get();
+            length |= (b & 0x7f) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        if (length == 0) {
+            return null;
+        }
+        String value = new String(buffer.array(), buffer.position(), length - 1, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length - 1);
+        return value;
+    }
+
+    private static int encodedSize(byte[] utf8) {
+        int length = utf8 == null ? 0 : utf8.length + 1;
+        return (length < 0x80 ? 1 : length < 0x4000 ? 2 : length < 0x200000 ? 3 : 4) + length - (length > 0 ? 1 : 0);
+    }
+
+    private static int codeWidth(int dictionarySize) {
+        return dictionarySize <= 256 ? 1 : 2;
+    }
+
+    private static void writeCode(DataOutputStream out, int code, int dictionarySize) throws IOException {
+        if (codeWidth(dictionarySize) == 1) {
+            out.writeByte(code);
+        } else {
+            out.writeShort(code);
+        }
+    }
+
+    private static int readCode(ByteBuffer buffer, int dictionarySize) {
+        return codeWidth(dictionarySize) == 1 ? buffer.get() & 0xff : buffer.getShort() & 0xffff;
+    }
+}
@@ -0,0 +1,151 @@
+package com.digital;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes person rows to a {@link RowFile}, one block per batch.
+ *
+ * <p>Like {@link CsvFileSink}, every source split gets its own part file, written by one sink
+ * worker, and {@link #finish()} stitches the file header and the parts together in split
+ * order. Checkpointing, resuming and {@link #append()} work the same way; a block is always
+ * whole in its part file before it is journaled.</p>
+ */
+public class RowFileSink implements Sink {
+    private static final int WRITE_BUFFER_SIZE = 1 << 16; // 64 KB buffer per part file
+
+    private final Path target;
+    private Path partsDirectory;
+    private int splitCount;
+    private SyncMetrics metrics = new SyncMetrics();
+    private CheckpointJournal journal;
+    private boolean append;
+
+    public RowFileSink(Path target) {
+        this.target = target;
+    }
+
+    /**
+     * Appends the blocks to {@code target} if it already exists, without another file header.
+     */
+    public RowFileSink append() {
+        this.append = true;
+        return this;
+    }
+
+    @Override
+    public void prepare(int splitCount) throws IOException {
+        this.splitCount = splitCount;
+        if (journal != null && journal.resumed()) {
+            this.partsDirectory = Files.createDirectories(PartFiles.partsDirectory(target)); // Keep committed parts
+        } else {
+            this.partsDirectory = PartFiles.createPartsDirectory(target);
+        }
+    }
+
+    @Override
+    public void checkpoint(CheckpointJournal journal) {
+        this.journal = journal;
+    }
+
+    @Override
+    public void instrument(SyncMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public boolean ordered() {
+        return true; // A part file must receive its split's batches in order
+    }
+
+    @Override
+    public Writer newWriter() {
+        return new Writer() {
+            private final Map<Integer, BufferedOutputStream> parts = new HashMap<>();
+            private final Map<Integer, FileOutputStream> files = new HashMap<>();
+
+            @Override
+            public void write(int split, RowBatch batch) throws Exception {
+                long start = System.nanoTime();
+                BufferedOutputStream out = parts.get(split);
+                if (out == null) {
+                    FileOutputStream file = openPart(split);
+                    out = new BufferedOutputStream(file, WRITE_BUFFER_SIZE);
+                    parts.put(split, out);
+                    files.put(split, file);
+                }
+                if (!batch.isEmpty()) {
+                    byte[] block = RowFile.encode(batch);
+                    out.write(block);
+                    metrics.fileBytes().add(block.length);
+                }
+                if (journal != null) {
+                    out.flush();
+                    FileOutputStream file = files.get(split);
+                    file.getChannel().force(false);
+                    journal.committed(split, batch, file.getChannel().size());
+                }
+                // As for CSV parts, a row counts as committed once it is in its part file's buffer
+                metrics.executeBatch().record(System.nanoTime() - start);
+                metrics.rowsBound().add(batch.size());
+                metrics.rowsCommitted().add(batch.size());
+            }
+
+            private FileOutputStream openPart(int split) throws IOException {
+                Path part = PartFiles.partPath(partsDirectory, split);
+                if (journal == null || journal.position(split) == CheckpointJournal.START) {
+                    return new FileOutputStream(part.toFile());
+                }
+                // Resumed split: drop whatever was written after the last checkpoint, then append
+                FileOutputStream file = new FileOutputStream(part.toFile(), true);
+                file.getChannel().truncate(journal.sinkPosition(split));
+                return file;
+            }
+
+            @Override
+            public void splitFinished(int split) throws IOException {
+                BufferedOutputStream out = parts.remove(split);
+                files.remove(split);
+                if (out != null) {
+                    out.close();
+                }
+            }
+
+            @Override
+            public void close() throws IOException {
+                for (BufferedOutputStream out : parts.values()) {
+                    out.close();
+                }
+                parts.clear();
+                files.clear();
+            }
+        };
+    }
+
+    @Override
+    public void finish() throws IOException {
+        List<Path> parts = new ArrayList<>();
+        for (int split = 0; split < splitCount; split++) {
+            Path part = PartFiles.partPath(partsDirectory, split);
+            if (Files.exists(part)) {
+                parts.add(part);
+            }
+        }
+        if (append && Files.exists(target) && Files.size(target) > 0) {
+            long before = Files.size(target);
+            long bytes = PartFiles.append(target, parts);
+            System.out.println("Appended " + (bytes - before) + " bytes to " + target);
+        } else {
+            long bytes = PartFiles.concatenate(target, RowFile.header(), parts);
+            System.out.println("Wrote " + bytes + " bytes to " + target);
+        }
+        PartFiles.deleteDirectory(partsDirectory);
+    }
+}
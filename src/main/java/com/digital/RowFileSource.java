@@ -0,0 +1,132 @@
+package com.digital;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Reads person rows from a memory-mapped {@link RowFile}.
+ *
+ * <p>The block headers are indexed up front without decoding anything. In {@code mapped} mode
+ * the blocks are cut into {@code splitCount} runs of about the same size, one split each, so
+ * they are checked and decoded in parallel; in {@code stream} mode a single split reads them
+ * all in file order. Batches hold {@code batchSize} rows whatever the block size, and record
+ * the rows consumed from their split; a resumed split skips whole blocks by their row count
+ * without decoding them.</p>
+ *
+ * <p>With {@link #startAt(long)} only the blocks from a byte offset on are read, for example
+ * the blocks a delta export appended since the last import.</p>
+ */
+public class RowFileSource implements Source {
+    private final Path file;
+    private final String mode;
+    private final int batchSize;
+    private final int splitCount;
+    private long startOffset;
+    private MappedFile mappedFile;
+    private SyncMetrics metrics = new SyncMetrics();
+    private final LongAdder bytesConsumed = new LongAdder();
+    private volatile long bytesTotal;
+
+    /**
+     * @param mode {@link CsvFileSource#STREAM} or {@link CsvFileSource#MAPPED}
+     */
+    public RowFileSource(Path file, String mode, int batchSize, int splitCount) {
+        this.file = file;
+        this.mode = mode;
+        this.batchSize = batchSize;
+        this.splitCount = splitCount;
+    }
+
+    /**
+     * Reads only the blocks from {@code offset} on, which must be the start of a block; 0 reads
+     * the whole file.
+     */
+    public RowFileSource startAt(long offset) {
+        this.startOffset = offset;
+        return this;
+    }
+
+    @Override
+    public void instrument(SyncMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public double progress() {
+        long total = bytesTotal;
+        return total == 0 ? Double.NaN : Math.min(1.0, (double) bytesConsumed.sum() / total);
+    }
+
+    @Override
+    public List<? extends Split> splits() throws Exception {
+        mappedFile = new MappedFile(file);
+        long dataStart = Math.max(RowFile.checkHeader(mappedFile), startOffset);
+        List<RowFile.Block> blocks = RowFile.blocks(mappedFile, dataStart);
+        bytesTotal = mappedFile.size() - dataStart;
+
+        List<Split> splits = new ArrayList<>();
+        for (List<RowFile.Block> run : partition(blocks, CsvFileSource.MAPPED.equals(mode) ? splitCount : 1)) {
+            splits.add((resumeFrom, out) -> readBlocks(run, resumeFrom, out));
+        }
+        System.out.println("Indexed " + blocks.size() + " blocks from " + file + " into " + splits.size() + " splits");
+        return splits;
+    }
+
+    private void readBlocks(List<RowFile.Block> blocks, long resumeFrom, BatchEmitter out) throws Exception {
+        long rows = 0;
+        RowBatch batch = new RowBatch(batchSize);
+        for (RowFile.Block block : blocks) {
+            long skip = resumeFrom == CheckpointJournal.START ? 0 : resumeFrom - rows;
+            if (skip >= block.rows()) {
+                rows += block.rows(); // Committed by the previous run; not even decoded
+                bytesConsumed.add(block.length());
+                continue;
+            }
+            RowBatch rowsInBlock = RowFile.decode(mappedFile, block);
+            for (int row = (int) Math.max(0, skip); row < rowsInBlock.size(); row++) {
+                batch.add(rowsInBlock.id(row), rowsInBlock.name(row), rowsInBlock.email(row),
+                        rowsInBlock.address(row), rowsInBlock.age(row));
+                if (batch.isFull()) {
+                    batch.position(rows + row + 1);
+                    out.emit(batch);
+                    batch = new RowBatch(batchSize);
+                }
+            }
+            rows += block.rows();
+            bytesConsumed.add(block.length());
+            metrics.fileBytes().add(block.length());
+        }
+        if (!batch.isEmpty()) {
+            batch.position(rows);
+            out.emit(batch);
+        }
+    }
+
+    // Consecutive runs of blocks with about the same number of bytes each
+    private static List<List<RowFile.Block>> partition(List<RowFile.Block> blocks, int parts) {
+        long total = 0;
+        for (RowFile.Block block : blocks) {
+            total += block.length();
+        }
+        List<List<RowFile.Block>> runs = new ArrayList<>();
+        long end = 0;
+        int first = 0;
+        for (int i = 0; i < blocks.size(); i++) {
+            end += blocks.get(i).length();
+            if (end * parts >= total * (runs.size() + 1) || i == blocks.size() - 1) {
+                runs.add(List.copyOf(blocks.subList(first, i + 1)));
+                first = i + 1;
+            }
+        }
+        return runs;
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (mappedFile != null) {
+            mappedFile.close();
+        }
+    }
+}
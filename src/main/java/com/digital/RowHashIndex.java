@@ -0,0 +1,258 @@
+package com.digital;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * The content hash of every row a delta import has synced, kept next to the CSV file (for
+ * example {@code advanced.csv.hashes}), so the next import only upserts rows that are new or
+ * whose content changed.
+ *
+ * <p>The index is two sorted primitive arrays, ids and 64-bit hashes, looked up by binary
+ * search: 16 bytes per row on disk and on the heap, with no per-row objects. It also records
+ * how many bytes of the CSV it covers, the {@link DeltaWatermark#generation() generation} of the
+ * file they belong to and a CRC of the last 64 KB of them. While the delta exporter has not
+ * rewritten the file since and the CRC still matches, it has only been appended to, and only
+ * the tail needs reading; otherwise, and for files no delta export keeps a watermark for, the
+ * whole file is compared row by row. The CRC alone would miss a rewrite that changes a row
+ * earlier in the prefix without changing its length.</p>
+ */
+public class RowHashIndex {
+    private static final int MAGIC = 0x43535648; // "CSVH"
+    private static final int VERSION = 2; // 2 added the generation
+    private static final int FINGERPRINT_BYTES = 1 << 16; // Bytes before the covered end checked for changes
+
+    private final long coveredBytes;
+    private final long generation;
+    private final long fingerprint;
+    private final long[] ids;    // Sorted, unique
+    private final long[] hashes; // hashes[i] belongs to ids[i]
+
+    private RowHashIndex(long coveredBytes, long generation, long fingerprint, long[] ids, long[] hashes) {
+        this.coveredBytes = coveredBytes;
+        this.generation = generation;
+        this.fingerprint = fingerprint;
+        this.ids = ids;
+        this.hashes = hashes;
+    }
+
+    public static Path pathFor(Path csvFile) {
+        return csvFile.resolveSibling(csvFile.getFileName() + ".hashes");
+    }
+
+    /**
+     * Loads the index at {@code file}, or returns an empty one if there is none yet.
+     */
+    public static RowHashIndex load(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return new RowHashIndex(0, 0, 0, new long[0], new long[0]);
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            int version = in.readInt() == MAGIC ? in.readInt() : -1;
+            if (version != 1 && version != VERSION) {
+                throw new IOException(file + " is not a row hash index");
+            }
+            long coveredBytes = in.readLong();
+            long generation = version == 1 ? 0 : in.readLong(); // Unknown for version 1, so never trusted
+            long fingerprint = in.readLong();
+            int count = in.readInt();
+            long[] ids = new long[count];
+            long[] hashes = new long[count];
+            for (int i = 0; i < count; i++) {
+                ids[i] = in.readLong();
+                hashes[i] = in.readLong();
+            }
+            return new RowHashIndex(coveredBytes, generation, fingerprint, ids, hashes);
+        }
+    }
+
+    /**
+     * Bytes of the CSV the index covers.
+     */
+    public long coveredBytes() {
+        return coveredBytes;
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    /**
+     * Offset in {@code csvFile} to read from: the end of the covered bytes if the file, now in
+     * {@code generation}, has only been appended to since, or 0 to compare the whole file.
+     */
+    public long tailStart(Path csvFile, long generation) throws IOException {
+        if (coveredBytes == 0 || generation == 0 || generation != this.generation || Files.size(csvFile) < coveredBytes) {
+            return 0;
+        }
+        return fingerprint(csvFile, coveredBytes) == fingerprint ? coveredBytes : 0;
+    }
+
+    /**
+     * Whether row {@code id} was synced with exactly this content.
+     */
+    public boolean unchanged(long id, long hash) {
+        int index = Arrays.binarySearch(ids, id);
+        return index >= 0 && hashes[index] == hash;
+    }
+
+    /**
+     * Returns this index with {@code count} newly synced rows merged in; for an id that
+     * appears more than once, the last occurrence wins. The result covers {@code csvFile}, in
+     * {@code generation}, up to {@code coveredBytes}.
+     */
+    public RowHashIndex merge(long[] newIds, long[] newHashes, int count, Path csvFile, long generation,
+                              long coveredBytes) throws IOException {
+        long[] sortedIds = Arrays.copyOf(newIds, count);
+        long[] sortedHashes = Arrays.copyOf(newHashes, count);
+        // A stable sort keeps the occurrences of an id in input order, so the last one is the latest
+        mergeSort(sortedIds, sortedHashes, sortedIds.clone(), sortedHashes.clone(), 0, count);
+
+        long[] mergedIds = new long[ids.length + count];
+        long[] mergedHashes = new long[ids.length + count];
+        int size = 0;
+        int old = 0;
+        int updated = 0;
+        while (old < ids.length || updated < count) {
+            long id;
+            long hash;
+            if (updated == count || (old < ids.length && ids[old] < sortedIds[updated])) {
+                id = ids[old];
+                hash = hashes[old++];
+            } else {
+                // New rows replace the old entry for the same id
+                if (old < ids.length && ids[old] == sortedIds[updated]) {
+                    old++;
+                }
+                id = sortedIds[updated];
+                hash = sortedHashes[updated++];
+            }
+            if (size > 0 && mergedIds[size - 1] == id) {
+                mergedHashes[size - 1] = hash; // A later occurrence of the same id
+            } else {
+                mergedIds[size] = id;
+                mergedHashes[size++] = hash;
+            }
+        }
+        return new RowHashIndex(coveredBytes, generation, fingerprint(csvFile, coveredBytes),
+                Arrays.copyOf(mergedIds, size), Arrays.copyOf(mergedHashes, size));
+    }
+
+    /**
+     * Writes the index through a temporary file and an atomic move, so a failed save leaves
+     * the previous index in place.
+     */
+    public void save(Path file) throws IOException {
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(coveredBytes);
+            out.writeLong(generation);
+            out.writeLong(fingerprint);
+            out.writeInt(ids.length);
+            for (int i = 0; i < ids.length; i++) {
+                out.writeLong(ids[i]);
+                out.writeLong(hashes[i]);
+            }
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * 64-bit hash of a row's content (everything but the id).
+     */
+    public static long hash(RowBatch batch, int row) {
+        long hash = 0x9E3779B97F4A7C15L;
+        hash = hash(hash, batch.name(row));
+        hash = hash(hash, batch.email(row));
+        hash = hash(hash, batch.address(row));
+        return fmix((hash ^ batch.age(row)) * 0xBF58476D1CE4E5B9L);
+    }
+
+    /**
+     * 64-bit hash of a single value, for example a row's email.
+     */
+    public static long hash(String value) {
+        return fmix(hash(0x9E3779B97F4A7C15L, value));
+    }
+
+    /**
+     * 64-bit hash of a number, for example a row's id; distinct numbers never collide.
+     */
+    public static long hash(long value) {
+        return fmix(value ^ 0x9E3779B97F4A7C15L);
+    }
+
+    // Final avalanche (MurmurHash3 fmix64), so similar values get unrelated hashes
+    private static long fmix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        return hash ^ (hash >>> 33);
+    }
+
+    private static long hash(long hash, String field) {
+        if (field == null) {
+            return (hash ^ 0xFF) * 0x100000001B3L;
+        }
+        for (int i = 0; i < field.length(); i++) {
+            hash = (hash ^ field.charAt(i)) * 0x100000001B3L;
+        }
+        return (hash ^ 0xFE) * 0x100000001B3L; // Field separator, so "ab","c" differs from "a","bc"
+    }
+
+    private static long fingerprint(Path csvFile, long end) throws IOException {
+        if (end == 0) {
+            return 0;
+        }
+        long start = Math.max(0, end - FINGERPRINT_BYTES);
+        ByteBuffer buffer = ByteBuffer.allocate((int) (end - start));
+        try (FileChannel channel = FileChannel.open(csvFile, StandardOpenOption.READ)) {
+            while (buffer.hasRemaining() && channel.read(buffer, start + buffer.position()) >= 0) {
+                // Positional reads may return fewer bytes than asked for
+            }
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buffer.flip());
+        return crc.getValue();
+    }
+
+    // Sorts [from, to) of ids (carrying hashes along) stably; work arrays hold a copy of the input
+    private static void mergeSort(long[] ids, long[] hashes, long[] workIds, long[] workHashes, int from, int to) {
+        if (to - from < 2) {
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        mergeSort(workIds, workHashes, ids, hashes, from, middle);
+        mergeSort(workIds, workHashes, ids, hashes, middle, to);
+        if (workIds[middle - 1] <= workIds[middle]) {
+            System.arraycopy(workIds, from, ids, from, to - from); // Already in order, the usual case for CSV files
+            System.arraycopy(workHashes, from, hashes, from, to - from);
+            return;
+        }
+        int left = from;
+        int right = middle;
+        for (int i = from; i < to; i++) {
+            if (right >= to || (left < middle && workIds[left] <= workIds[right])) {
+                ids[i] = workIds[left];
+                hashes[i] = workHashes[left++];
+            } else {
+                ids[i] = workIds[right];
+                hashes[i] = workHashes[right++];
+            }
+        }
+    }
+}
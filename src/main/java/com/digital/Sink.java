@@ -0,0 +1,65 @@
+package com.digital;
+
+/**
+ * The last stage of a {@link Pipeline}: writes batches to a table or a file.
+ *
+ * <p>Every sink worker opens its own {@link Writer} (for example, one connection each), so
+ * writers never share state. A sink that needs the batches of a split in order, such as a
+ * file sink writing one part per split, returns {@code true} from {@link #ordered()}; the
+ * pipeline then routes all batches of a split to the same writer.</p>
+ */
+public interface Sink {
+
+    /**
+     * Called once, before any writer is opened, with the number of source splits.
+     */
+    default void prepare(int splitCount) throws Exception {
+    }
+
+    /**
+     * Called once, before {@link #prepare(int)}, with the metrics of the run. Sinks count
+     * bound and committed rows and time their batches and commits.
+     */
+    default void instrument(SyncMetrics metrics) {
+    }
+
+    /**
+     * Called once, before {@link #prepare(int)}, when the run is checkpointed. The sink reports
+     * every batch it has durably committed with {@link CheckpointJournal#committed}, and on a
+     * resumed run picks up its own state (such as part file lengths) from the journal. Sinks
+     * that ignore it are simply restarted from the beginning.
+     */
+    default void checkpoint(CheckpointJournal journal) {
+    }
+
+    Writer newWriter() throws Exception;
+
+    default boolean ordered() {
+        return false;
+    }
+
+    /**
+     * Called once after every writer has been closed, only if the whole pipeline succeeded.
+     */
+    default void finish() throws Exception {
+    }
+
+    /**
+     * Per-worker writer; used by one thread at a time, though in virtual-thread mode successive
+     * batches may arrive on different threads.
+     */
+    interface Writer extends AutoCloseable {
+
+        void write(int split, RowBatch batch) throws Exception;
+
+        /**
+         * Called once the source has emitted the last batch of {@code split}. Only reliable
+         * for {@linkplain Sink#ordered() ordered} sinks, where a split has a single writer.
+         */
+        default void splitFinished(int split) throws Exception {
+        }
+
+        @Override
+        void close() throws Exception;
+    }
+}
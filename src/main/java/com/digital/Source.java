@@ -0,0 +1,52 @@
+package com.digital;
+
+import java.util.List;
+
+/**
+ * The first stage of a {@link Pipeline}: produces {@link RowBatch}es from a file, a table or a
+ * generator.
+ *
+ * <p>A source is planned into independent {@link Split}s (byte ranges, id ranges, row ranges)
+ * that the pipeline hands out to its source workers, so several splits are read in parallel
+ * and a worker that finishes early simply takes the next one.</p>
+ */
+public interface Source extends AutoCloseable {
+
+    /**
+     * Plans the work. Called once, before any split is read.
+     */
+    List<? extends Split> splits() throws Exception;
+
+    /**
+     * Called once, before {@link #splits()}, with the metrics of the run. Sources that can
+     * reject input count it in {@link SyncMetrics#rowsRejected()}.
+     */
+    default void instrument(SyncMetrics metrics) {
+    }
+
+    /**
+     * Fraction of the input consumed so far (0..1), used for the ETA; NaN if unknown.
+     */
+    default double progress() {
+        return Double.NaN;
+    }
+
+    @Override
+    default void close() throws Exception {
+    }
+
+    /**
+     * One independently readable part of a source.
+     */
+    interface Split {
+        /**
+         * Reads the split, handing each filled batch to {@code out}. Batches are not reused
+         * after being emitted, and each carries the {@linkplain RowBatch#position() position}
+         * to resume from after it.
+         *
+         * @param resumeFrom a position from an earlier batch of this split to continue after,
+         *                   or {@link CheckpointJournal#START} to read it all
+         */
+        void read(long resumeFrom, BatchEmitter out) throws Exception;
+    }
+}
@@ -0,0 +1,53 @@
+package com.digital;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One job of a sync manifest: load a person file into a table, or write a table to a file.
+ *
+ * <p>A manifest has one job per line, {@code import <file> <table>} or
+ * {@code export <table> <file>}; the file's name picks its format as in {@link FileFormats}.
+ * Relative file paths are resolved against the manifest's directory. Blank lines and lines
+ * starting with {@code #} are ignored.</p>
+ */
+public record SyncJob(String direction, Path file, String table) {
+    public static final String IMPORT = "import";
+    public static final String EXPORT = "export";
+
+    public boolean isImport() {
+        return IMPORT.equals(direction);
+    }
+
+    public static List<SyncJob> readManifest(Path manifest) throws IOException {
+        Path directory = manifest.toAbsolutePath().getParent();
+        List<SyncJob> jobs = new ArrayList<>();
+        List<String> lines = Files.readAllLines(manifest);
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i).trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String[] fields = line.split("\\s+");
+            boolean isImport = fields.length == 3 && IMPORT.equals(fields[0]);
+            if (!isImport && !(fields.length == 3 && EXPORT.equals(fields[0]))) {
+                throw new IOException(manifest + " line " + (i + 1) + ": expected 'import <file> <table>' or "
+                        + "'export <table> <file>' but got '" + line + "'");
+            }
+            String table = isImport ? fields[2] : fields[1];
+            if (!table.matches("[A-Za-z_][A-Za-z0-9_]*")) {
+                throw new IOException(manifest + " line " + (i + 1) + ": not a table name: " + table); // It ends up in SQL
+            }
+            jobs.add(new SyncJob(fields[0], directory.resolve(isImport ? fields[1] : fields[2]), table));
+        }
+        return jobs;
+    }
+
+    @Override
+    public String toString() {
+        return isImport() ? IMPORT + " " + file + " -> " + table : EXPORT + " " + table + " -> " + file;
+    }
+}
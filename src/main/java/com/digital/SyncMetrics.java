@@ -0,0 +1,274 @@
+package com.digital;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+import java.util.function.IntSupplier;
+
+/**
+ * Counters, latency histograms and gauges for one {@link Pipeline} run.
+ *
+ * <p>Counters are {@link LongAdder}s and are bumped once per batch, not per row, so workers
+ * don't contend on a shared cache line. Rows move through the counters in order: read from
+ * the input, parsed into a batch (or rejected), bound by the sink, committed.</p>
+ *
+ * <p>The pipeline measures how long each source batch took to read and parse; sinks record
+ * their own {@code executeBatch} and commit times, and a {@link ConnectionPool} how long
+ * workers waited for a connection. {@link MetricsReporter} prints and exports all of it
+ * periodically.</p>
+ */
+public class SyncMetrics implements SyncMetricsMBean {
+    private final long startNanos = System.nanoTime();
+
+    private final LongAdder rowsRead = new LongAdder();
+    private final LongAdder rowsParsed = new LongAdder();
+    private final LongAdder rowsRejected = new LongAdder();
+    private final LongAdder rowsBound = new LongAdder();
+    private final LongAdder rowsCommitted = new LongAdder();
+    private final LongAdder fileBytes = new LongAdder();
+
+    private final LatencyHistogram readBatch = new LatencyHistogram();
+    private final LatencyHistogram executeBatch = new LatencyHistogram();
+    private final LatencyHistogram commit = new LatencyHistogram();
+    private final LatencyHistogram connectionWait = new LatencyHistogram();
+    private final LongAdder connectionTimeouts = new LongAdder();
+
+    private final List<Queue> queues = new ArrayList<>();
+    private final List<Pool> pools = new ArrayList<>();
+    private volatile DoubleSupplier progress = () -> Double.NaN;
+
+    /**
+     * A stage's input queues, sampled by the reporter.
+     */
+    public record Queue(String stage, IntSupplier depth, int capacity) {
+    }
+
+    /**
+     * A connection pool's busy connections and waiting threads, sampled by the reporter.
+     */
+    public record Pool(String name, IntSupplier active, IntSupplier waiting, int size) {
+    }
+
+    public LongAdder rowsRead() {
+        return rowsRead;
+    }
+
+    public LongAdder rowsParsed() {
+        return rowsParsed;
+    }
+
+    public LongAdder rowsRejected() {
+        return rowsRejected;
+    }
+
+    public LongAdder rowsBound() {
+        return rowsBound;
+    }
+
+    public LongAdder rowsCommitted() {
+        return rowsCommitted;
+    }
+
+    /**
+     * Bytes file sources have read and file sinks have written, for throughput and throttling.
+     */
+    public LongAdder fileBytes() {
+        return fileBytes;
+    }
+
+    /**
+     * Time for a source to read and parse one batch, excluding time blocked on a full queue.
+     */
+    public LatencyHistogram readBatch() {
+        return readBatch;
+    }
+
+    /**
+     * Time for a sink to bind and send one batch ({@code executeBatch} or equivalent).
+     */
+    public LatencyHistogram executeBatch() {
+        return executeBatch;
+    }
+
+    public LatencyHistogram commit() {
+        return commit;
+    }
+
+    /**
+     * Time to get a connection from a pool, including time blocked while all were in use.
+     */
+    public LatencyHistogram connectionWait() {
+        return connectionWait;
+    }
+
+    /**
+     * Connection requests that gave up because the pool stayed exhausted.
+     */
+    public LongAdder connectionTimeouts() {
+        return connectionTimeouts;
+    }
+
+    public synchronized void addQueue(String stage, IntSupplier depth, int capacity) {
+        queues.add(new Queue(stage, depth, capacity));
+    }
+
+    public synchronized List<Queue> queues() {
+        return List.copyOf(queues);
+    }
+
+    /**
+     * Adds a pool, once: the source and the sink may share one.
+     */
+    public synchronized void addPool(String name, IntSupplier active, IntSupplier waiting, int size) {
+        for (Pool pool : pools) {
+            if (pool.name().equals(name)) {
+                return;
+            }
+        }
+        pools.add(new Pool(name, active, waiting, size));
+    }
+
+    public synchronized List<Pool> pools() {
+        return List.copyOf(pools);
+    }
+
+    /**
+     * Sets the source of the completed fraction (0..1), or NaN when it is unknown.
+     */
+    public void progress(DoubleSupplier progress) {
+        this.progress = progress;
+    }
+
+    public double progress() {
+        return progress.getAsDouble();
+    }
+
+    public long elapsedNanos() {
+        return System.nanoTime() - startNanos;
+    }
+
+    /**
+     * Estimated seconds until the source is exhausted, or -1 when progress is unknown.
+     */
+    public long etaSeconds() {
+        double done = progress();
+        if (Double.isNaN(done) || done <= 0) {
+            return -1;
+        }
+        double elapsedSeconds = elapsedNanos() / 1e9;
+        return Math.round(elapsedSeconds * (1 - Math.min(1, done)) / done);
+    }
+
+    @Override
+    public long getRowsRead() {
+        return rowsRead.sum();
+    }
+
+    @Override
+    public long getRowsParsed() {
+        return rowsParsed.sum();
+    }
+
+    @Override
+    public long getRowsRejected() {
+        return rowsRejected.sum();
+    }
+
+    @Override
+    public long getRowsBound() {
+        return rowsBound.sum();
+    }
+
+    @Override
+    public long getRowsCommitted() {
+        return rowsCommitted.sum();
+    }
+
+    @Override
+    public long getFileBytes() {
+        return fileBytes.sum();
+    }
+
+    @Override
+    public double getRowsPerSecond() {
+        return rowsCommitted.sum() / Math.max(1e-9, elapsedNanos() / 1e9);
+    }
+
+    @Override
+    public double getReadBatchP50Millis() {
+        return percentileMillis(readBatch, 0.50);
+    }
+
+    @Override
+    public double getReadBatchP99Millis() {
+        return percentileMillis(readBatch, 0.99);
+    }
+
+    @Override
+    public double getExecuteBatchP50Millis() {
+        return percentileMillis(executeBatch, 0.50);
+    }
+
+    @Override
+    public double getExecuteBatchP99Millis() {
+        return percentileMillis(executeBatch, 0.99);
+    }
+
+    @Override
+    public double getCommitP50Millis() {
+        return percentileMillis(commit, 0.50);
+    }
+
+    @Override
+    public double getCommitP99Millis() {
+        return percentileMillis(commit, 0.99);
+    }
+
+    @Override
+    public double getConnectionWaitP50Millis() {
+        return percentileMillis(connectionWait, 0.50);
+    }
+
+    @Override
+    public double getConnectionWaitP99Millis() {
+        return percentileMillis(connectionWait, 0.99);
+    }
+
+    @Override
+    public long getConnectionTimeouts() {
+        return connectionTimeouts.sum();
+    }
+
+    @Override
+    public int getThreadsAwaitingConnection() {
+        int waiting = 0;
+        for (Pool pool : pools()) {
+            waiting += pool.waiting().getAsInt();
+        }
+        return waiting;
+    }
+
+    @Override
+    public int getQueuedBatches() {
+        int queued = 0;
+        for (Queue queue : queues()) {
+            queued += queue.depth().getAsInt();
+        }
+        return queued;
+    }
+
+    @Override
+    public double getProgressPercent() {
+        return progress() * 100;
+    }
+
+    @Override
+    public long getEtaSeconds() {
+        return etaSeconds();
+    }
+
+    private static double percentileMillis(LatencyHistogram histogram, double quantile) {
+        return LatencyHistogram.percentile(histogram.snapshot(), quantile) / 1e6;
+    }
+}
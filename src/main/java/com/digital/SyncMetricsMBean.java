@@ -0,0 +1,49 @@
+package com.digital;
+
+/**
+ * JMX view of a running {@link Pipeline}, registered as
+ * {@code com.digital:type=SyncMetrics,name=<pipeline name>} while it runs. Latencies are
+ * cumulative since the start of the run.
+ */
+public interface SyncMetricsMBean {
+
+    long getRowsRead();
+
+    long getRowsParsed();
+
+    long getRowsRejected();
+
+    long getRowsBound();
+
+    long getRowsCommitted();
+
+    long getFileBytes();
+
+    double getRowsPerSecond();
+
+    double getReadBatchP50Millis();
+
+    double getReadBatchP99Millis();
+
+    double getExecuteBatchP50Millis();
+
+    double getExecuteBatchP99Millis();
+
+    double getCommitP50Millis();
+
+    double getCommitP99Millis();
+
+    double getConnectionWaitP50Millis();
+
+    double getConnectionWaitP99Millis();
+
+    long getConnectionTimeouts();
+
+    int getThreadsAwaitingConnection();
+
+    int getQueuedBatches();
+
+    double getProgressPercent();
+
+    long getEtaSeconds();
+}
@@ -0,0 +1,171 @@
+package com.digital;
+
+import com.github.javafaker.Faker;
+
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.function.Supplier;
+
+/**
+ * Generates realistic-looking person rows without calling Faker per row.
+ *
+ * <p>Faker resolves every value through YAML lookups and regex templating, which dominated the
+ * generator tools' CPU time. Here Faker is only used once, at construction, to sample
+ * dictionaries of first names, last names, streets, cities, states and e-mail domains. Rows
+ * are then assembled from those arrays with a {@link SplittableRandom} per partition, so the
+ * only per-row allocations are the three Strings that get bound.</p>
+ *
+ * <p>Output is reproducible: the same seed gives the same dictionaries, and the same seed and
+ * partition start give the same rows. Generating a row is deterministic: {@link Partition#skip(long)}
+ * makes the same bounded draws as {@link Partition#fill(RowBatch)} without building the
+ * Strings, so it leaves the stream where generating those rows would, and a partition can be
+ * resumed part-way through. (The number of raw draws per row is not fixed, since a bounded
+ * draw may reject and redraw, but it is the same for both.)</p>
+ */
+public class SyntheticPersonGenerator {
+    public static final long DEFAULT_SEED = 42L;
+    static final int MIN_AGE = 18;
+    static final int MAX_AGE_EXCLUSIVE = 99;
+
+    private static final int DICTIONARY_SAMPLES = 2_000;
+
+    private final String[] firstNames;
+    private final String[] lastNames;
+    private final String[] emailFirstNames; // Lower-case, e-mail safe copies of the names above
+    private final String[] emailLastNames;
+    private final String[] streets;
+    private final String[] cities;
+    private final String[] states;
+    private final String[] domains;
+
+    public SyntheticPersonGenerator(long seed) {
+        Faker faker = new Faker(Locale.US, new Random(seed));
+        this.firstNames = sample(() -> faker.name().firstName());
+        this.lastNames = sample(() -> faker.name().lastName());
+        this.streets = sample(() -> faker.address().streetName());
+        this.cities = sample(() -> faker.address().city());
+        this.states = sample(() -> faker.address().stateAbbr());
+        this.domains = sample(() -> faker.internet().domainName());
+        this.emailFirstNames = toEmailParts(firstNames);
+        this.emailLastNames = toEmailParts(lastNames);
+    }
+
+    /**
+     * Returns a generator for rows {@code [fromRow, toRow)}; independent partitions can run on
+     * different threads.
+     */
+    public Partition partition(long seed, long fromRow, long toRow) {
+        return new Partition(seed, fromRow, toRow);
+    }
+
+    private static String[] sample(Supplier<String> source) {
+        // LinkedHashSet keeps the first-seen order, so the dictionaries depend only on the seed
+        Set<String> values = new LinkedHashSet<>();
+        for (int i = 0; i < DICTIONARY_SAMPLES; i++) {
+            values.add(source.get());
+        }
+        return values.toArray(new String[0]);
+    }
+
+    private static String[] toEmailParts(String[] names) {
+        String[] parts = new String[names.length];
+        for (int i = 0; i < names.length; i++) {
+            parts[i] = names[i].toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9]", "");
+        }
+        return parts;
+    }
+
+    /**
+     * Sequential generator for one partition. Not thread-safe; each worker owns its partitions.
+     */
+    public class Partition {
+        private final SplittableRandom random;
+        private final StringBuilder text = new StringBuilder(128);
+        private final long toRow;
+        private long nextRow;
+
+        private Partition(long seed, long fromRow, long toRow) {
+            // Mix the partition start into the seed so neighbouring partitions get unrelated streams
+            this.random = new SplittableRandom(seed ^ (fromRow * 0x9E3779B97F4A7C15L));
+            this.nextRow = fromRow;
+            this.toRow = toRow;
+        }
+
+        public boolean hasNext() {
+            return nextRow < toRow;
+        }
+
+        /**
+         * Index of the next row this partition will generate.
+         */
+        public long nextRow() {
+            return nextRow;
+        }
+
+        /**
+         * Appends rows to {@code batch} until it is full or the partition is exhausted, and
+         * returns the number of rows added.
+         */
+        public int fill(RowBatch batch) {
+            int added = 0;
+            while (nextRow < toRow && !batch.isFull()) {
+                int first = random.nextInt(firstNames.length);
+                int last = random.nextInt(lastNames.length);
+                int emailNumber = random.nextInt(1000);
+                int domain = random.nextInt(domains.length);
+                int buildingNumber = 1 + random.nextInt(9999);
+                int street = random.nextInt(streets.length);
+                int city = random.nextInt(cities.length);
+                int state = random.nextInt(states.length);
+                int zip = random.nextInt(100_000);
+                int age = MIN_AGE + random.nextInt(MAX_AGE_EXCLUSIVE - MIN_AGE);
+
+                text.setLength(0);
+                String name = text.append(firstNames[first]).append(' ').append(lastNames[last]).toString();
+
+                text.setLength(0);
+                String email = text.append(emailFirstNames[first]).append('.').append(emailLastNames[last])
+                        .append(emailNumber).append('@').append(domains[domain]).toString();
+
+                text.setLength(0);
+                text.append(buildingNumber).append(' ').append(streets[street]).append(", ")
+                        .append(cities[city]).append(", ").append(states[state]).append(' ');
+                appendZip(zip);
+                String address = text.toString();
+
+                batch.add(nextRow, name, email, address, age);
+                nextRow++;
+                added++;
+            }
+            return added;
+        }
+
+        /**
+         * Advances past {@code rows} rows without building them.
+         */
+        public void skip(long rows) {
+            long target = Math.min(toRow, nextRow + rows);
+            for (; nextRow < target; nextRow++) {
+                random.nextInt(firstNames.length);
+                random.nextInt(lastNames.length);
+                random.nextInt(1000);
+                random.nextInt(domains.length);
+                random.nextInt(9999);
+                random.nextInt(streets.length);
+                random.nextInt(cities.length);
+                random.nextInt(states.length);
+                random.nextInt(100_000);
+                random.nextInt(MAX_AGE_EXCLUSIVE - MIN_AGE);
+            }
+        }
+
+        private void appendZip(int zip) {
+            for (int divisor = 10_000; divisor > 0; divisor /= 10) {
+                text.append((char) ('0' + zip / divisor % 10));
+            }
+        }
+    }
+}
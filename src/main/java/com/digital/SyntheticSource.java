@@ -0,0 +1,55 @@
+package com.digital;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Generates {@code totalRows} person rows with a {@link SyntheticPersonGenerator}, split into
+ * fixed-size row ranges that are generated in parallel. A split resumes from a row index by
+ * skipping the generator ahead, which reproduces the rows a fresh run would have made.
+ */
+public class SyntheticSource implements Source {
+    private final SyntheticPersonGenerator generator;
+    private final long seed;
+    private final long totalRows;
+    private final long partitionSize;
+    private final int batchSize;
+    private final LongAdder generatedRows = new LongAdder();
+
+    public SyntheticSource(SyntheticPersonGenerator generator, long seed, long totalRows, long partitionSize, int batchSize) {
+        this.generator = generator;
+        this.seed = seed;
+        this.totalRows = totalRows;
+        this.partitionSize = partitionSize;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public double progress() {
+        return totalRows == 0 ? Double.NaN : (double) generatedRows.sum() / totalRows;
+    }
+
+    @Override
+    public List<? extends Split> splits() {
+        List<Split> splits = new ArrayList<>();
+        for (long fromRow = 0; fromRow < totalRows; fromRow += partitionSize) {
+            long toRow = Math.min(fromRow + partitionSize, totalRows);
+            long start = fromRow;
+            splits.add((resumeFrom, out) -> {
+                SyntheticPersonGenerator.Partition rows = generator.partition(seed, start, toRow);
+                if (resumeFrom != CheckpointJournal.START) {
+                    rows.skip(resumeFrom - start); // Same seed, same rows: continue the exact sequence
+                    generatedRows.add(resumeFrom - start);
+                }
+                while (rows.hasNext()) {
+                    RowBatch batch = new RowBatch(batchSize);
+                    generatedRows.add(rows.fill(batch));
+                    batch.position(rows.nextRow());
+                    out.emit(batch);
+                }
+            });
+        }
+        return splits;
+    }
+}
@@ -0,0 +1,59 @@
+package com.digital;
+
+import java.nio.file.Paths;
+
+/**
+ * Copies one person table into another (for example people2 into people3) through the same
+ * {@link Pipeline} as the file tools: keyset-partitioned cursor reads on one side, pluggable
+ * bulk loading on the other.
+ *
+ * <p>Usage: {@code TableCopy --from=people2 --to=people3 [--loader=batch|multirow|loaddata] [--autotune]
+ * [--report-interval=seconds] [--metrics-file=path] [--resume] [--checkpoint=path] [--virtual-threads]}</p>
+ */
+public class TableCopy {
+    private static final String DB_URL = "jdbc:mysql://localhost:3306/db04";
+    private static final String DB_USER = "user";
+    private static final String DB_PASSWORD = "user";
+
+    private static final int READER_THREADS = 4;
+    private static final int WRITER_THREADS = 10;
+    private static final int PARTITION_SIZE = 100_000;
+    private static final int FETCH_SIZE = 10_000;
+    private static final int BATCH_SIZE = 1000;
+
+    public static void main(String[] args) {
+        long startTime = System.currentTimeMillis();
+        String fromTable = CliOptions.option(args, "from", "people2");
+        String toTable = CliOptions.option(args, "to", "people3");
+        String loader = CliOptions.option(args, "loader", BulkLoaders.BATCH);
+        String readUrl = DB_URL + "?useCursorFetch=true";
+        String writeUrl = BulkLoaders.withUrlParameters(DB_URL, loader);
+        String metricsFile = CliOptions.option(args, "metrics-file", null); // Prometheus text format
+
+        // The two sides need different URL properties, so each gets a pool sized to its own workers
+        try (ConnectionPool readPool = new ConnectionPool("table-copy-read", readUrl, DB_USER, DB_PASSWORD, READER_THREADS);
+             ConnectionPool writePool = new ConnectionPool("table-copy-write", writeUrl, DB_USER, DB_PASSWORD, WRITER_THREADS)) {
+            JdbcTableSink sink = new JdbcTableSink(writePool, toTable, loader);
+            if (CliOptions.flag(args, "autotune")) {
+                sink.autotune(new BatchAutotuner(BATCH_SIZE, WRITER_THREADS));
+            }
+            Pipeline.Result result = new Pipeline(
+                    new JdbcTableSource(readPool, fromTable, PARTITION_SIZE, FETCH_SIZE, BATCH_SIZE),
+                    sink)
+                    .sourceParallelism(READER_THREADS)
+                    .sinkParallelism(WRITER_THREADS)
+                    .name("table-copy")
+                    .reportEvery(CliOptions.intOption(args, "report-interval", 10))
+                    .prometheusFile(metricsFile == null ? null : Paths.get(metricsFile))
+                    .virtualThreads(CliOptions.flag(args, "virtual-threads") ? writePool.size() : 0)
+                    .checkpoint(Paths.get(CliOptions.option(args, "checkpoint", "table-copy.checkpoint")),
+                            "table-copy " + fromTable + " to " + toTable + " partition=" + PARTITION_SIZE,
+                            CliOptions.flag(args, "resume"))
+                    .run();
+            System.out.println("Copied " + result.rowsWritten() + " rows from " + fromTable + " to " + toTable
+                    + " in " + (System.currentTimeMillis() - startTime) + " ms");
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+}
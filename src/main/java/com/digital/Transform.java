@@ -0,0 +1,14 @@
+package com.digital;
+
+/**
+ * An optional middle stage of a {@link Pipeline}. Implementations must be thread-safe when the
+ * stage runs with a parallelism above one.
+ */
+public interface Transform {
+
+    /**
+     * Returns the batch to pass on, which may be {@code batch} itself modified in place, or
+     * {@code null} to drop it.
+     */
+    RowBatch apply(RowBatch batch) throws Exception;
+}
@@ -0,0 +1,53 @@
+package com.digital;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLDataException;
+import java.sql.SQLException;
+
+/**
+ * Upserts rows by id: {@code INSERT ... ON DUPLICATE KEY UPDATE}, bound per row with
+ * {@code addBatch()}. Unlike the other loaders it writes the id itself, so a row that already
+ * exists is updated in place; used by delta imports, which only send new or changed rows.
+ * Connector/J's {@code rewriteBatchedStatements=true} folds the batch into multi-row upserts.
+ * A row without an id (id 0) can't be matched to the row it updates and fails the load as a
+ * row error.
+ */
+public class UpsertLoader implements BulkLoader {
+    private final PreparedStatement statement;
+
+    public UpsertLoader(Connection connection, String table) throws SQLException {
+        this.statement = connection.prepareStatement(
+                "INSERT INTO " + table + " (id, name, email, address, age) VALUES (?, ?, ?, ?, ?)"
+                        + " ON DUPLICATE KEY UPDATE name = VALUES(name), email = VALUES(email),"
+                        + " address = VALUES(address), age = VALUES(age)");
+    }
+
+    @Override
+    public int load(RowBatch batch, int from, int to) throws SQLException {
+        for (int row = from; row < to; row++) {
+            if (batch.id(row) <= 0) {
+                statement.clearBatch();
+                throw new SQLDataException("Row has no id to upsert by", "22000"); // 22: data exception
+            }
+            statement.setLong(1, batch.id(row));
+            statement.setString(2, batch.name(row));
+            statement.setString(3, batch.email(row));
+            statement.setString(4, batch.address(row));
+            statement.setInt(5, batch.age(row));
+            statement.addBatch();
+        }
+        try {
+            statement.executeBatch();
+        } catch (SQLException e) {
+            statement.clearBatch(); // Some drivers keep a failed batch, and would send it again with the next rows
+            throw e;
+        }
+        return to - from;
+    }
+
+    @Override
+    public void close() throws SQLException {
+        statement.close();
+    }
+}
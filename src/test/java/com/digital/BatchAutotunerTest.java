@@ -0,0 +1,51 @@
+package com.digital;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BatchAutotunerTest {
+
+    @Test
+    void slowWindowAfterALatencySpikeKeepsTheBackedOffBatchSize() {
+        BatchAutotuner tuner = new BatchAutotuner(4000, 4);
+        tuner.evaluate(10_000, 1000); // First window: sets the baseline and steps the batch size up
+        assertEquals(5000, tuner.batchSize());
+
+        tuner.evaluate(10_000, 5000); // Commit time per row 5x the average
+        assertEquals(2500, tuner.batchSize());
+
+        // Much slower than the rate under pressure: the revert must not restore the pre-spike 5000
+        tuner.evaluate(1000, 1000);
+        assertEquals(2500, tuner.batchSize());
+    }
+
+    @Test
+    void lastingRiseInCommitTimeBacksOffOnlyOnce() {
+        BatchAutotuner tuner = new BatchAutotuner(4000, 4);
+        for (int window = 0; window < 5; window++) {
+            tuner.evaluate(10_000, 1000);
+        }
+        int before = tuner.batchSize();
+
+        // From now on every row takes 3x as long, for good
+        tuner.evaluate(3000, 3000);
+        int backedOff = tuner.batchSize();
+        assertEquals(Math.max(100, before / 2), backedOff);
+        for (int window = 0; window < 20; window++) {
+            tuner.evaluate(3000, 3000);
+            assertTrue(tuner.batchSize() >= backedOff - 1000, "window " + window + ": " + tuner.batchSize());
+        }
+    }
+
+    @Test
+    void slowWindowRevertsTheLastStep() {
+        BatchAutotuner tuner = new BatchAutotuner(4000, 4);
+        tuner.evaluate(10_000, 1000);
+        assertEquals(5000, tuner.batchSize());
+
+        tuner.evaluate(5000, 1000);
+        assertEquals(4000, tuner.batchSize());
+    }
+}
@@ -0,0 +1,293 @@
+package com.digital;
+
+import com.mysql.cj.jdbc.JdbcStatement;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.InputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLDataException;
+import java.sql.SQLException;
+import java.sql.SQLWarning;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Loads the same rows with every insert strategy into an embedded H2 database and compares
+ * what each one committed.
+ *
+ * <p>H2 has no {@code LOAD DATA LOCAL INFILE}, so {@link LoadDataLoader} runs against a stand-in
+ * statement that plays the MySQL server: it decodes the tab-separated stream the loader sends
+ * and inserts it into H2, skipping rows with a negative age with a warning, as {@code LOCAL}
+ * does for rows that break a constraint.</p>
+ */
+class BulkLoadersTest {
+    private static final AtomicInteger DATABASES = new AtomicInteger();
+
+    private Connection connection;
+
+    @BeforeEach
+    void createTable() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:h2:mem:loaders" + DATABASES.incrementAndGet() + ";MODE=MySQL");
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE people (id BIGINT AUTO_INCREMENT PRIMARY KEY, name VARCHAR(250),"
+                    + " email VARCHAR(100), address VARCHAR(100), age INT CHECK (age >= 0))");
+        }
+        connection.setAutoCommit(false);
+    }
+
+    @AfterEach
+    void close() throws SQLException {
+        connection.close();
+    }
+
+    @Test
+    void everyStrategyCommitsTheSameRows() throws SQLException {
+        RowBatch batch = rows(2500);
+        List<String> expected = new ArrayList<>();
+        for (int row = 10; row < 2400; row++) {
+            expected.add(row(batch.name(row), batch.email(row), batch.address(row), batch.age(row)));
+        }
+
+        for (String strategy : List.of(BulkLoaders.BATCH, BulkLoaders.MULTI_ROW, BulkLoaders.LOAD_DATA)) {
+            try (BulkLoader loader = create(strategy)) {
+                assertEquals(2390, loader.load(batch, 10, 2400), strategy);
+            }
+            connection.commit();
+            assertEquals(expected, committedRows(), strategy);
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("DELETE FROM people");
+            }
+            connection.commit();
+        }
+    }
+
+    @Test
+    void multiRowLoaderSplitsLargeBatchesIntoStatements() throws SQLException {
+        int rows;
+        try (MultiRowInsertLoader loader = new MultiRowInsertLoader(connection, "people")) {
+            assertEquals(MultiRowInsertLoader.DEFAULT_MAX_PACKET * 9 / 10 / MultiRowInsertLoader.MAX_ROW_BYTES,
+                    loader.rowsPerStatement()); // H2 has no @@max_allowed_packet
+            RowBatch batch = rows(loader.rowsPerStatement() * 2 + 7);
+            rows = loader.load(batch);
+            assertEquals(batch.size(), rows);
+        }
+        connection.commit();
+        assertEquals(rows, committedRows().size());
+    }
+
+    @Test
+    void everyStrategyFailsOnARefusedRow() throws SQLException {
+        RowBatch batch = rows(50);
+        batch.add(0, "bad", "bad@example.org", "street", -1);
+        for (String strategy : List.of(BulkLoaders.BATCH, BulkLoaders.MULTI_ROW, BulkLoaders.LOAD_DATA)) {
+            try (BulkLoader loader = create(strategy)) {
+                SQLException e = assertThrows(SQLException.class, () -> loader.load(batch), strategy);
+                assertTrue(DeadLetterFile.isRowError(e), strategy + ": " + e);
+            }
+            connection.rollback();
+        }
+    }
+
+    @Test
+    void loadDataReportsSkippedRowsAsADataException() throws SQLException {
+        RowBatch batch = rows(3);
+        batch.add(0, "bad", "bad@example.org", "street", -1);
+        try (BulkLoader loader = create(BulkLoaders.LOAD_DATA)) {
+            SQLDataException e = assertThrows(SQLDataException.class, () -> loader.load(batch));
+            assertTrue(e.getMessage().startsWith("LOAD DATA inserted 3 of 4 rows"), e.getMessage());
+        }
+    }
+
+    @Test
+    void loadersWithIdsKeepTheRowIdsAndGenerateMissingOnes() throws SQLException {
+        RowBatch batch = new RowBatch(3);
+        batch.add(500, "a", "a@example.org", "street", 1);
+        batch.add(0, "b", "b@example.org", "street", 2);
+        batch.add(7, "c", "c@example.org", "street", 3);
+        for (String strategy : List.of(BulkLoaders.BATCH, BulkLoaders.MULTI_ROW, BulkLoaders.LOAD_DATA)) {
+            try (BulkLoader loader = create(strategy, true)) {
+                assertEquals(3, loader.load(batch), strategy);
+            }
+            connection.commit();
+            assertEquals(List.of("7|c", "500|a", "501|b"), committedIds(), strategy);
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("DELETE FROM people");
+                statement.execute("ALTER TABLE people ALTER COLUMN id RESTART WITH 1");
+            }
+            connection.commit();
+        }
+    }
+
+    @Test
+    void upsertUpdatesByIdAndRefusesRowsWithoutOne() throws SQLException {
+        RowBatch batch = new RowBatch(2);
+        batch.add(3, "a", "a@example.org", "street", 1);
+        batch.add(3, "a2", "a2@example.org", "street", 2);
+        try (BulkLoader loader = BulkLoaders.create(BulkLoaders.UPSERT, connection, "people")) {
+            assertEquals(2, loader.load(batch));
+            connection.commit();
+            assertEquals(List.of("3|a2"), committedIds());
+
+            RowBatch withoutId = new RowBatch(1);
+            withoutId.add(0, "b", "b@example.org", "street", 1);
+            SQLException e = assertThrows(SQLException.class, () -> loader.load(withoutId));
+            assertTrue(DeadLetterFile.isRowError(e), e.toString());
+        }
+    }
+
+    private BulkLoader create(String strategy) throws SQLException {
+        return create(strategy, false);
+    }
+
+    private BulkLoader create(String strategy, boolean withIds) throws SQLException {
+        return BulkLoaders.LOAD_DATA.equals(strategy)
+                ? new LoadDataLoader(loadDataConnection(), "people", withIds)
+                : BulkLoaders.create(strategy, connection, "people", withIds);
+    }
+
+    private List<String> committedIds() throws SQLException {
+        List<String> rows = new ArrayList<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT id, name FROM people ORDER BY id")) {
+            while (resultSet.next()) {
+                rows.add(resultSet.getLong(1) + "|" + resultSet.getString(2));
+            }
+        }
+        return rows;
+    }
+
+    // Rows with the characters LOAD DATA has to escape, unicode and nulls
+    private static RowBatch rows(int count) {
+        RowBatch batch = new RowBatch(count + 1);
+        for (int i = 0; i < count; i++) {
+            String name = switch (i % 5) {
+                case 0 -> "Tab\there";
+                case 1 -> "Line\nbreak\r\nand back\\slash";
+                case 2 -> "Zoë Ångström";
+                case 3 -> null;
+                default -> "Name " + i;
+            };
+            batch.add(i + 1, name, "user" + i + "@example.org", i % 7 == 0 ? null : "Street " + i, i % 90);
+        }
+        return batch;
+    }
+
+    private List<String> committedRows() throws SQLException {
+        List<String> rows = new ArrayList<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT name, email, address, age FROM people ORDER BY id")) {
+            while (resultSet.next()) {
+                rows.add(row(resultSet.getString(1), resultSet.getString(2), resultSet.getString(3), resultSet.getInt(4)));
+            }
+        }
+        return rows;
+    }
+
+    private static String row(String name, String email, String address, int age) {
+        return name + "|" + email + "|" + address + "|" + age;
+    }
+
+    // A connection whose statements take LOAD DATA LOCAL INFILE and insert the stream into H2
+    private Connection loadDataConnection() {
+        InputStream[] localInfile = new InputStream[1];
+        SQLWarning[] warnings = new SQLWarning[1];
+        InvocationHandler statementHandler = (proxy, method, args) -> switch (method.getName()) {
+            case "unwrap" -> proxy;
+            case "setLocalInfileInputStream" -> {
+                localInfile[0] = (InputStream) args[0];
+                yield null;
+            }
+            case "clearWarnings" -> {
+                warnings[0] = null;
+                yield null;
+            }
+            case "getWarnings" -> warnings[0];
+            case "executeUpdate" -> {
+                assertTrue(((String) args[0]).startsWith("LOAD DATA LOCAL INFILE"), (String) args[0]);
+                yield loadLocalInfile((String) args[0], localInfile[0].readAllBytes(), warnings);
+            }
+            case "close" -> null;
+            default -> throw new UnsupportedOperationException(method.getName());
+        };
+        Object statement = Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{JdbcStatement.class}, statementHandler);
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("createStatement")) {
+                        return statement;
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    private int loadLocalInfile(String sql, byte[] data, SQLWarning[] warnings) throws SQLException {
+        boolean withIds = sql.endsWith("(id, name, email, address, age)");
+        int inserted = 0;
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO people (id, name, email, address, age) VALUES (?, ?, ?, ?, ?)")) {
+            for (String line : new String(data, StandardCharsets.UTF_8).split("\n")) {
+                String[] fields = line.split("\t", -1);
+                assertEquals(withIds ? 5 : 4, fields.length, line);
+                if (withIds) {
+                    insert.setString(1, unescape(fields[0])); // \N for a row without an id
+                    fields = Arrays.copyOfRange(fields, 1, 5);
+                } else {
+                    insert.setNull(1, Types.BIGINT);
+                }
+                int age = Integer.parseInt(fields[3]);
+                if (age < 0) {
+                    SQLWarning warning = new SQLWarning("Check constraint violated, row skipped", "HY000", 3819);
+                    if (warnings[0] == null) {
+                        warnings[0] = warning;
+                    } else {
+                        warnings[0].setNextWarning(warning);
+                    }
+                    continue;
+                }
+                insert.setString(2, unescape(fields[0]));
+                insert.setString(3, unescape(fields[1]));
+                insert.setString(4, unescape(fields[2]));
+                insert.setInt(5, age);
+                inserted += insert.executeUpdate();
+            }
+        }
+        return inserted;
+    }
+
+    // Undoes LOAD DATA's backslash escapes; \N is NULL
+    private static String unescape(String field) {
+        if (field.equals("\\N")) {
+            return null;
+        }
+        StringBuilder value = new StringBuilder();
+        for (int i = 0; i < field.length(); i++) {
+            char c = field.charAt(i);
+            if (c == '\\') {
+                c = switch (field.charAt(++i)) {
+                    case 't' -> '\t';
+                    case 'n' -> '\n';
+                    case 'r' -> '\r';
+                    case '0' -> '\0';
+                    default -> field.charAt(i);
+                };
+            }
+            value.append(c);
+        }
+        return value.toString();
+    }
+}
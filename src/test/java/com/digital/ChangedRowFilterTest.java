@@ -0,0 +1,51 @@
+package com.digital;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChangedRowFilterTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void refusedRowsKeepTheirPreviousHashSoTheyAreSentAgain() throws Exception {
+        Path csv = Files.writeString(directory.resolve("people.csv"), "id,name,email,address,age\n1,a,a@x,s,1\n");
+        RowBatch synced = batch("old");
+        RowHashIndex previous = new ChangedRowFilter(RowHashIndex.load(directory.resolve("none")))
+                .updatedIndex(csv, 0, 0, new long[0]);
+
+        ChangedRowFilter first = new ChangedRowFilter(previous);
+        assertEquals(3, first.apply(synced).size());
+        RowHashIndex afterFirst = first.updatedIndex(csv, 0, 0, new long[0]);
+
+        RowBatch changed = batch("new");
+        ChangedRowFilter second = new ChangedRowFilter(afterFirst);
+        assertEquals(3, second.apply(changed).size());
+        RowHashIndex afterSecond = second.updatedIndex(csv, 0, 0, new long[]{2});
+
+        assertTrue(afterSecond.unchanged(1, RowHashIndex.hash(changed, 0)));
+        assertFalse(afterSecond.unchanged(2, RowHashIndex.hash(changed, 1)), "a refused row must not count as synced");
+        assertTrue(afterSecond.unchanged(2, RowHashIndex.hash(synced, 1)), "it keeps the hash of its last committed version");
+        assertTrue(afterSecond.unchanged(3, RowHashIndex.hash(changed, 2)));
+
+        ChangedRowFilter third = new ChangedRowFilter(afterSecond);
+        RowBatch retried = third.apply(changed);
+        assertEquals(1, retried.size());
+        assertEquals(2, retried.id(0));
+    }
+
+    private static RowBatch batch(String version) {
+        RowBatch batch = new RowBatch(3);
+        for (int id = 1; id <= 3; id++) {
+            batch.add(id, "name " + version, id + "@x", "street", id);
+        }
+        return batch;
+    }
+}
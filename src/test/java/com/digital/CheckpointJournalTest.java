@@ -0,0 +1,253 @@
+package com.digital;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The journal on its own, and interrupted runs resumed through a {@link Pipeline} against an
+ * embedded H2 database.
+ */
+class CheckpointJournalTest {
+    private static final AtomicInteger DATABASES = new AtomicInteger();
+    private static final int ROWS = 5000;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void positionOnlyAdvancesOverContiguousCommits() throws Exception {
+        CheckpointJournal journal = open("job", 2, false);
+        journal.committed(0, batch(2, 300), 30);
+        journal.committed(0, batch(1, 200), 20);
+        assertEquals(CheckpointJournal.START, journal.position(0), "batch 0 is not committed yet");
+
+        journal.committed(0, batch(0, 100), 10);
+        assertEquals(300, journal.position(0));
+        assertEquals(30, journal.sinkPosition(0));
+        assertEquals(CheckpointJournal.START, journal.position(1));
+    }
+
+    @Test
+    void batchesCommittedAheadAreSkippedOnResume() throws Exception {
+        CheckpointJournal first = open("job", 1, false);
+        first.committed(0, batch(0, 100), 0);
+        first.committed(0, batch(2, 300), 0);
+        first.committed(0, batch(4, 500), 0);
+
+        CheckpointJournal resumed = open("job", 1, true);
+        assertTrue(resumed.resumed());
+        assertEquals(100, resumed.position(0));
+        assertFalse(resumed.skip(0, batch(0, 200)));
+        assertTrue(resumed.skip(0, batch(1, 300)));
+        assertFalse(resumed.skip(0, batch(1, 300)), "skipped once only");
+
+        // The resumed run re-numbers the split from its resume point
+        resumed.committed(0, batch(0, 200), 0);
+        resumed.committed(0, batch(1, 300), 0); // The skipped batch, recorded by the pipeline
+        assertEquals(300, resumed.position(0));
+        assertTrue(resumed.skip(0, batch(3, 500)));
+    }
+
+    @Test
+    void splitFinishesOnceTheSourceIsDoneAndEveryBatchCommitted() throws Exception {
+        CheckpointJournal journal = open("job", 2, false);
+        journal.committed(0, batch(0, 100), 0);
+        journal.sourceFinished(0, 2);
+        assertFalse(journal.isFinished(0));
+        journal.committed(0, batch(1, 200), 0);
+        assertTrue(journal.isFinished(0));
+
+        journal.sourceFinished(1, 1); // Source done before the sink
+        journal.committed(1, batch(0, 100), 0);
+        assertTrue(journal.isFinished(1));
+
+        CheckpointJournal resumed = open("job", 2, true);
+        assertTrue(resumed.isFinished(0));
+        assertTrue(resumed.isFinished(1));
+    }
+
+    @Test
+    void concurrentCommitsAllReachTheFile() throws Exception {
+        int splits = 4;
+        int batches = 300;
+        CheckpointJournal journal = open("job", splits, false);
+        ExecutorService executor = Executors.newFixedThreadPool(splits);
+        try {
+            List<Future<?>> work = new ArrayList<>();
+            for (int split = 0; split < splits; split++) {
+                int index = split;
+                work.add(executor.submit(() -> {
+                    for (int sequence = 0; sequence < batches; sequence++) {
+                        journal.committed(index, batch(sequence, (sequence + 1) * 10L), sequence);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : work) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        CheckpointJournal resumed = open("job", splits, true);
+        for (int split = 0; split < splits; split++) {
+            assertEquals(batches * 10L, resumed.position(split));
+            assertEquals(batches - 1, resumed.sinkPosition(split));
+        }
+    }
+
+    @Test
+    void failedWriteIsRetriedByFlush() throws Exception {
+        Path subdirectory = Files.createDirectories(directory.resolve("sub"));
+        Path file = subdirectory.resolve("job.checkpoint");
+        CheckpointJournal journal = new CheckpointJournal(file, "job");
+        journal.open(1, false);
+        Files.delete(file);
+        Files.delete(subdirectory);
+
+        assertThrows(IOException.class, () -> journal.committed(0, batch(0, 100), 0));
+        Files.createDirectories(subdirectory);
+        journal.flush(); // What the failed write lost is still to be written
+
+        CheckpointJournal resumed = new CheckpointJournal(file, "job");
+        assertTrue(resumed.open(1, true));
+        assertEquals(100, resumed.position(0));
+    }
+
+    @Test
+    void journalOfAnotherJobOrPlanIsRefused() throws Exception {
+        open("job", 2, false).committed(0, batch(0, 100), 0);
+        assertThrows(IllegalStateException.class, () -> open("other job", 2, true));
+        assertThrows(IllegalStateException.class, () -> open("job", 3, true));
+        assertFalse(open("job", 2, false).resumed(), "without resume the old journal is discarded");
+    }
+
+    @Test
+    void interruptedImportResumesWithEveryRowOnce() throws Exception {
+        Path csv = directory.resolve("people.csv");
+        StringBuilder text = new StringBuilder("id,name,email,address,age\n");
+        for (int id = 1; id <= ROWS; id++) {
+            text.append(id).append(",\"n").append(id).append("\nsecond line\",").append(id).append("@x,street,30\n");
+        }
+        Files.writeString(csv, text);
+
+        for (String mode : List.of(CsvFileSource.STREAM, CsvFileSource.MAPPED)) {
+            String url = createTable();
+            Path checkpoint = directory.resolve(mode + ".checkpoint");
+            for (boolean resume : List.of(false, true)) {
+                Pipeline pipeline = new Pipeline(new CsvFileSource(csv, mode, 100, 4),
+                        new JdbcTableSink(() -> DriverManager.getConnection(url), "people", BulkLoaders.BATCH).withIds())
+                        .sourceParallelism(CsvFileSource.MAPPED.equals(mode) ? 4 : 1)
+                        .sinkParallelism(3)
+                        .reportEvery(0)
+                        .checkpoint(checkpoint, "import " + mode, resume);
+                if (!resume) {
+                    pipeline.transform(failingAfter(20), 1);
+                    assertThrows(IllegalStateException.class, pipeline::run, mode);
+                    assertTrue(Files.exists(checkpoint));
+                    assertTrue(count(url, "COUNT(*)") < ROWS, mode);
+                } else {
+                    pipeline.run();
+                }
+            }
+            assertEquals(ROWS, count(url, "COUNT(*)"), mode);
+            assertEquals(ROWS, count(url, "COUNT(DISTINCT id)"), mode);
+            assertFalse(Files.exists(checkpoint), "deleted after the run completes");
+        }
+    }
+
+    @Test
+    void interruptedOrderedExportResumesToTheSameFile() throws Exception {
+        String url = createTable();
+        try (Connection connection = DriverManager.getConnection(url);
+             Statement statement = connection.createStatement()) {
+            statement.execute("INSERT INTO people SELECT X, 'n' || X, X || '@x', 'street', MOD(X, 90) FROM SYSTEM_RANGE(1, " + ROWS + ")");
+        }
+        Path expected = directory.resolve("expected.csv");
+        new Pipeline(new JdbcTableSource(() -> DriverManager.getConnection(url), "people", 700, 100, 100),
+                new CsvFileSink(expected)).reportEvery(0).run();
+
+        Path resumed = directory.resolve("resumed.csv");
+        Path checkpoint = directory.resolve("export.checkpoint");
+        for (boolean resume : List.of(false, true)) {
+            Pipeline pipeline = new Pipeline(new JdbcTableSource(() -> DriverManager.getConnection(url), "people", 700, 100, 100),
+                    new CsvFileSink(resumed))
+                    .sourceParallelism(3)
+                    .sinkParallelism(2)
+                    .reportEvery(0)
+                    .checkpoint(checkpoint, "export", resume);
+            if (!resume) {
+                pipeline.transform(failingAfter(25), 1);
+                assertThrows(IllegalStateException.class, pipeline::run);
+            } else {
+                pipeline.run();
+            }
+        }
+        assertArrayEquals(Files.readAllBytes(expected), Files.readAllBytes(resumed));
+    }
+
+    // Passes batches on unchanged, then fails the run once it has seen this many
+    private static Transform failingAfter(int batches) {
+        AtomicInteger seen = new AtomicInteger();
+        return batch -> {
+            if (seen.incrementAndGet() > batches) {
+                throw new IllegalStateException("Interrupted for the test");
+            }
+            return batch;
+        };
+    }
+
+    private static String createTable() throws SQLException {
+        String url = "jdbc:h2:mem:journal" + DATABASES.incrementAndGet() + ";MODE=MySQL;DB_CLOSE_DELAY=-1";
+        try (Connection connection = DriverManager.getConnection(url);
+             Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE people (id BIGINT, name VARCHAR(250), email VARCHAR(100),"
+                    + " address VARCHAR(100), age INT)");
+        }
+        return url;
+    }
+
+    private static long count(String url, String expression) throws SQLException {
+        try (Connection connection = DriverManager.getConnection(url);
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT " + expression + " FROM people")) {
+            resultSet.next();
+            return resultSet.getLong(1);
+        }
+    }
+
+    private CheckpointJournal open(String job, int splits, boolean resume) throws IOException {
+        CheckpointJournal journal = new CheckpointJournal(directory.resolve("job.checkpoint"), job);
+        journal.open(splits, resume);
+        return journal;
+    }
+
+    private static RowBatch batch(int sequence, long position) {
+        RowBatch batch = new RowBatch(0);
+        batch.sequence(sequence);
+        batch.position(position);
+        return batch;
+    }
+}
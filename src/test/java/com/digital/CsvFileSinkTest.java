@@ -0,0 +1,82 @@
+package com.digital;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Exports of an embedded H2 table: the part files of a parallel export, stitched together,
+ * must give the very bytes of a single-threaded one.
+ */
+class CsvFileSinkTest {
+    private static final AtomicInteger DATABASES = new AtomicInteger();
+    private static final int ROWS = 5000;
+
+    @TempDir
+    Path directory;
+
+    private String url;
+
+    @BeforeEach
+    void createTable() throws SQLException {
+        url = "jdbc:h2:mem:export" + DATABASES.incrementAndGet() + ";MODE=MySQL;DB_CLOSE_DELAY=-1";
+        try (Connection connection = DriverManager.getConnection(url);
+             Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE people (id BIGINT PRIMARY KEY, name VARCHAR(250), email VARCHAR(100),"
+                    + " address VARCHAR(100), age INT)");
+            try (PreparedStatement insert = connection.prepareStatement("INSERT INTO people VALUES (?, ?, ?, ?, ?)")) {
+                for (int id = 1; id <= ROWS; id++) {
+                    insert.setLong(1, id);
+                    insert.setString(2, id % 7 == 0 ? "O'Brien, \"Pat\"\nJr." : "Zoë " + id);
+                    insert.setString(3, id % 11 == 0 ? null : id + "@x");
+                    insert.setString(4, id % 13 == 0 ? "" : "Straße " + id);
+                    insert.setInt(5, id % 90);
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            }
+            // Id ranges with no rows at all, which leave splits without a part file
+            statement.execute("DELETE FROM people WHERE id BETWEEN 2000 AND 2999 OR id BETWEEN 4100 AND 4200");
+        }
+    }
+
+    @Test
+    void parallelExportMatchesSingleThreadedExport() throws Exception {
+        Path single = directory.resolve("single.csv");
+        new Pipeline(new JdbcTableSource(this::connect, "people", ROWS, 1000, 1000), new CsvFileSink(single))
+                .reportEvery(0)
+                .run();
+
+        for (boolean virtual : new boolean[]{false, true}) {
+            Path parallel = directory.resolve("parallel-" + virtual + ".csv");
+            Pipeline pipeline = new Pipeline(new JdbcTableSource(this::connect, "people", 300, 100, 70),
+                    new CsvFileSink(parallel))
+                    .sourceParallelism(4)
+                    .sinkParallelism(3)
+                    .reportEvery(0);
+            if (virtual) {
+                pipeline.virtualThreads(4);
+            }
+            pipeline.run();
+
+            assertArrayEquals(Files.readAllBytes(single), Files.readAllBytes(parallel), "virtual=" + virtual);
+            assertFalse(Files.exists(PartFiles.partsDirectory(parallel)), "parts deleted after stitching");
+        }
+    }
+
+    private Connection connect() throws SQLException {
+        return DriverManager.getConnection(url);
+    }
+}
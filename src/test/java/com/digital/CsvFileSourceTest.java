@@ -0,0 +1,77 @@
+package com.digital;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class CsvFileSourceTest {
+    private static final String CSV = "id,name,email,address,age\n"
+            + "1,a,a@x,street,1\n"
+            + "x,b,b@x,street,2\n"
+            + ",c,c@x,street,3\n"
+            + "-4,d,d@x,street,4\n"
+            + "10000000000,e,e@x,street,5\n";
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void rowsWithoutAValidIdGetIdZero() throws Exception {
+        for (String mode : List.of(CsvFileSource.STREAM, CsvFileSource.MAPPED)) {
+            assertEquals(List.of("1@2", "0@3", "0@4", "0@5", "10000000000@6"), read(new CsvFileSource(csv(), mode, 10, 2)), mode);
+        }
+    }
+
+    @Test
+    void requireIdsRejectsRowsWithoutAValidId() throws Exception {
+        for (String mode : List.of(CsvFileSource.STREAM, CsvFileSource.MAPPED)) {
+            SyncMetrics metrics = new SyncMetrics();
+            CsvFileSource source = new CsvFileSource(csv(), mode, 10, 2).requireIds();
+            source.instrument(metrics);
+            assertEquals(List.of("1@2", "10000000000@6"), read(source), mode);
+            assertEquals(3, metrics.getRowsRejected(), mode);
+        }
+    }
+
+    @Test
+    void splitsOnASharedExecutorWithoutShuttingItDown() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            for (int run = 0; run < 2; run++) {
+                CsvFileSource source = new CsvFileSource(csv(), CsvFileSource.MAPPED, 10, 4).executor(executor);
+                assertEquals(List.of("1@2", "0@3", "0@4", "0@5", "10000000000@6"), read(source));
+                assertFalse(executor.isShutdown());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private Path csv() throws Exception {
+        return Files.writeString(directory.resolve("people.csv"), CSV);
+    }
+
+    // Ids of the rows read, each with its line
+    private static List<String> read(CsvFileSource source) throws Exception {
+        List<String> rows = new ArrayList<>();
+        try (source) {
+            for (Source.Split split : source.splits()) {
+                split.read(CheckpointJournal.START, batch -> {
+                    for (int row = 0; row < batch.size(); row++) {
+                        rows.add(batch.id(row) + "@" + batch.line(row));
+                    }
+                });
+            }
+        }
+        return rows;
+    }
+}
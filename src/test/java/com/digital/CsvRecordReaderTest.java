@@ -0,0 +1,95 @@
+package com.digital;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * RFC 4180 record boundaries of {@link CsvRecordReader}, over a stream and a mapped file alike.
+ */
+class CsvRecordReaderTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void trailingLineBreakOrNoneAtEndOfInput() throws Exception {
+        assertRecords("a,b\nc,d\n", List.of("a,b", "c,d"));
+        assertRecords("a,b\nc,d", List.of("a,b", "c,d"));
+        assertRecords("a,b\r\nc,d\r\n", List.of("a,b", "c,d"));
+        assertRecords("a,b\r\nc,d", List.of("a,b", "c,d"));
+        assertRecords("", List.of());
+    }
+
+    @Test
+    void emptyLinesAreEmptyRecords() throws Exception {
+        assertRecords("a\n\nb\n", List.of("a", "", "b"));
+        assertRecords("\r\n", List.of(""));
+    }
+
+    @Test
+    void lineBreaksInsideQuotesAreKept() throws Exception {
+        assertRecords("1,\"a\nb\"\n2,\"c\r\nd\"\r\n3,\"e\rf\"\n", List.of("1,\"a\nb\"", "2,\"c\r\nd\"", "3,\"e\rf\""));
+        assertRecords("1,\"ends in CR\r\"\n", List.of("1,\"ends in CR\r\""));
+    }
+
+    @Test
+    void loneCarriageReturnOutsideQuotesIsNotARecordBreak() throws Exception {
+        assertRecords("a\rb\nc\n", List.of("a\rb", "c"));
+    }
+
+    @Test
+    void escapedQuotesDoNotEndTheQuotedField() throws Exception {
+        assertRecords("\"say \"\"hi\"\"\n\",x\n\"\"\"\",y\n", List.of("\"say \"\"hi\"\"\n\",x", "\"\"\"\",y"));
+    }
+
+    @Test
+    void unterminatedQuoteRunsToEndOfInputAndIsRejectedByTheParser() throws Exception {
+        List<String> records = assertRecords("1,ok\n2,\"open\n3,more\n", List.of("1,ok", "2,\"open\n3,more\n"));
+        assertThrows(IllegalArgumentException.class, () -> new CsvRowParser().parse(records.get(1)));
+    }
+
+    @Test
+    void multiByteCharactersSurviveBufferGrowth() throws Exception {
+        String name = "Zoë Ångström ".repeat(200);
+        assertRecords("1," + name + "\n2,\"" + name + "\n\"\n", List.of("1," + name, "2,\"" + name + "\n\""));
+    }
+
+    @Test
+    void lineBreaksCountsLineFeedsOnly() {
+        assertEquals(0, CsvRecordReader.lineBreaks("a,b"));
+        assertEquals(2, CsvRecordReader.lineBreaks("\"a\r\nb\",\"c\nd\""));
+        assertEquals(0, CsvRecordReader.lineBreaks("\"a\rb\""));
+    }
+
+    // Reads csv as a stream and as a mapped file, checks both against expected and returns the records
+    private List<String> assertRecords(String csv, List<String> expected) throws Exception {
+        byte[] bytes = csv.getBytes(StandardCharsets.UTF_8);
+        List<String> streamed = new ArrayList<>();
+        CsvRecordReader stream = new CsvRecordReader(new ByteArrayInputStream(bytes));
+        for (String record; (record = stream.next()) != null; ) {
+            streamed.add(record);
+        }
+        assertEquals(expected, streamed, "stream records");
+        assertEquals(bytes.length, stream.position());
+
+        Path path = Files.write(directory.resolve("records.csv"), bytes);
+        List<String> mapped = new ArrayList<>();
+        try (MappedFile file = new MappedFile(path, 3)) {
+            CsvRecordReader region = new CsvRecordReader(file, 0, file.size());
+            for (String record; (record = region.next()) != null; ) {
+                mapped.add(record);
+            }
+        }
+        assertEquals(expected, mapped, "mapped records");
+        return streamed;
+    }
+}
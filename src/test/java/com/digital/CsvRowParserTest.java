@@ -0,0 +1,89 @@
+package com.digital;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * RFC 4180 conformance of {@link CsvRowParser} for single records.
+ */
+class CsvRowParserTest {
+    private final CsvRowParser parser = new CsvRowParser();
+
+    @Test
+    void plainFieldsAreTakenVerbatim() {
+        assertEquals(List.of("1", " Ann ", "a@x", "street", "42"), fields("1, Ann ,a@x,street,42"));
+    }
+
+    @Test
+    void quotedFieldsMayHoldCommasAndEscapedQuotes() {
+        assertEquals(List.of("1", "Smith, Ann", "say \"hi\"", "\"", "42"),
+                fields("1,\"Smith, Ann\",\"say \"\"hi\"\"\",\"\"\"\",42"));
+    }
+
+    @Test
+    void quotedFieldsKeepLineBreaksAsWritten() {
+        assertEquals(List.of("a\nb", "c\r\nd", "e\rf"), fields("\"a\nb\",\"c\r\nd\",\"e\rf\""));
+    }
+
+    @Test
+    void emptyAndQuotedEmptyFields() {
+        assertEquals(List.of("", "", "", ""), fields(",\"\",,\"\""));
+        assertEquals(List.of(""), fields(""));
+        assertEquals(List.of("a", ""), fields("a,"));
+    }
+
+    @Test
+    void fieldsAreReusedAcrossRows() {
+        assertEquals(List.of("1", "2", "3"), fields("1,2,3"));
+        assertEquals(List.of("x"), fields("x"));
+        assertThrows(IndexOutOfBoundsException.class, () -> parser.field(1));
+    }
+
+    @Test
+    void intFields() {
+        parser.parse(" 42 ,-7,+3,\"12\",2147483647,-2147483648");
+        assertEquals(42, parser.intField(0));
+        assertEquals(-7, parser.intField(1));
+        assertEquals(3, parser.intField(2));
+        assertEquals(12, parser.intField(3));
+        assertEquals(Integer.MAX_VALUE, parser.intField(4));
+        assertEquals(Integer.MIN_VALUE, parser.intField(5));
+
+        parser.parse(",abc,-,2147483648,1 2");
+        for (int i = 0; i < 5; i++) {
+            int index = i;
+            assertThrows(NumberFormatException.class, () -> parser.intField(index));
+        }
+    }
+
+    @Test
+    void longFields() {
+        parser.parse("9223372036854775807,-9223372036854775808, 10000000000 ,9223372036854775808,x");
+        assertEquals(Long.MAX_VALUE, parser.longField(0));
+        assertEquals(Long.MIN_VALUE, parser.longField(1));
+        assertEquals(10_000_000_000L, parser.longField(2));
+        assertThrows(NumberFormatException.class, () -> parser.longField(3));
+        assertThrows(NumberFormatException.class, () -> parser.longField(4));
+    }
+
+    @Test
+    void malformedQuotesAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> parser.parse("1,\"unterminated"));
+        assertThrows(IllegalArgumentException.class, () -> parser.parse("1,\"ends with an escaped quote\"\""));
+        assertThrows(IllegalArgumentException.class, () -> parser.parse("1,\"closed\"then text,3"));
+        assertThrows(IllegalArgumentException.class, () -> parser.parse("\"a\" ,b"));
+    }
+
+    private List<String> fields(String row) {
+        List<String> fields = new ArrayList<>();
+        for (int i = 0; i < parser.parse(row); i++) {
+            fields.add(parser.field(i));
+        }
+        return fields;
+    }
+}
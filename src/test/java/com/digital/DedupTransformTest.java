@@ -0,0 +1,87 @@
+package com.digital;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class DedupTransformTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void dropsRepeatedIdsAcrossBatches() throws Exception {
+        try (DedupTransform dedup = new DedupTransform("id", 1000)) {
+            RowBatch first = new RowBatch(4);
+            first.add(1, "a", "a@x", "street", 1);
+            first.add(2, "b", "b@x", "street", 2);
+            first.add(1, "c", "c@x", "street", 3);
+            first.add(Long.MAX_VALUE, "d", "d@x", "street", 4);
+            assertEquals(3, dedup.apply(first).size());
+
+            RowBatch second = new RowBatch(2);
+            second.add(2, "e", "e@x", "street", 5);
+            second.add(3, "f", "f@x", "street", 6);
+            RowBatch unique = dedup.apply(second);
+            assertEquals(1, unique.size());
+            assertEquals(3, unique.id(0));
+            assertEquals(2, dedup.duplicates());
+            assertEquals(4, dedup.distinctKeys());
+        }
+    }
+
+    @Test
+    void dropsRepeatedEmails() throws Exception {
+        try (DedupTransform dedup = new DedupTransform("email", 1000)) {
+            RowBatch batch = new RowBatch(3);
+            batch.add(1, "a", "same@x", "street", 1);
+            batch.add(2, "b", "other@x", "street", 2);
+            batch.add(3, "c", "same@x", "street", 3);
+            RowBatch unique = dedup.apply(batch);
+            assertEquals(2, unique.size());
+            assertEquals(1, unique.id(0));
+            assertEquals(2, unique.id(1));
+        }
+    }
+
+    @Test
+    void virtualThreadsShareTheDuplicatesFile() throws Exception {
+        Path file = directory.resolve("duplicates.csv");
+        int threads = 8;
+        try (DedupTransform dedup = new DedupTransform("id", 1000).duplicatesFile(file)) {
+            // Every thread sends the same ids 1..100, so all but one copy of each is a duplicate
+            List<Thread> workers = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                workers.add(Thread.ofVirtual().start(() -> {
+                    for (int first = 1; first <= 100; first += 10) {
+                        RowBatch batch = new RowBatch(10);
+                        for (int id = first; id < first + 10; id++) {
+                            batch.add(id, "n" + id, id + "@x", "street", 30);
+                        }
+                        try {
+                            dedup.apply(batch);
+                        } catch (Exception e) {
+                            throw new IllegalStateException(e);
+                        }
+                    }
+                }));
+            }
+            for (Thread worker : workers) {
+                worker.join();
+            }
+            assertEquals((threads - 1) * 100, dedup.duplicates());
+        }
+        assertEquals(1 + (threads - 1) * 100, Files.readAllLines(file).size());
+    }
+
+    @Test
+    void rejectsUnknownColumns() {
+        assertThrows(IllegalArgumentException.class, () -> new DedupTransform("age", 1000));
+    }
+}
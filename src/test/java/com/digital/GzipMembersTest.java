@@ -0,0 +1,161 @@
+package com.digital;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Multi-member gzip files written by {@link GzipMemberOutputStream} and read back by
+ * {@link GzipMembers}, {@link GzipMemberInputStream} and the JDK's own gzip reader.
+ */
+class GzipMembersTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void membersRoundTripInlineAndAhead() throws Exception {
+        byte[][] chunks = chunks();
+        Path file = write("people.csv.gz", chunks);
+        byte[] expected = concat(chunks);
+
+        List<GzipMembers.Member> members = GzipMembers.members(file, 0);
+        assertEquals(chunks.length, members.size());
+        long offset = 0;
+        for (GzipMembers.Member member : members) {
+            assertEquals(offset, member.offset(), "members are back to back");
+            offset += member.length();
+        }
+        assertEquals(Files.size(file), offset);
+
+        assertArrayEquals(expected, readAll(file, members, null));
+        ExecutorService inflaters = Executors.newFixedThreadPool(3);
+        try {
+            assertArrayEquals(expected, readAll(file, members, inflaters));
+        } finally {
+            inflaters.shutdown();
+        }
+
+        // From a member boundary in the middle, as a resumed or partitioned reader starts
+        List<GzipMembers.Member> tail = GzipMembers.members(file, members.get(2).offset());
+        assertEquals(members.subList(2, members.size()), tail);
+    }
+
+    @Test
+    void jdkReadsTheMembersAsOneFile() throws Exception {
+        byte[][] chunks = chunks();
+        Path file = write("people.csv.gz", chunks);
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(file))) {
+            assertArrayEquals(concat(chunks), in.readAllBytes());
+        }
+    }
+
+    @Test
+    void partitionsAreConsecutiveAndCoverEveryMember() throws Exception {
+        List<GzipMembers.Member> members = GzipMembers.members(write("people.csv.gz", chunks()), 0);
+        for (int parts = 1; parts <= members.size() + 2; parts++) {
+            List<List<GzipMembers.Member>> runs = GzipMembers.partition(members, parts);
+            assertTrue(runs.size() <= parts && runs.stream().noneMatch(List::isEmpty), "parts=" + parts);
+            assertEquals(members, runs.stream().flatMap(List::stream).toList(), "parts=" + parts);
+        }
+    }
+
+    @Test
+    void fileFromAnotherWriterHasNoMemberIndex() throws Exception {
+        Path file = directory.resolve("plain.csv.gz");
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(file))) {
+            out.write("id,name,email,address,age\n".getBytes(StandardCharsets.UTF_8));
+        }
+        assertNull(GzipMembers.members(file, 0));
+    }
+
+    @Test
+    void impossibleMemberLengthIsRejected() throws Exception {
+        Path file = write("people.csv.gz", chunks());
+        List<GzipMembers.Member> members = GzipMembers.members(file, 0);
+        byte[] bytes = Files.readAllBytes(file);
+        int lengthField = (int) members.get(1).offset() + 16;
+
+        for (int length : new int[]{0, -members.get(0).length(), bytes.length}) {
+            ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).putInt(lengthField, length);
+            Path corrupt = Files.write(directory.resolve("corrupt" + length + ".gz"), bytes);
+            assertTimeoutPreemptively(Duration.ofSeconds(10),
+                    () -> assertThrows(IOException.class, () -> GzipMembers.members(corrupt, 0)), "length " + length);
+        }
+    }
+
+    @Test
+    void corruptMemberFailsItsCheck() throws Exception {
+        Path file = write("people.csv.gz", chunks());
+        List<GzipMembers.Member> members = GzipMembers.members(file, 0);
+        byte[] bytes = Files.readAllBytes(file);
+        GzipMembers.Member member = members.get(1);
+        bytes[(int) member.offset() + member.length() - 9] ^= 0x01; // Last deflate byte
+        Files.write(file, bytes);
+
+        assertThrows(IOException.class, () -> readAll(file, members, null));
+    }
+
+    // Four members of rows, each larger than the last, then one of incompressible bytes
+    private static byte[][] chunks() {
+        byte[][] chunks = new byte[5][];
+        for (int i = 0; i < 4; i++) {
+            StringBuilder rows = new StringBuilder();
+            for (int row = 0; row < 2000 * (i + 1); row++) {
+                rows.append(row).append(",n").append(row).append(',').append(row).append("@x,street,").append(row % 90).append('\n');
+            }
+            chunks[i] = rows.toString().getBytes(StandardCharsets.UTF_8);
+        }
+        chunks[4] = new byte[100_000];
+        new Random(42).nextBytes(chunks[4]);
+        return chunks;
+    }
+
+    private Path write(String name, byte[][] chunks) throws IOException {
+        Path file = directory.resolve(name);
+        try (GzipMemberOutputStream out = new GzipMemberOutputStream(Files.newOutputStream(file))) {
+            for (byte[] chunk : chunks) {
+                out.write(chunk, 0, chunk.length);
+                out.endMember();
+                out.endMember(); // Nothing new written: no empty member
+            }
+        }
+        return file;
+    }
+
+    private static byte[] readAll(Path file, List<GzipMembers.Member> members, ExecutorService inflaters) throws IOException {
+        try (InputStream in = new GzipMemberInputStream(file, members, inflaters, 2)) {
+            return in.readAllBytes();
+        }
+    }
+
+    private static byte[] concat(byte[][] chunks) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        for (byte[] chunk : chunks) {
+            bytes.writeBytes(chunk);
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,115 @@
+package com.digital;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Dead-letter bisection of {@link JdbcTableSink} against an embedded H2 database.
+ */
+class JdbcTableSinkTest {
+    private static final AtomicInteger DATABASES = new AtomicInteger();
+
+    @TempDir
+    Path directory;
+
+    private String url;
+    private Connection connection;
+    private final AtomicInteger openSavepoints = new AtomicInteger();
+
+    @BeforeEach
+    void createTable() throws SQLException {
+        url = "jdbc:h2:mem:sink" + DATABASES.incrementAndGet() + ";MODE=MySQL";
+        connection = DriverManager.getConnection(url);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE people (id BIGINT, name VARCHAR(250), email VARCHAR(100),"
+                    + " address VARCHAR(100), age INT CHECK (age >= 0))");
+        }
+    }
+
+    @AfterEach
+    void close() throws SQLException {
+        connection.close();
+    }
+
+    @Test
+    void badRowsGoToDeadLettersAndTheRestCommits() throws Exception {
+        for (boolean tuned : List.of(false, true)) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("DELETE FROM people");
+            }
+            Path file = directory.resolve("rejected-" + tuned + ".csv");
+            try (DeadLetterFile deadLetters = new DeadLetterFile(file, false, 100)) {
+                JdbcTableSink sink = new JdbcTableSink(this::countingConnection, "people", BulkLoaders.BATCH)
+                        .deadLetters(deadLetters);
+                if (tuned) {
+                    sink.autotune(new BatchAutotuner(250, 1));
+                }
+                try (Sink.Writer writer = sink.newWriter()) {
+                    for (int first = 0; first < 1000; first += 200) {
+                        writer.write(0, batch(first, 200));
+                    }
+                    writer.splitFinished(0);
+                }
+                assertEquals(10, deadLetters.rows(), "tuned=" + tuned);
+            }
+            assertEquals(990, count(), "tuned=" + tuned);
+            List<String> lines = Files.readAllLines(file);
+            assertEquals(11, lines.size());
+            assertTrue(lines.get(1).startsWith("\"101\","), lines.get(1)); // Row 99 starts on line 101
+            assertEquals(0, openSavepoints.get(), "savepoints left open, tuned=" + tuned);
+        }
+    }
+
+    // Rows first..first+count, every 100th one with an age the table refuses
+    private static RowBatch batch(int first, int count) {
+        RowBatch batch = new RowBatch(count);
+        for (int i = first; i < first + count; i++) {
+            batch.add(i + 1, "n" + i, i + "@x", "street", i % 100 == 99 ? -1 : i % 90, i + 2);
+        }
+        return batch;
+    }
+
+    private long count() throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT COUNT(*) FROM people")) {
+            resultSet.next();
+            return resultSet.getLong(1);
+        }
+    }
+
+    // A connection that tracks how many savepoints are set and not yet released
+    private Connection countingConnection() throws SQLException {
+        Connection target = DriverManager.getConnection(url);
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "setSavepoint" -> openSavepoints.incrementAndGet();
+                        case "releaseSavepoint" -> openSavepoints.decrementAndGet();
+                        default -> {
+                        }
+                    }
+                    try {
+                        return method.invoke(target, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+}
@@ -0,0 +1,114 @@
+package com.digital;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Delta windows of {@link JdbcTableSource} against an embedded H2 database.
+ */
+class JdbcTableSourceTest {
+    private static final AtomicInteger DATABASES = new AtomicInteger();
+    private static final Timestamp T0 = Timestamp.valueOf("2024-01-01 10:00:00");
+
+    private String url;
+    private Connection connection;
+
+    @BeforeEach
+    void createTable() throws SQLException {
+        url = "jdbc:h2:mem:source" + DATABASES.incrementAndGet() + ";MODE=MySQL";
+        connection = DriverManager.getConnection(url);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE people (id BIGINT PRIMARY KEY, name VARCHAR(250), email VARCHAR(100),"
+                    + " address VARCHAR(100), age INT, updated_at TIMESTAMP)");
+        }
+        for (int id = 1; id <= 10; id++) {
+            upsert(id, "v1", new Timestamp(T0.getTime() + id * 1000L));
+        }
+    }
+
+    @AfterEach
+    void close() throws SQLException {
+        connection.close();
+    }
+
+    @Test
+    void rowUpdatedAtTheWatermarkTimestampIsExportedNextTime() throws Exception {
+        DeltaWatermark.Mark last = DeltaWatermark.query(connection, "people", "updated_at");
+        assertEquals(10, last.maxId());
+
+        // Same one-second tick as the snapshot, committed after it was taken
+        upsert(3, "v2", last.updatedAt());
+        upsert(11, "v1", new Timestamp(last.updatedAt().getTime() + 1000));
+        DeltaWatermark.Mark next = DeltaWatermark.query(connection, "people", "updated_at");
+
+        DeltaWatermark.Mark from = last.lagging(0, 0);
+        JdbcTableSource source = new JdbcTableSource(this::connect, "people", 4, 100, 100)
+                .idsBetween(from.maxId(), next.maxId())
+                .changedBetween("updated_at", from.updatedAt(), next.updatedAt());
+        assertEquals(List.of(3L, 10L, 11L), ids(source)); // 10 carries the watermark time itself
+    }
+
+    @Test
+    void laggingMarkReadsRowsCommittedLateBelowTheSnapshot() throws Exception {
+        upsert(20, "v1", new Timestamp(T0.getTime() + 20_000));
+        DeltaWatermark.Mark last = DeltaWatermark.query(connection, "people", "updated_at");
+
+        // An id handed out before the snapshot, and an update stamped before it, that both commit after
+        upsert(15, "v1", new Timestamp(T0.getTime() + 15_000));
+        upsert(2, "v2", new Timestamp(T0.getTime() + 19_000));
+        DeltaWatermark.Mark next = DeltaWatermark.query(connection, "people", "updated_at");
+
+        JdbcTableSource exact = new JdbcTableSource(this::connect, "people", 4, 100, 100)
+                .idsBetween(last.maxId(), next.maxId())
+                .changedBetween("updated_at", last.updatedAt(), next.updatedAt());
+        assertEquals(List.of(20L), ids(exact));
+
+        DeltaWatermark.Mark from = last.lagging(10, 5_000);
+        JdbcTableSource lagging = new JdbcTableSource(this::connect, "people", 4, 100, 100)
+                .idsBetween(from.maxId(), next.maxId())
+                .changedBetween("updated_at", from.updatedAt(), next.updatedAt());
+        assertEquals(List.of(2L, 15L, 20L), ids(lagging));
+    }
+
+    private Connection connect() throws SQLException {
+        return DriverManager.getConnection(url);
+    }
+
+    private void upsert(long id, String version, Timestamp updatedAt) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "MERGE INTO people KEY (id) VALUES (?, ?, ?, 'street', 30, ?)")) {
+            statement.setLong(1, id);
+            statement.setString(2, "n" + id + version);
+            statement.setString(3, id + "@x");
+            statement.setTimestamp(4, updatedAt);
+            statement.executeUpdate();
+        }
+    }
+
+    private static List<Long> ids(JdbcTableSource source) throws Exception {
+        List<Long> ids = new ArrayList<>();
+        try (source) {
+            for (Source.Split split : source.splits()) {
+                split.read(CheckpointJournal.START, batch -> {
+                    for (int row = 0; row < batch.size(); row++) {
+                        ids.add(batch.id(row));
+                    }
+                });
+            }
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,104 @@
+package com.digital;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LatencyHistogramTest {
+    private static final double MAX_ERROR = 1.0 / 16; // Half a bucket, whose width is 1/8 of its lower bound
+
+    @Test
+    void everyValueIsReportedWithinTheBound() {
+        for (long value = 0; value < 1 << 20; value += 1 + value / 64) {
+            assertWithinBound(value, single(value));
+        }
+        for (int bit = 3; bit < 63; bit++) {
+            long power = 1L << bit;
+            for (long value : new long[]{power - 1, power, power + 1, power + power / 2}) {
+                assertWithinBound(value, single(value));
+            }
+        }
+        assertWithinBound(Long.MAX_VALUE, single(Long.MAX_VALUE));
+    }
+
+    @Test
+    void smallValuesAreExact() {
+        for (long value = 0; value < 16; value++) {
+            assertEquals(value, single(value));
+        }
+        assertEquals(0, single(-5), "negative durations count as 0");
+    }
+
+    @Test
+    void bucketsSplitEachPowerOfTwoInEight() {
+        // 1024..1151 is the first bucket above 1024, 1152..1279 the next
+        assertEquals(1088, single(1024));
+        assertEquals(1088, single(1151));
+        assertEquals(1216, single(1152));
+        assertEquals(1984, single(2047));
+        assertEquals(2176, single(2048));
+    }
+
+    @Test
+    void uniformDistribution() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        long total = 0;
+        for (long value = 1; value <= 100_000; value++) {
+            histogram.record(value);
+            total += value;
+        }
+        long[] snapshot = histogram.snapshot();
+        assertEquals(100_000, LatencyHistogram.count(snapshot));
+        assertEquals(total, histogram.totalNanos());
+        assertWithinBound(50_000, LatencyHistogram.percentile(snapshot, 0.50));
+        assertWithinBound(99_000, LatencyHistogram.percentile(snapshot, 0.99));
+        assertWithinBound(100_000, LatencyHistogram.percentile(snapshot, 1.0));
+        assertWithinBound(1, LatencyHistogram.percentile(snapshot, 0.0));
+    }
+
+    @Test
+    void longTailShowsInP99Only() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Random random = new Random(42);
+        for (int i = 0; i < 100_000; i++) {
+            // 98% around 1 ms, 2% around 100 ms
+            long millis = i % 50 == 0 ? 100 : 1;
+            histogram.record(millis * 1_000_000 + random.nextInt(10_000));
+        }
+        long[] snapshot = histogram.snapshot();
+        assertWithinBound(1_005_000, LatencyHistogram.percentile(snapshot, 0.50));
+        assertWithinBound(1_005_000, LatencyHistogram.percentile(snapshot, 0.98));
+        assertWithinBound(100_005_000, LatencyHistogram.percentile(snapshot, 0.99));
+    }
+
+    @Test
+    void differenceCoversOneInterval() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 1000; i++) {
+            histogram.record(5_000_000);
+        }
+        long[] earlier = histogram.snapshot();
+        for (int i = 0; i < 10; i++) {
+            histogram.record(20_000);
+        }
+        long[] interval = LatencyHistogram.difference(histogram.snapshot(), earlier);
+        assertEquals(10, LatencyHistogram.count(interval));
+        assertWithinBound(20_000, LatencyHistogram.percentile(interval, 0.99));
+        assertEquals(0, LatencyHistogram.percentile(LatencyHistogram.difference(earlier, earlier), 0.5));
+    }
+
+    // The p50 of a histogram holding only value
+    private static long single(long value) {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(value);
+        return LatencyHistogram.percentile(histogram.snapshot(), 0.5);
+    }
+
+    private static void assertWithinBound(long expected, long actual) {
+        assertTrue(Math.abs((double) actual - expected) <= MAX_ERROR * expected,
+                "expected " + expected + " within " + MAX_ERROR * 100 + "% but got " + actual);
+    }
+}
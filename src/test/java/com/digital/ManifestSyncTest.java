@@ -0,0 +1,147 @@
+package com.digital;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Manifest runs against an embedded H2 database.
+ */
+class ManifestSyncTest {
+    private static final AtomicInteger DATABASES = new AtomicInteger();
+    private static final int ROWS = 3000;
+
+    @TempDir
+    Path directory;
+
+    private String url;
+    private final AtomicInteger openConnections = new AtomicInteger();
+    private final AtomicInteger maxOpenConnections = new AtomicInteger();
+
+    @BeforeEach
+    void createTables() throws SQLException {
+        url = "jdbc:h2:mem:manifest" + DATABASES.incrementAndGet() + ";MODE=MySQL;DB_CLOSE_DELAY=-1";
+        try (Connection connection = DriverManager.getConnection(url);
+             Statement statement = connection.createStatement()) {
+            for (String table : List.of("people", "imported")) {
+                statement.execute("CREATE TABLE " + table + " (id BIGINT AUTO_INCREMENT PRIMARY KEY, name VARCHAR(250),"
+                        + " email VARCHAR(100), address VARCHAR(100), age INT)");
+            }
+            statement.execute("INSERT INTO people SELECT X, 'n' || X, X || '@x', 'street', MOD(X, 90)"
+                    + " FROM SYSTEM_RANGE(1, " + ROWS + ")");
+        }
+    }
+
+    @Test
+    void failedJobsDontStopTheOthers() throws Exception {
+        Path csv = csv("people.csv");
+        List<SyncJob> jobs = List.of(
+                new SyncJob(SyncJob.IMPORT, directory.resolve("missing.csv"), "imported"),
+                new SyncJob(SyncJob.IMPORT, csv, "imported"),
+                new SyncJob(SyncJob.EXPORT, directory.resolve("ghosts.csv"), "ghosts"),
+                new SyncJob(SyncJob.EXPORT, directory.resolve("export.csv"), "people"));
+
+        List<ManifestSync.Outcome> outcomes = sync(2).chunkBytes(16 << 10).run(jobs);
+
+        assertEquals(jobs.size(), outcomes.size());
+        assertNotNull(outcomes.get(0).failure());
+        assertNull(outcomes.get(1).failure());
+        assertEquals(ROWS, outcomes.get(1).rows());
+        assertNotNull(outcomes.get(2).failure());
+        assertNull(outcomes.get(3).failure());
+        assertEquals(ROWS, outcomes.get(3).rows());
+        assertEquals(ROWS, count("imported"));
+        assertEquals(ROWS + 1, Files.readAllLines(directory.resolve("export.csv")).size()); // With the header
+    }
+
+    @Test
+    void connectionsInUseStayUnderTheCap() throws Exception {
+        Path csv = csv("people.csv");
+        List<SyncJob> jobs = List.of(
+                new SyncJob(SyncJob.IMPORT, csv, "imported"),
+                new SyncJob(SyncJob.EXPORT, directory.resolve("export.csv"), "people"));
+
+        List<ManifestSync.Outcome> outcomes = sync(2).parallelism(6).chunkBytes(8 << 10).run(jobs);
+
+        for (ManifestSync.Outcome outcome : outcomes) {
+            assertNull(outcome.failure(), outcome.job().toString());
+        }
+        assertEquals(ROWS, count("imported"));
+        assertTrue(maxOpenConnections.get() <= 2, "connections open at once: " + maxOpenConnections.get());
+    }
+
+    @Test
+    void throttleSlowsDownASplitAlreadyRunning() throws Exception {
+        Path csv = csv("people.csv");
+        long bytes = Files.size(csv);
+        long bytesPerSecond = bytes / 3; // One second of burst, then two of waiting
+
+        // One split, so waiting only before a split starts would never wait at all
+        long start = System.nanoTime();
+        List<ManifestSync.Outcome> outcomes = sync(1)
+                .throttle(new IoThrottle(bytesPerSecond))
+                .run(List.of(new SyncJob(SyncJob.IMPORT, csv, "imported")));
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertNull(outcomes.get(0).failure());
+        assertEquals(ROWS, count("imported"));
+        assertTrue(elapsedMillis >= 1500, "took " + elapsedMillis + " ms");
+    }
+
+    private ManifestSync sync(int connections) {
+        return new ManifestSync(this::countingConnection, this::countingConnection, connections).reportEvery(0);
+    }
+
+    private Path csv(String name) throws Exception {
+        StringBuilder text = new StringBuilder("id,name,email,address,age\n");
+        for (int id = 1; id <= ROWS; id++) {
+            text.append(id).append(",n").append(id).append(',').append(id).append("@x,street,30\n");
+        }
+        return Files.writeString(directory.resolve(name), text);
+    }
+
+    private long count(String table) throws SQLException {
+        try (Connection connection = DriverManager.getConnection(url);
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT COUNT(*) FROM " + table)) {
+            resultSet.next();
+            return resultSet.getLong(1);
+        }
+    }
+
+    // A connection that tracks how many are open at once
+    private Connection countingConnection() throws SQLException {
+        Connection target = DriverManager.getConnection(url);
+        maxOpenConnections.accumulateAndGet(openConnections.incrementAndGet(), Math::max);
+        boolean[] closed = {false};
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    if ("close".equals(method.getName()) && !closed[0]) {
+                        closed[0] = true;
+                        openConnections.decrementAndGet();
+                    }
+                    try {
+                        return method.invoke(target, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+}
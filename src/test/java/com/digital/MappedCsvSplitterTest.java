@@ -0,0 +1,110 @@
+package com.digital;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks row for row that the split-parallel mapped path yields exactly the records of the
+ * sequential stream path, for split points anywhere in the file.
+ */
+class MappedCsvSplitterTest {
+    private static final String HEADER = "id,name,email,address,age";
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void plainLines() throws Exception {
+        assertSameRecords("plain.csv", HEADER + "\n1,a,a@x,street,1\n2,b,b@x,street,2\n3,c,c@x,street,3\n",
+                List.of("1,a,a@x,street,1", "2,b,b@x,street,2", "3,c,c@x,street,3"));
+    }
+
+    @Test
+    void quotedNewlines() throws Exception {
+        assertSameRecords("newlines.csv", HEADER + "\n1,\"multi\nline\",a@x,\"x\n\ny\",1\n2,b,b@x,street,2\n",
+                List.of("1,\"multi\nline\",a@x,\"x\n\ny\",1", "2,b,b@x,street,2"));
+    }
+
+    @Test
+    void crlfLineEndings() throws Exception {
+        assertSameRecords("crlf.csv", HEADER + "\r\n1,a,a@x,street,1\r\n2,b,b@x,street,2\r\n",
+                List.of("1,a,a@x,street,1", "2,b,b@x,street,2"));
+    }
+
+    @Test
+    void quotedCrlfAndLoneCrAreKept() throws Exception {
+        assertSameRecords("quoted-cr.csv", HEADER + "\r\n1,\"a\r\nb\",a@x,\"c\rd\",1\r\n2,\"\r\",b@x,street,2\r\n",
+                List.of("1,\"a\r\nb\",a@x,\"c\rd\",1", "2,\"\r\",b@x,street,2"));
+    }
+
+    @Test
+    void escapedQuotesAndMissingFinalLineBreak() throws Exception {
+        assertSameRecords("escaped.csv", HEADER + "\n1,\"say \"\"hi\"\"\n now\",a@x,street,1\n2,b,b@x,street,2",
+                List.of("1,\"say \"\"hi\"\"\n now\",a@x,street,1", "2,b,b@x,street,2"));
+    }
+
+    @Test
+    void regionsSplitInsideQuotedFields() throws Exception {
+        StringBuilder csv = new StringBuilder(HEADER).append("\r\n");
+        List<String> expected = new ArrayList<>();
+        for (int i = 1; i <= 300; i++) {
+            String record = i % 3 == 0
+                    ? i + ",\"name\r\nwith \"\"quotes\"\"\n" + i + "\",e" + i + "@x,\"a,\nb\",7"
+                    : i + ",n" + i + ",e" + i + "@x,street," + (i % 90);
+            expected.add(record);
+            csv.append(record).append(i % 2 == 0 ? "\r\n" : "\n");
+        }
+        assertSameRecords("straddle.csv", csv.toString(), expected);
+    }
+
+    /**
+     * Splits {@code csv} into every part count from 1 to 64 with 16-byte mapping windows and
+     * checks the records of the mapped regions, their first lines, and the stream records.
+     */
+    private void assertSameRecords(String name, String csv, List<String> expected) throws Exception {
+        Path path = directory.resolve(name);
+        Files.writeString(path, csv, StandardCharsets.UTF_8);
+
+        List<String> streamed = new ArrayList<>();
+        try (InputStream in = Files.newInputStream(path)) {
+            CsvRecordReader reader = new CsvRecordReader(in);
+            assertEquals(HEADER, reader.next());
+            String record;
+            while ((record = reader.next()) != null) {
+                streamed.add(record);
+            }
+        }
+        assertEquals(expected, streamed, "stream records");
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try (MappedFile file = new MappedFile(path, 4)) {
+            for (int parts = 1; parts <= 64; parts++) {
+                List<String> mapped = new ArrayList<>();
+                long line = 2;
+                for (MappedCsvSplitter.Region region : MappedCsvSplitter.split(file, MappedCsvSplitter.headerEnd(file), parts, executor)) {
+                    assertEquals(line, region.firstLine(), "first line of " + region + " in " + parts + " parts");
+                    CsvRecordReader reader = new CsvRecordReader(file, region.start(), region.end());
+                    String record;
+                    while ((record = reader.next()) != null) {
+                        mapped.add(record);
+                        line += 1 + CsvRecordReader.lineBreaks(record);
+                    }
+                }
+                assertEquals(streamed, mapped, "mapped records in " + parts + " parts");
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
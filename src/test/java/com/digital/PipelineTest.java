@@ -0,0 +1,260 @@
+package com.digital;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs of {@link Pipeline} over an in-memory source and sink, on fixed pools and on virtual
+ * threads.
+ */
+class PipelineTest {
+    private static final int SPLITS = 7;
+    private static final int BATCHES = 20; // Per split
+    private static final int ROWS = 50;    // Per batch
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+    @Test
+    void everyRowIsWrittenOnce() throws Exception {
+        for (boolean virtual : List.of(false, true)) {
+            for (boolean ordered : List.of(false, true)) {
+                String mode = "virtual=" + virtual + " ordered=" + ordered;
+                TestSource source = new TestSource(-1, -1);
+                RecordingSink sink = new RecordingSink(ordered, -1);
+                Pipeline pipeline = pipeline(source, sink, virtual).transform(batch -> batch, 2);
+
+                Pipeline.Result result = assertTimeoutPreemptively(TIMEOUT, pipeline::run, mode);
+
+                assertEquals(SPLITS * BATCHES * ROWS, result.rowsRead(), mode);
+                assertEquals(SPLITS * BATCHES * ROWS, result.rowsWritten(), mode);
+                Set<Long> ids = new HashSet<>(sink.ids);
+                assertEquals(sink.ids.size(), ids.size(), "no row twice, " + mode);
+                assertEquals(SPLITS * BATCHES * ROWS, ids.size(), mode);
+                assertTrue(sink.finished.get(), mode);
+                assertEquals(0, sink.openWriters.get(), "every writer closed, " + mode);
+                assertTrue(source.closed.get(), mode);
+            }
+        }
+    }
+
+    @Test
+    void failingSourceStopsTheRun() {
+        for (boolean virtual : List.of(false, true)) {
+            TestSource source = new TestSource(3, 5);
+            RecordingSink sink = new RecordingSink(false, -1);
+            Exception e = assertTimeoutPreemptively(TIMEOUT,
+                    () -> assertThrows(IllegalStateException.class, pipeline(source, sink, virtual)::run));
+            assertSame(source.failure, e, "virtual=" + virtual);
+            assertStopped(source, sink, "virtual=" + virtual);
+        }
+    }
+
+    @Test
+    void failingTransformStopsTheRun() {
+        for (boolean virtual : List.of(false, true)) {
+            TestSource source = new TestSource(-1, -1);
+            RecordingSink sink = new RecordingSink(false, -1);
+            AtomicInteger seen = new AtomicInteger();
+            IllegalStateException failure = new IllegalStateException("transform failed");
+            Pipeline pipeline = pipeline(source, sink, virtual).transform(batch -> {
+                if (seen.incrementAndGet() == 30) {
+                    throw failure;
+                }
+                return batch;
+            }, 3);
+            Exception e = assertTimeoutPreemptively(TIMEOUT, () -> assertThrows(IllegalStateException.class, pipeline::run));
+            assertSame(failure, e, "virtual=" + virtual);
+            assertStopped(source, sink, "virtual=" + virtual);
+        }
+    }
+
+    @Test
+    void failingSinkStopsTheRun() {
+        for (boolean virtual : List.of(false, true)) {
+            for (boolean ordered : List.of(false, true)) {
+                String mode = "virtual=" + virtual + " ordered=" + ordered;
+                TestSource source = new TestSource(-1, -1);
+                RecordingSink sink = new RecordingSink(ordered, 30);
+                Exception e = assertTimeoutPreemptively(TIMEOUT,
+                        () -> assertThrows(IllegalStateException.class, pipeline(source, sink, virtual)::run));
+                assertSame(sink.failure, e, mode);
+                assertStopped(source, sink, mode);
+            }
+        }
+    }
+
+    @Test
+    void orderedSinkGetsEachSplitInOrderFromOneWriter() throws Exception {
+        for (boolean virtual : List.of(false, true)) {
+            String mode = "virtual=" + virtual;
+            RecordingSink sink = new RecordingSink(true, -1);
+            assertTimeoutPreemptively(TIMEOUT, pipeline(new TestSource(-1, -1), sink, virtual).sourceParallelism(4)::run);
+
+            Map<Integer, Integer> writerOfSplit = new ConcurrentHashMap<>();
+            for (RecordingSink.Write write : sink.writes) {
+                assertEquals(write.writer(), writerOfSplit.computeIfAbsent(write.split(), split -> write.writer()),
+                        "split " + write.split() + " has one writer, " + mode);
+            }
+            assertEquals(SPLITS, writerOfSplit.size(), mode);
+            // Routed by split % consumers: splits sharing a writer share a remainder
+            for (int split = 0; split < SPLITS; split++) {
+                for (int other = 0; other < SPLITS; other++) {
+                    assertEquals(split % 3 == other % 3, writerOfSplit.get(split).equals(writerOfSplit.get(other)),
+                            "splits " + split + " and " + other + ", " + mode);
+                }
+            }
+            for (int split = 0; split < SPLITS; split++) {
+                List<Integer> sequences = new ArrayList<>();
+                for (RecordingSink.Write write : sink.writes) {
+                    if (write.split() == split) {
+                        sequences.add(write.sequence());
+                    }
+                }
+                assertEquals(BATCHES + 1, sequences.size(), "batches and the end of split, " + mode);
+                for (int i = 0; i < BATCHES; i++) {
+                    assertEquals(i, sequences.get(i), "split " + split + ", " + mode);
+                }
+                assertEquals(RecordingSink.SPLIT_FINISHED, sequences.get(BATCHES), "finished last, " + mode);
+            }
+        }
+    }
+
+    private static Pipeline pipeline(Source source, Sink sink, boolean virtual) {
+        Pipeline pipeline = new Pipeline(source, sink)
+                .sourceParallelism(2)
+                .sinkParallelism(3)
+                .queueCapacity(4)
+                .reportEvery(0);
+        return virtual ? pipeline.virtualThreads(4) : pipeline;
+    }
+
+    private static void assertStopped(TestSource source, RecordingSink sink, String mode) {
+        assertFalse(sink.finished.get(), "not finished after a failure, " + mode);
+        assertTrue(sink.ids.size() < SPLITS * BATCHES * ROWS, mode);
+        assertEquals(0, sink.openWriters.get(), "every writer closed, " + mode);
+        assertTrue(source.closed.get(), mode);
+    }
+
+    /**
+     * {@link #SPLITS} splits of {@link #BATCHES} batches; optionally fails in one of them.
+     */
+    private static final class TestSource implements Source {
+        final IllegalStateException failure = new IllegalStateException("source failed");
+        final AtomicBoolean closed = new AtomicBoolean();
+        private final int failingSplit;
+        private final int failingBatch;
+
+        TestSource(int failingSplit, int failingBatch) {
+            this.failingSplit = failingSplit;
+            this.failingBatch = failingBatch;
+        }
+
+        @Override
+        public List<Split> splits() {
+            List<Split> splits = new ArrayList<>();
+            for (int i = 0; i < SPLITS; i++) {
+                int split = i;
+                splits.add((resumeFrom, out) -> {
+                    for (int b = 0; b < BATCHES; b++) {
+                        if (split == failingSplit && b == failingBatch) {
+                            throw failure;
+                        }
+                        RowBatch batch = new RowBatch(ROWS);
+                        for (int row = 0; row < ROWS; row++) {
+                            long id = ((long) split * BATCHES + b) * ROWS + row + 1;
+                            batch.add(id, "n" + id, id + "@x", "street", 30);
+                        }
+                        batch.position(b + 1);
+                        out.emit(batch);
+                    }
+                });
+            }
+            return splits;
+        }
+
+        @Override
+        public void close() {
+            closed.set(true);
+        }
+    }
+
+    /**
+     * Records every batch with the writer that got it; optionally fails on the n-th batch.
+     */
+    private static final class RecordingSink implements Sink {
+        static final int SPLIT_FINISHED = -1;
+
+        record Write(int writer, int split, int sequence) {
+        }
+
+        final IllegalStateException failure = new IllegalStateException("sink failed");
+        final Queue<Long> ids = new ConcurrentLinkedQueue<>();
+        final Queue<Write> writes = new ConcurrentLinkedQueue<>();
+        final AtomicBoolean finished = new AtomicBoolean();
+        final AtomicInteger openWriters = new AtomicInteger();
+        private final boolean ordered;
+        private final int failingBatch;
+        private final AtomicInteger batches = new AtomicInteger();
+        private final AtomicInteger writerCount = new AtomicInteger();
+
+        RecordingSink(boolean ordered, int failingBatch) {
+            this.ordered = ordered;
+            this.failingBatch = failingBatch;
+        }
+
+        @Override
+        public boolean ordered() {
+            return ordered;
+        }
+
+        @Override
+        public Writer newWriter() {
+            int writer = writerCount.incrementAndGet();
+            openWriters.incrementAndGet();
+            return new Writer() {
+                @Override
+                public void write(int split, RowBatch batch) {
+                    if (batches.incrementAndGet() == failingBatch) {
+                        throw failure;
+                    }
+                    writes.add(new Write(writer, split, batch.sequence()));
+                    for (int row = 0; row < batch.size(); row++) {
+                        ids.add(batch.id(row));
+                    }
+                }
+
+                @Override
+                public void splitFinished(int split) {
+                    writes.add(new Write(writer, split, SPLIT_FINISHED));
+                }
+
+                @Override
+                public void close() {
+                    openWriters.decrementAndGet();
+                }
+            };
+        }
+
+        @Override
+        public void finish() {
+            finished.set(true);
+        }
+    }
+}
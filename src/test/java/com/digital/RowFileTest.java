@@ -0,0 +1,166 @@
+package com.digital;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Blocks of {@link RowFile} written to disk and read back through a {@link MappedFile}.
+ */
+class RowFileTest {
+    private static final int NAME = 1;
+    private static final int EMAIL = 1 << 1;
+    private static final int ADDRESS = 1 << 2;
+    private static final int AGE = 1 << 3;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void nullsAndUnicodeRoundTrip() throws Exception {
+        RowBatch batch = new RowBatch(4);
+        batch.add(1, null, null, null, 0);
+        batch.add(2, "", "", "", -1);
+        batch.add(3, "Zoë Łukasiewicz", "zoë@例え.jp", "Straße 5 🏠", Integer.MAX_VALUE);
+        batch.add(Long.MAX_VALUE, "x".repeat(200), "😀".repeat(40), null, Integer.MIN_VALUE); // 2-byte length varints
+
+        assertRows(List.of(batch), roundTrip(batch));
+    }
+
+    @Test
+    void eachColumnPicksDictionaryOrPlain() throws Exception {
+        // 1000 rows: distinct names and emails, 300 addresses (2-byte codes) and 5 ages (1-byte codes)
+        RowBatch wide = new RowBatch(1000);
+        for (int row = 0; row < 1000; row++) {
+            wide.add(row, "n" + row, row + "@x", "street number " + row % 300, 20 + row % 5);
+        }
+        assertEquals(ADDRESS | AGE, dictionaryColumns(RowFile.encode(wide)));
+
+        // 3 names (1-byte codes), distinct emails and addresses, 300 ages (2-byte codes)
+        RowBatch narrow = new RowBatch(1000);
+        for (int row = 0; row < 1000; row++) {
+            narrow.add(row, "name " + row % 3, row + "@x", "street " + row, row % 300);
+        }
+        assertEquals(NAME | AGE, dictionaryColumns(RowFile.encode(narrow)));
+
+        // Nothing repeats: every column plain
+        RowBatch distinct = new RowBatch(100);
+        for (int row = 0; row < 100; row++) {
+            distinct.add(row, "n" + row, row + "@x", "street " + row, row);
+        }
+        assertEquals(0, dictionaryColumns(RowFile.encode(distinct)));
+
+        // A null repeated is a dictionary entry like any value
+        RowBatch nulls = new RowBatch(50);
+        for (int row = 0; row < 50; row++) {
+            nulls.add(row, "n" + row, row % 2 == 0 ? null : "shared@x", "street " + row, 30);
+        }
+        assertEquals(EMAIL | AGE, dictionaryColumns(RowFile.encode(nulls)));
+
+        assertRows(List.of(wide, narrow, distinct, nulls), roundTrip(wide, narrow, distinct, nulls));
+    }
+
+    @Test
+    void corruptedPayloadFailsTheChecksum() throws Exception {
+        RowBatch batch = batch(100);
+        Path file = write("corrupt" + RowFile.SUFFIX, batch);
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[RowFile.HEADER_SIZE + RowFile.BLOCK_HEADER_SIZE + 50] ^= 0x01;
+        Files.write(file, bytes);
+
+        try (MappedFile mapped = new MappedFile(file)) {
+            List<RowFile.Block> blocks = RowFile.blocks(mapped, RowFile.checkHeader(mapped));
+            IOException e = assertThrows(IOException.class, () -> RowFile.decode(mapped, blocks.get(0)));
+            assertTrue(e.getMessage().contains("Checksum"), e.getMessage());
+        }
+    }
+
+    @Test
+    void truncatedBlockIsRejected() throws Exception {
+        Path file = write("full" + RowFile.SUFFIX, batch(100), batch(100));
+        byte[] bytes = Files.readAllBytes(file);
+        int secondBlock;
+        try (MappedFile mapped = new MappedFile(file)) {
+            secondBlock = (int) RowFile.blocks(mapped, RowFile.HEADER_SIZE).get(1).offset();
+        }
+
+        for (int cut : new int[]{secondBlock + 4, secondBlock + RowFile.BLOCK_HEADER_SIZE - 1,
+                secondBlock + RowFile.BLOCK_HEADER_SIZE + 10, bytes.length - 1}) {
+            Path truncated = Files.write(directory.resolve("cut" + cut + RowFile.SUFFIX), Arrays.copyOf(bytes, cut));
+            try (MappedFile mapped = new MappedFile(truncated)) {
+                IOException e = assertThrows(IOException.class, () -> RowFile.blocks(mapped, RowFile.HEADER_SIZE));
+                assertTrue(e.getMessage().contains("cut off"), "cut at " + cut + ": " + e.getMessage());
+            }
+        }
+    }
+
+    @Test
+    void foreignFileIsRejected() throws Exception {
+        Path file = Files.writeString(directory.resolve("people" + RowFile.SUFFIX), "id,name,email,address,age\n");
+        try (MappedFile mapped = new MappedFile(file)) {
+            assertThrows(IOException.class, () -> RowFile.checkHeader(mapped));
+        }
+    }
+
+    private List<RowBatch> roundTrip(RowBatch... batches) throws IOException {
+        Path file = write("people" + RowFile.SUFFIX, batches);
+        List<RowBatch> read = new ArrayList<>();
+        try (MappedFile mapped = new MappedFile(file)) {
+            for (RowFile.Block block : RowFile.blocks(mapped, RowFile.checkHeader(mapped))) {
+                read.add(RowFile.decode(mapped, block));
+            }
+        }
+        return read;
+    }
+
+    private Path write(String name, RowBatch... batches) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        bytes.write(RowFile.header());
+        for (RowBatch batch : batches) {
+            bytes.write(RowFile.encode(batch));
+        }
+        return Files.write(directory.resolve(name), bytes.toByteArray());
+    }
+
+    private static void assertRows(List<RowBatch> expected, List<RowBatch> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            RowBatch want = expected.get(i);
+            RowBatch got = actual.get(i);
+            assertEquals(want.size(), got.size());
+            for (int row = 0; row < want.size(); row++) {
+                String where = "block " + i + " row " + row;
+                assertEquals(want.id(row), got.id(row), where);
+                assertEquals(want.name(row), got.name(row), where);
+                assertEquals(want.email(row), got.email(row), where);
+                assertEquals(want.address(row), got.address(row), where);
+                assertEquals(want.age(row), got.age(row), where);
+            }
+        }
+    }
+
+    // The dictionary flags of an encoded block's header
+    private static int dictionaryColumns(byte[] block) {
+        return ByteBuffer.wrap(block).getInt(12);
+    }
+
+    private static RowBatch batch(int rows) {
+        RowBatch batch = new RowBatch(rows);
+        for (int row = 0; row < rows; row++) {
+            batch.add(row, "n" + row, row + "@x", "street", row % 90);
+        }
+        return batch;
+    }
+}
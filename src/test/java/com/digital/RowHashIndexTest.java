@@ -0,0 +1,83 @@
+package com.digital;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RowHashIndexTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void appendedFileIsReadFromTheCoveredEnd() throws Exception {
+        Path csv = Files.writeString(directory.resolve("people.csv"), csv(5000, 23));
+        long generation = exported(csv);
+        RowHashIndex index = covering(csv, generation);
+
+        Files.writeString(csv, "5001,n,e,a,1\n", StandardOpenOption.APPEND);
+        assertEquals(index.coveredBytes(), index.tailStart(csv, generation));
+
+        index.save(directory.resolve("people.csv.hashes"));
+        RowHashIndex loaded = RowHashIndex.load(directory.resolve("people.csv.hashes"));
+        assertEquals(index.coveredBytes(), loaded.tailStart(csv, generation));
+        assertEquals(5000, loaded.size());
+    }
+
+    @Test
+    void rewriteWithASameLengthEditIsComparedInFull() throws Exception {
+        Path csv = Files.writeString(directory.resolve("people.csv"), csv(5000, 23));
+        long generation = exported(csv);
+        RowHashIndex index = covering(csv, generation);
+
+        // A full re-export that changes row 5's age 23 -> 24: same length, same last 64 KB
+        DeltaWatermark watermark = DeltaWatermark.load(DeltaWatermark.pathFor(csv));
+        watermark.rewrite();
+        String rewritten = csv(5000, 23).replace("\n5,n5,5@x,street,23\n", "\n5,n5,5@x,street,24\n");
+        Files.writeString(csv, rewritten);
+        watermark.commit(Files.size(csv));
+
+        assertTrue(index.coveredBytes() > 1 << 16);
+        assertEquals(index.coveredBytes(), index.tailStart(csv, generation), "the CRC alone can't tell");
+        assertEquals(0, index.tailStart(csv, watermark.generation()));
+    }
+
+    @Test
+    void fileWithoutAWatermarkIsComparedInFull() throws Exception {
+        Path csv = Files.writeString(directory.resolve("people.csv"), csv(10, 23));
+        RowHashIndex index = covering(csv, 0);
+        assertEquals(0, index.tailStart(csv, DeltaWatermark.load(DeltaWatermark.pathFor(csv)).generation()));
+    }
+
+    // As a delta export writing the file from scratch leaves it
+    private static long exported(Path csv) throws Exception {
+        DeltaWatermark watermark = DeltaWatermark.load(DeltaWatermark.pathFor(csv));
+        watermark.begin(new DeltaWatermark.Mark(5000, null));
+        watermark.rewrite();
+        watermark.commit(Files.size(csv));
+        return DeltaWatermark.load(DeltaWatermark.pathFor(csv)).generation();
+    }
+
+    private RowHashIndex covering(Path csv, long generation) throws Exception {
+        RowBatch batch = new RowBatch(5000);
+        for (int id = 1; id <= 5000; id++) {
+            batch.add(id, "n" + id, id + "@x", "street", 23);
+        }
+        ChangedRowFilter filter = new ChangedRowFilter(RowHashIndex.load(directory.resolve("none.hashes")));
+        filter.apply(batch);
+        return filter.updatedIndex(csv, generation, Files.size(csv), new long[0]);
+    }
+
+    private static String csv(int rows, int age) {
+        StringBuilder csv = new StringBuilder("id,name,email,address,age\n");
+        for (int id = 1; id <= rows; id++) {
+            csv.append(id).append(",n").append(id).append(',').append(id).append("@x,street,").append(age).append('\n');
+        }
+        return csv.toString();
+    }
+}
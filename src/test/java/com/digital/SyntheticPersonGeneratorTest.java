@@ -0,0 +1,92 @@
+package com.digital;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SyntheticPersonGeneratorTest {
+    private static final SyntheticPersonGenerator GENERATOR = new SyntheticPersonGenerator(SyntheticPersonGenerator.DEFAULT_SEED);
+
+    @Test
+    void sameSeedGivesTheSameRows() {
+        SyntheticPersonGenerator other = new SyntheticPersonGenerator(SyntheticPersonGenerator.DEFAULT_SEED);
+        assertEquals(rows(GENERATOR.partition(7, 1000, 3000)), rows(other.partition(7, 1000, 3000)));
+
+        assertNotEquals(rows(GENERATOR.partition(7, 1000, 3000)), rows(GENERATOR.partition(8, 1000, 3000)));
+        assertNotEquals(rows(GENERATOR.partition(7, 0, 2000)), rows(GENERATOR.partition(7, 2000, 4000)),
+                "partitions get unrelated streams");
+    }
+
+    @Test
+    void rowsAreNumberedAndInRange() {
+        List<String> rows = rows(GENERATOR.partition(7, 500, 1500));
+        assertEquals(1000, rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            String[] fields = rows.get(i).split("\\|");
+            assertEquals(500 + i, Long.parseLong(fields[0]));
+            int age = Integer.parseInt(fields[4]);
+            assertTrue(age >= SyntheticPersonGenerator.MIN_AGE && age < SyntheticPersonGenerator.MAX_AGE_EXCLUSIVE, rows.get(i));
+            assertTrue(fields[2].contains("@"), rows.get(i));
+        }
+    }
+
+    @Test
+    void skipLeavesTheSameStateAsFill() {
+        List<String> all = rows(GENERATOR.partition(7, 1000, 3000));
+        for (int skipped : new int[]{0, 1, 999, 1999}) {
+            SyntheticPersonGenerator.Partition partition = GENERATOR.partition(7, 1000, 3000);
+            partition.skip(skipped);
+            assertEquals(1000 + skipped, partition.nextRow());
+            assertEquals(all.subList(skipped, all.size()), rows(partition), "skipped " + skipped);
+        }
+
+        SyntheticPersonGenerator.Partition partition = GENERATOR.partition(7, 1000, 3000);
+        partition.skip(5000);
+        assertFalse(partition.hasNext(), "skipping past the end stops at it");
+        assertEquals(3000, partition.nextRow());
+    }
+
+    @Test
+    void resumedSplitContinuesTheSameSequence() throws Exception {
+        SyntheticSource source = new SyntheticSource(GENERATOR, 7, 2500, 1000, 300);
+        List<? extends Source.Split> splits = source.splits();
+        assertEquals(3, splits.size());
+
+        List<String> full = new ArrayList<>();
+        List<Long> positions = new ArrayList<>();
+        splits.get(1).read(CheckpointJournal.START, batch -> {
+            full.addAll(rows(batch));
+            positions.add(batch.position());
+        });
+        assertEquals(List.of(1300L, 1600L, 1900L, 2000L), positions);
+
+        List<String> resumed = new ArrayList<>();
+        splits.get(1).read(1600, batch -> resumed.addAll(rows(batch)));
+        assertEquals(full.subList(600, 1000), resumed);
+    }
+
+    private static List<String> rows(SyntheticPersonGenerator.Partition partition) {
+        List<String> rows = new ArrayList<>();
+        while (partition.hasNext()) {
+            RowBatch batch = new RowBatch(256);
+            partition.fill(batch);
+            rows.addAll(rows(batch));
+        }
+        return rows;
+    }
+
+    private static List<String> rows(RowBatch batch) {
+        List<String> rows = new ArrayList<>();
+        for (int row = 0; row < batch.size(); row++) {
+            rows.add(batch.id(row) + "|" + batch.name(row) + "|" + batch.email(row) + "|" + batch.address(row)
+                    + "|" + batch.age(row));
+        }
+        return rows;
+    }
+}